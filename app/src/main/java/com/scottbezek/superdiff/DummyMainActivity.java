@@ -11,6 +11,9 @@ import android.widget.Spinner;
 
 public class DummyMainActivity extends Activity {
 
+    /** Separates the two files of a sample that's diffed rather than parsed. */
+    private static final String SAMPLE_PAIR_SEPARATOR = " -> ";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -19,6 +22,7 @@ public class DummyMainActivity extends Activity {
         final String[] SAMPLES = {
                 "view.diff",
                 "basicMultiFile.diff",
+                "view_before.txt" + SAMPLE_PAIR_SEPARATOR + "view_after.txt",
         };
         final Spinner sampleSelect = (Spinner)findViewById(R.id.sample_selector);
         sampleSelect.setAdapter(new ArrayAdapter<String>(this,
@@ -30,7 +34,14 @@ public class DummyMainActivity extends Activity {
             @Override
             public void onClick(View v) {
                 Intent intent = new Intent(DummyMainActivity.this, ListViewActivity.class);
-                intent.putExtra(ListViewActivity.EXTRA_SAMPLE, (String)sampleSelect.getSelectedItem());
+                String sample = (String)sampleSelect.getSelectedItem();
+                int separator = sample.indexOf(SAMPLE_PAIR_SEPARATOR);
+                if (separator != -1) {
+                    intent.putExtra(ListViewActivity.EXTRA_SAMPLE_BEFORE,
+                            sample.substring(0, separator));
+                    sample = sample.substring(separator + SAMPLE_PAIR_SEPARATOR.length());
+                }
+                intent.putExtra(ListViewActivity.EXTRA_SAMPLE, sample);
                 startActivity(intent);
             }
         });
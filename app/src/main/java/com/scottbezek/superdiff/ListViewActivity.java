@@ -1,6 +1,5 @@
 package com.scottbezek.superdiff;
 
-import com.scottbezek.difflib.unified.SideBySideLine;
 import com.scottbezek.superdiff.list.CollapsedSideBySideLineAdapter;
 import com.scottbezek.superdiff.list.CollapsedSideBySideLineAdapter.CollapsedOrLine;
 import com.scottbezek.superdiff.list.HorizontalScrollObservingListView;
@@ -15,7 +14,6 @@ import com.scottbezek.superdiff.manager.IntralineDiffProcessor;
 import com.scottbezek.superdiff.manager.StateStream;
 import com.scottbezek.superdiff.manager.StateStream.Listener;
 import com.scottbezek.util.Assert;
-import com.scottbezek.util.StopWatch;
 
 import android.app.Activity;
 import android.content.Intent;
@@ -39,6 +37,12 @@ public class ListViewActivity extends Activity {
 
     public static final String EXTRA_SAMPLE = "EXTRA_SAMPLE";
 
+    /**
+     * Name of a sample file to diff {@link #EXTRA_SAMPLE} against, in which case that is a file
+     * too, rather than a unified diff.
+     */
+    public static final String EXTRA_SAMPLE_BEFORE = "EXTRA_SAMPLE_BEFORE";
+
     private DiffManager mDiffManager;
     private ProgressBar mProgress;
     private HorizontalScrollObservingListView mListView;
@@ -98,12 +102,19 @@ public class ListViewActivity extends Activity {
                         .loadContentUri(getContentResolver(), dataUri, intralineDiffProcessor);
             } else {
                 String sampleName = intent.getStringExtra(EXTRA_SAMPLE);
-                if (sampleName.contains("..")) {
+                String beforeSampleName = intent.getStringExtra(EXTRA_SAMPLE_BEFORE);
+                if (sampleName.contains("..")
+                        || (beforeSampleName != null && beforeSampleName.contains(".."))) {
                     finish();
                     return;
                 }
-                mResultStream = mDiffManager
-                        .loadSample(getAssets(), sampleName, intralineDiffProcessor);
+                if (beforeSampleName != null) {
+                    mResultStream = mDiffManager.loadSamplePair(getAssets(), beforeSampleName,
+                            sampleName, intralineDiffProcessor);
+                } else {
+                    mResultStream = mDiffManager
+                            .loadSample(getAssets(), sampleName, intralineDiffProcessor);
+                }
             }
             mResultStream.subscribeInvoke(mDiffListener);
         }
@@ -129,26 +140,13 @@ public class ListViewActivity extends Activity {
                 DiffFailed failure = (DiffFailed)state;
                 Toast.makeText(ListViewActivity.this, failure.getCause().getMessage(), Toast.LENGTH_LONG).show();
             } else if (state instanceof DiffLoadResult) {
-                Map<String, List<CollapsedOrLine>> diffByFilename = ((DiffLoadResult)state).getDiffByFilename();
+                DiffLoadResult result = (DiffLoadResult)state;
+                Map<String, List<CollapsedOrLine>> diffByFilename = result.getDiffByFilename();
 
-                // TODO(sbezek): move this to a background thread; make the result contain the 'Spanned' results
-                StopWatch itemWidthTimer = StopWatch.start("calculate_item_widths");
                 // For now we only support a single horizontally-scrollable container
                 // (in the future it might be nice to allow each file to be scrolled
-                // separately), so just take the max widths of all file diffs
-                int widestLineNumberWidth = 0;
-                int widestLineContentsWidth = 0;
-                for (List<CollapsedOrLine> fileDiff : diffByFilename.values()) {
-                    ItemWidths curItemWidths = calculateItemWidths(getResources(), fileDiff);
-                    if (curItemWidths.getLineNumberWidthPx() > widestLineNumberWidth) {
-                        widestLineNumberWidth = curItemWidths.getLineNumberWidthPx();
-                    }
-                    if (curItemWidths.getLineContentsWidthPx() > widestLineContentsWidth) {
-                        widestLineContentsWidth = curItemWidths.getLineContentsWidthPx();
-                    }
-                }
-                mItemWidthInfo = new ItemWidths(widestLineNumberWidth, widestLineContentsWidth);
-                itemWidthTimer.stopAndLog();
+                // separately), so the result has the max widths of all file diffs
+                mItemWidthInfo = calculateItemWidths(getResources(), result);
 
                 List<CollapsedSideBySideLineAdapter> adapters = new ArrayList<CollapsedSideBySideLineAdapter>();
                 for (Entry<String, List<CollapsedOrLine>> entry : diffByFilename.entrySet()) {
@@ -163,53 +161,24 @@ public class ListViewActivity extends Activity {
         }
     };
 
-    private static ItemWidths calculateItemWidths(Resources resources, List<CollapsedOrLine> diff) {
+    private static ItemWidths calculateItemWidths(Resources resources, DiffLoadResult result) {
         Paint p = new Paint();
         p.setTextSize(resources.getDimension(R.dimen.code_text_size));
         p.setTypeface(Typeface.MONOSPACE);
 
-        // Because we're using a monospace font, cheat by finding widest line (#
-        // of characters) and just measuring that once.
-        // TODO(sbezek): XXX what about unicode? this is almost certainly completely flawed, though it might be possible to use a BreakIterator.getCharacterInstance()?
-        int widestLineNumberChars = 2;
-        int widestContentsChars = 20;
-        for (CollapsedOrLine item : diff) {
-            if (item.isCollapsed()) {
-                continue;
-            } else {
-                SideBySideLine line = item.getLine();
-                final CharSequence leftLine = line.getLeftLine();
-                if (leftLine != null) {
-                    widestLineNumberChars = Math.max(widestLineNumberChars,
-                            String.valueOf(line.getLeftLineNumber()).length());
-                    widestContentsChars = Math.max(widestContentsChars, leftLine.length());
-                }
-                final CharSequence rightLine = line.getRightLine();
-                if (rightLine != null) {
-                    widestLineNumberChars = Math.max(widestLineNumberChars,
-                            String.valueOf(line.getRightLineNumber()).length());
-                    widestContentsChars = Math.max(widestContentsChars, rightLine.length());
-                }
-            }
-        }
-
         return new ItemWidths(
-                getWidthOfNCharacters(p, widestLineNumberChars),
-                getWidthOfNCharacters(p, widestContentsChars));
+                getWidthOfColumns(p, Math.max(2, result.getWidestLineNumberColumns())),
+                getWidthOfColumns(p, Math.max(20, result.getWidestLineColumns())));
     }
 
     /**
      * Only valid for monospaced fonts.
      */
-    private static int getWidthOfNCharacters(Paint p, int numChars) {
+    private static int getWidthOfColumns(Paint p, int columns) {
         // Only is valid for monospaced fonts
         Assert.isTrue(p.getTypeface() == Typeface.MONOSPACE);
 
-        StringBuilder dummy = new StringBuilder();
-        for (int i = 0; i < numChars; i++) {
-            dummy.append("A");
-        }
-        return (int)p.measureText(dummy.toString());
+        return (int) Math.ceil(columns * p.measureText("A"));
     }
 
     @Override
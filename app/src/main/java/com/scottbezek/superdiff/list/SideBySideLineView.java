@@ -20,6 +20,7 @@ public class SideBySideLineView extends LinearLayout {
     private final int mAddedBackgroundColor;
     private final int mRemovedCharactersBackgroundColor;
     private final int mAddedCharactersBackgroundColor;
+    private final int mMovedBackgroundColor;
 
     private final View mLeftContainer;
     private final TextView mLeftLineNumber;
@@ -49,14 +50,15 @@ public class SideBySideLineView extends LinearLayout {
 
         mRemovedCharactersBackgroundColor = resources.getColor(R.color.diff_chars_removed_background);
         mAddedCharactersBackgroundColor = resources.getColor(R.color.diff_chars_added_background);
+        mMovedBackgroundColor = resources.getColor(R.color.diff_line_moved_background);
     }
 
     public void setLine(SideBySideLine line) {
         CharSequence leftLine = line.getLeftLine();
         CharSequence rightLine = line.getRightLine();
 
-        final int leftBackgroundColor;
-        final int rightBackgroundColor;
+        int leftBackgroundColor;
+        int rightBackgroundColor;
         if (leftLine != null && rightLine != null) {
             if (leftLine.equals(rightLine)) {
                 leftBackgroundColor = mNormalBackgroundColor;
@@ -76,6 +78,12 @@ public class SideBySideLineView extends LinearLayout {
         } else {
             throw Assert.fail("diff line has neither left nor right");
         }
+        if (line.isLeftMoved()) {
+            leftBackgroundColor = mMovedBackgroundColor;
+        }
+        if (line.isRightMoved()) {
+            rightBackgroundColor = mMovedBackgroundColor;
+        }
         mLeftContents.setBackgroundColor(leftBackgroundColor);
         mRightContents.setBackgroundColor(rightBackgroundColor);
 
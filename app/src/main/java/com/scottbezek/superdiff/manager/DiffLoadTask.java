@@ -1,6 +1,12 @@
 package com.scottbezek.superdiff.manager;
 
+import com.scottbezek.difflib.DisplayWidth;
+import com.scottbezek.difflib.compute.LineDiff;
+import com.scottbezek.difflib.compute.MoveDetector;
+import com.scottbezek.difflib.compute.MoveDetector.Moves;
+import com.scottbezek.difflib.compute.RenameDetector;
 import com.scottbezek.difflib.unified.Chunk;
+import com.scottbezek.difflib.unified.LineSource;
 import com.scottbezek.difflib.unified.Parser;
 import com.scottbezek.difflib.unified.Parser.DiffParseException;
 import com.scottbezek.difflib.unified.SideBySideLine;
@@ -13,24 +19,55 @@ import com.scottbezek.superdiff.manager.DiffManager.DiffStatus;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 /**
  * Created by scott on 5/2/14.
  */
 public class DiffLoadTask implements Runnable {
 
+    private static final Charset FILE_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Total time spent on intraline diffs for a single load. Once it's used up, the remaining
+     * lines are only highlighted coarsely, so that the load time has an upper bound no matter
+     * how many pathological lines the diff contains.
+     */
+    private static final long INTRALINE_TIME_BUDGET_NANOS = 2000L * 1000 * 1000;
+
     private final StateStream<DiffStatus> mOutput;
     private final InputStream mInput;
+    private final InputStream mRightInput;
+    private final String mFilename;
     private final IntralineDiffProcessor mIntralineDiffProcessor;
+    private final MoveDetector mMoveDetector = new MoveDetector();
 
+    /**
+     * Loads a unified diff.
+     */
     public DiffLoadTask(InputStream input, StateStream output, IntralineDiffProcessor
             intralineDiffProcessor) {
         mInput = input;
+        mRightInput = null;
+        mFilename = null;
+        mOutput = output;
+        mIntralineDiffProcessor = intralineDiffProcessor;
+    }
+
+    /**
+     * Computes the diff between two versions of a file (see {@link LineDiff}).
+     */
+    public DiffLoadTask(InputStream leftInput, InputStream rightInput, String filename,
+            StateStream output, IntralineDiffProcessor intralineDiffProcessor) {
+        mInput = leftInput;
+        mRightInput = rightInput;
+        mFilename = filename;
         mOutput = output;
         mIntralineDiffProcessor = intralineDiffProcessor;
     }
@@ -38,28 +75,53 @@ public class DiffLoadTask implements Runnable {
     @Override
     public void run() {
         try {
-            final Map<String, List<CollapsedOrLine>> diffByFilename =
-                    getCollapsedDiffs(new Scanner(mInput));
-            mOutput.update(new DiffLoadResult(diffByFilename));
+            final List<SingleFileDiff> fileDiffs;
+            if (mRightInput == null) {
+                fileDiffs = new RenameDetector().detect(
+                        new Parser(System.out).parse(new LineSource(mInput)));
+            } else {
+                fileDiffs = Collections.singletonList(computeFileDiff());
+            }
+            mOutput.update(collapseDiffs(fileDiffs));
         } catch (DiffParseException e) {
             mOutput.update(new DiffFailed(e));
+        } catch (IOException e) {
+            mOutput.update(new DiffFailed(e));
         } finally {
             try {
                 mInput.close();
             } catch (IOException e) {}
+            if (mRightInput != null) {
+                try {
+                    mRightInput.close();
+                } catch (IOException e) {}
+            }
         }
     }
 
+    private SingleFileDiff computeFileDiff() throws IOException {
+        final List<String> leftLines =
+                LineDiff.readLines(new InputStreamReader(mInput, FILE_CHARSET));
+        final List<String> rightLines =
+                LineDiff.readLines(new InputStreamReader(mRightInput, FILE_CHARSET));
+        return new LineDiff(leftLines, rightLines).compute(mFilename, mFilename);
+    }
 
-    private Map<String, List<CollapsedOrLine>> getCollapsedDiffs(
-            Scanner unifiedDiffFileContents) throws DiffParseException {
+    /**
+     * Collapses the unchanged parts of each file diff, computes intraline diffs, and measures
+     * the widest lines, all in one pass over the lines.
+     */
+    private DiffLoadResult collapseDiffs(List<SingleFileDiff> fileDiffs) {
         final Map<String, List<CollapsedOrLine>> collapsedDiffByFilename =
                 new HashMap<String, List<CollapsedOrLine>>();
+        final long intralineDeadline = System.nanoTime() + INTRALINE_TIME_BUDGET_NANOS;
+        boolean coarse = false;
+        int largestLineNumber = 0;
+        int widestLineColumns = 0;
 
-        final List<SingleFileDiff> fileDiffs = new Parser(System.out)
-                .parse(unifiedDiffFileContents);
         for (SingleFileDiff d : fileDiffs) {
             List<CollapsedOrLine> items = new ArrayList<CollapsedOrLine>();
+            final Moves moves = mMoveDetector.detect(d);
 
             int curLeftLine = 1;
             for (Chunk chunk : d.getChunks()) {
@@ -68,7 +130,23 @@ public class DiffLoadTask implements Runnable {
                     items.add(CollapsedOrLine.of(new CollapsedUnknown(leftStartLine - curLeftLine)));
                 }
                 for (SideBySideLine line : chunk.getLines()) {
-                    SideBySideLine processed = mIntralineDiffProcessor.computeIntralineDiff(line);
+                    if (line.getLeftLine() != null) {
+                        largestLineNumber = Math.max(largestLineNumber,
+                                line.getLeftLineNumber());
+                        widestLineColumns = Math.max(widestLineColumns,
+                                DisplayWidth.getColumns(line.getLeftLine()));
+                    }
+                    if (line.getRightLine() != null) {
+                        largestLineNumber = Math.max(largestLineNumber,
+                                line.getRightLineNumber());
+                        widestLineColumns = Math.max(widestLineColumns,
+                                DisplayWidth.getColumns(line.getRightLine()));
+                    }
+                    // Every diff is bounded by the processor's operation budget, so checking
+                    // the time between lines is enough
+                    coarse = coarse || System.nanoTime() - intralineDeadline > 0;
+                    SideBySideLine processed = mIntralineDiffProcessor.computeIntralineDiff(
+                            moves.annotate(line), coarse);
                     items.add(CollapsedOrLine.of(processed));
                     if (processed.getLeftLine() != null) {
                         curLeftLine++;
@@ -78,6 +156,7 @@ public class DiffLoadTask implements Runnable {
             collapsedDiffByFilename.put(d.getDisplayFileName(), items);
         }
 
-        return collapsedDiffByFilename;
+        return new DiffLoadResult(collapsedDiffByFilename,
+                String.valueOf(largestLineNumber).length(), widestLineColumns);
     }
 }
@@ -100,19 +100,42 @@ public class DiffManager {
 
     /**
      * Result of successful diff loading. Contains the result diff data (see {@link
-     * #getDiffByFilename()}).
+     * #getDiffByFilename()}), and how wide its widest lines are, so that the UI doesn't need to
+     * scan every line to lay them out.
      */
     public static class DiffLoadResult implements DiffStatus {
 
         private final Map<String, List<CollapsedOrLine>> mDiffByFilename;
 
-        public DiffLoadResult(Map<String, List<CollapsedOrLine>> diffByFilename) {
+        private final int mWidestLineNumberColumns;
+
+        private final int mWidestLineColumns;
+
+        public DiffLoadResult(Map<String, List<CollapsedOrLine>> diffByFilename,
+                int widestLineNumberColumns, int widestLineColumns) {
             mDiffByFilename = diffByFilename;
+            mWidestLineNumberColumns = widestLineNumberColumns;
+            mWidestLineColumns = widestLineColumns;
         }
 
         public Map<String, List<CollapsedOrLine>> getDiffByFilename() {
             return mDiffByFilename;
         }
+
+        /**
+         * Returns the number of digits in the largest line number of any file.
+         */
+        public int getWidestLineNumberColumns() {
+            return mWidestLineNumberColumns;
+        }
+
+        /**
+         * Returns the display width of the widest line of any file, in columns (see {@link
+         * com.scottbezek.difflib.DisplayWidth}).
+         */
+        public int getWidestLineColumns() {
+            return mWidestLineColumns;
+        }
     }
 
     /**
@@ -133,6 +156,24 @@ public class DiffManager {
         return state;
     }
 
+    /**
+     * Load two sample files from the apk assets, and show the diff between them.
+     *
+     * @param leftSampleName  Name of the sample to show on the left. Must not contain '..'
+     * @param rightSampleName Name of the sample to show on the right, whose name is shown for
+     *                        the diff. Must not contain '..'
+     * @return A {@link com.scottbezek.superdiff.manager.StateStream} which will be updated as the
+     * diff is computed.
+     */
+    public StateStream<DiffStatus> loadSamplePair(AssetManager assets, String leftSampleName,
+            String rightSampleName, IntralineDiffProcessor intralineDiffProcessor) {
+        StateStream<DiffStatus> state = new StateStream<DiffStatus>(new DiffLoading());
+
+        mExecutor.execute(new SamplePairLoader(assets, leftSampleName, rightSampleName, state,
+                intralineDiffProcessor));
+        return state;
+    }
+
     /**
      * Load a unified diff file from a content provider.
      *
@@ -190,6 +231,59 @@ public class DiffManager {
     }
 
 
+    /**
+     * Computes the diff between two sample files.
+     */
+    public static class SamplePairLoader implements Runnable {
+
+        private final AssetManager mAssets;
+
+        private final String mLeftSampleName;
+
+        private final String mRightSampleName;
+
+        private final StateStream<DiffStatus> mOutput;
+
+        private final IntralineDiffProcessor mIntralineDiffProcessor;
+
+        public SamplePairLoader(AssetManager assets, String leftSampleName,
+                String rightSampleName, StateStream<DiffStatus> output,
+                IntralineDiffProcessor intralineDiffProcessor) {
+            if (leftSampleName.contains("..") || rightSampleName.contains("..")) {
+                throw new IllegalStateException("Path cannot contain '..'");
+            }
+            mAssets = assets;
+            mLeftSampleName = leftSampleName;
+            mRightSampleName = rightSampleName;
+            mOutput = output;
+            mIntralineDiffProcessor = intralineDiffProcessor;
+        }
+
+        @Override
+        public void run() {
+            InputStream leftInput;
+            InputStream rightInput;
+            try {
+                leftInput = mAssets.open("samples/" + mLeftSampleName);
+            } catch (IOException e) {
+                mOutput.update(new DiffFailed(e));
+                return;
+            }
+            try {
+                rightInput = mAssets.open("samples/" + mRightSampleName);
+            } catch (IOException e) {
+                try {
+                    leftInput.close();
+                } catch (IOException closeException) {}
+                mOutput.update(new DiffFailed(e));
+                return;
+            }
+            DiffLoadTask loadTask = new DiffLoadTask(leftInput, rightInput, mRightSampleName,
+                    mOutput, mIntralineDiffProcessor);
+            loadTask.run();
+        }
+    }
+
     /**
      * Loads a diff from a {@link android.content.ContentResolver}.
      */
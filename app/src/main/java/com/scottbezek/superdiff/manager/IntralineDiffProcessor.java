@@ -1,17 +1,22 @@
 package com.scottbezek.superdiff.manager;
 
+import com.scottbezek.difflib.CompareUtil;
 import com.scottbezek.difflib.UnicodeUtil;
-import com.scottbezek.difflib.compute.DiffComputeUtil;
+import com.scottbezek.difflib.compute.ComparisonMode;
 import com.scottbezek.difflib.compute.Edit;
+import com.scottbezek.difflib.compute.EditScript;
+import com.scottbezek.difflib.compute.EditScriptCleanup;
+import com.scottbezek.difflib.compute.IDiffAlgorithm;
 import com.scottbezek.difflib.compute.LevenshteinDiff;
+import com.scottbezek.difflib.compute.TwoLevelDiff;
 import com.scottbezek.difflib.unified.SideBySideLine;
-import com.scottbezek.util.Assert;
 
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.style.BackgroundColorSpan;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
@@ -21,73 +26,369 @@ import java.util.Locale;
  */
 public class IntralineDiffProcessor {
 
+    /**
+     * Changed words that need more than this fraction of a complete rewrite are highlighted in
+     * their entirety, so there's no point computing their exact diff.
+     */
+    private static final float MAX_REWRITE_FRACTION = 0.5f;
+
+    /**
+     * Most table cells computed by each diff of the default algorithms, so that a single huge
+     * line can't take more than a few milliseconds. Bigger diffs are only highlighted coarsely
+     * (see {@link LevenshteinDiff.Algorithm#setOperationBudget(long)}).
+     */
+    public static final long DEFAULT_OPERATION_BUDGET = 1024 * 1024;
+
+    /**
+     * Buffers for the boundaries of the diffed elements (and words, when diffing words first)
+     * of each side of a line, kept per thread so that lines of plain text are diffed without
+     * any garbage.
+     */
+    private static class BoundaryBuffers {
+
+        private int[] mLeft = new int[0];
+        private int[] mRight = new int[0];
+        private int[] mLeftWords = new int[0];
+        private int[] mRightWords = new int[0];
+
+        int[] getLeft(int length) {
+            mLeft = grow(mLeft, length);
+            return mLeft;
+        }
+
+        int[] getRight(int length) {
+            mRight = grow(mRight, length);
+            return mRight;
+        }
+
+        int[] getLeftWords(int length) {
+            mLeftWords = grow(mLeftWords, length);
+            return mLeftWords;
+        }
+
+        int[] getRightWords(int length) {
+            mRightWords = grow(mRightWords, length);
+            return mRightWords;
+        }
+
+        private static int[] grow(int[] buffer, int length) {
+            return (buffer.length < length)
+                    ? new int[Math.max(length, 2 * buffer.length)] : buffer;
+        }
+    }
+
+    private static final ThreadLocal<BoundaryBuffers> sBoundaryBuffers =
+            new ThreadLocal<BoundaryBuffers>() {
+                @Override
+                protected BoundaryBuffers initialValue() {
+                    return new BoundaryBuffers();
+                }
+            };
+
     private final Locale mLocale;
     private final int mRemovedCharactersBackgroundColor;
     private final int mAddedCharactersBackgroundColor;
+    private final IDiffAlgorithm mDiffAlgorithm;
+    private final TwoLevelDiff mWordDiff;
+    private final EditScriptCleanup mCleanup = new EditScriptCleanup();
+    private final ComparisonMode mComparisonMode;
 
+    /**
+     * Diffs words first, and then the natural characters of the changed words (see {@link
+     * TwoLevelDiff}).
+     */
     public IntralineDiffProcessor(Locale locale, int removedCharactersBackgroundColor,
             int addedCharactersBackgroundColor) {
+        this(locale, removedCharactersBackgroundColor, addedCharactersBackgroundColor,
+                ComparisonMode.EXACT);
+    }
+
+    /**
+     * Diffs words first, and then the natural characters of the changed words, comparing them
+     * under the given mode.
+     */
+    public IntralineDiffProcessor(Locale locale, int removedCharactersBackgroundColor,
+            int addedCharactersBackgroundColor, ComparisonMode comparisonMode) {
+        this(locale, removedCharactersBackgroundColor, addedCharactersBackgroundColor,
+                new LevenshteinDiff.Algorithm()
+                        .setReplaceCost(2f)
+                        .setMaxCostFraction(MAX_REWRITE_FRACTION)
+                        .setOperationBudget(DEFAULT_OPERATION_BUDGET)
+                        .setComparisonMode(comparisonMode),
+                true, comparisonMode);
+    }
+
+    /**
+     * Diffs the natural characters of whole lines.
+     *
+     * @param diffAlgorithm Algorithm used to compute the edit string between the natural
+     *                      characters of the left and right lines (or rather of the part
+     *                      between their common prefix and suffix).
+     */
+    public IntralineDiffProcessor(Locale locale, int removedCharactersBackgroundColor,
+            int addedCharactersBackgroundColor, IDiffAlgorithm diffAlgorithm) {
+        this(locale, removedCharactersBackgroundColor, addedCharactersBackgroundColor,
+                diffAlgorithm, false);
+    }
+
+    /**
+     * @param diffAlgorithm Algorithm used to compute the edit string between natural
+     *                      characters.
+     * @param wordsFirst    Whether to diff the words of the lines first, and then use
+     *                      diffAlgorithm only on the characters of the changed words.
+     */
+    public IntralineDiffProcessor(Locale locale, int removedCharactersBackgroundColor,
+            int addedCharactersBackgroundColor, IDiffAlgorithm diffAlgorithm,
+            boolean wordsFirst) {
+        this(locale, removedCharactersBackgroundColor, addedCharactersBackgroundColor,
+                diffAlgorithm, wordsFirst, ComparisonMode.EXACT);
+    }
+
+    /**
+     * @param diffAlgorithm  Algorithm used to compute the edit string between natural
+     *                       characters. It should compare them under comparisonMode.
+     * @param wordsFirst     Whether to diff the words of the lines first, and then use
+     *                       diffAlgorithm only on the characters of the changed words.
+     * @param comparisonMode How words are compared. Changes between text that is equal under
+     *                       the mode (e.g. added whitespace, when ignoring whitespace) aren't
+     *                       highlighted.
+     */
+    public IntralineDiffProcessor(Locale locale, int removedCharactersBackgroundColor,
+            int addedCharactersBackgroundColor, IDiffAlgorithm diffAlgorithm,
+            boolean wordsFirst, ComparisonMode comparisonMode) {
         mLocale = locale;
         mRemovedCharactersBackgroundColor = removedCharactersBackgroundColor;
         mAddedCharactersBackgroundColor = addedCharactersBackgroundColor;
+        mDiffAlgorithm = diffAlgorithm;
+        mComparisonMode = comparisonMode;
+        mWordDiff = wordsFirst
+                ? new TwoLevelDiff(new LevenshteinDiff.Algorithm()
+                        .setReplaceCost(2f)
+                        .setOperationBudget(DEFAULT_OPERATION_BUDGET)
+                        .setComparisonMode(comparisonMode),
+                        diffAlgorithm)
+                : null;
     }
 
     public SideBySideLine computeIntralineDiff(SideBySideLine line) {
+        return computeIntralineDiff(line, false);
+    }
+
+    /**
+     * @param coarse If true, don't diff the lines at all; just highlight everything between
+     *               their common prefix and suffix, in time linear in the length of the lines.
+     */
+    public SideBySideLine computeIntralineDiff(SideBySideLine line, boolean coarse) {
         CharSequence leftLine = line.getLeftLine();
         CharSequence rightLine = line.getRightLine();
-        if (leftLine != null && rightLine != null && !leftLine.equals(rightLine)) {
-            final Spannable leftSpan = new SpannableString(leftLine);
-            final Spannable rightSpan = new SpannableString(rightLine);
-
-            final List<String> leftElements = UnicodeUtil.splitNaturalCharacters(leftLine.toString(), mLocale);
-            final List<String> rightElements = UnicodeUtil.splitNaturalCharacters(rightLine.toString(), mLocale);
-            final List<Edit> editString = new LevenshteinDiff<String>(leftElements, rightElements)
-                    .setReplaceCost(2f)
-                    .compute()
-                    .getEditString();
-            DiffComputeUtil.removeSmallUnchangedRegions(editString);
-
-            final Iterator<String> leftIterator = leftElements.iterator();
-            final Iterator<String> rightIterator = rightElements.iterator();
-            int leftCharIndex = 0;
-            int rightCharIndex = 0;
-            for (Edit edit : editString) {
-                if (edit == Edit.DELETE) {
-                    final String leftElement = leftIterator.next();
-                    leftSpan.setSpan(new BackgroundColorSpan(mRemovedCharactersBackgroundColor),
-                            leftCharIndex, leftCharIndex + leftElement.length(),
-                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                    leftCharIndex += leftElement.length();
-                } else if (edit == Edit.INSERT) {
-                    final String rightElement = rightIterator.next();
-                    rightSpan.setSpan(new BackgroundColorSpan(mAddedCharactersBackgroundColor),
-                            rightCharIndex, rightCharIndex + rightElement.length(),
-                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                    rightCharIndex += rightElement.length();
-                } else if (edit == Edit.REPLACE) {
-                    final String leftElement = leftIterator.next();
-                    leftSpan.setSpan(new BackgroundColorSpan(mRemovedCharactersBackgroundColor),
-                            leftCharIndex, leftCharIndex + leftElement.length(),
-                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                    leftCharIndex += leftElement.length();
-
-                    final String rightElement = rightIterator.next();
-                    rightSpan.setSpan(new BackgroundColorSpan(mAddedCharactersBackgroundColor),
-                            rightCharIndex, rightCharIndex + rightElement.length(),
-                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                    rightCharIndex += rightElement.length();
-                } else if (edit == Edit.UNCHANGED) {
-                    final String leftElement = leftIterator.next();
-                    leftCharIndex += leftElement.length();
-                    final String rightElement = rightIterator.next();
-                    rightCharIndex += rightElement.length();
-                } else {
-                    throw Assert.fail("Unknown edit type: " + edit);
-                }
+        if (leftLine == null || rightLine == null) {
+            return line;
+        }
+        if (line.isLeftMoved() || line.isRightMoved()) {
+            // A moved line is unchanged from its other copy, not from the line beside it
+            return line;
+        }
+        final String left = leftLine.toString();
+        final String right = rightLine.toString();
+        final int mismatch = CompareUtil.mismatch(left, right);
+        if (mismatch == -1 || (!mComparisonMode.isExact()
+                && mComparisonMode.isEqual(left, right))) {
+            return line;
+        }
+
+        // Only the part between the common prefix and suffix needs to be split and diffed. Both
+        // ends are moved to boundaries of the units being diffed, so that the result is the
+        // same as diffing the whole lines. The boundaries of the diffed elements end up in
+        // leftBoundaries[leftFrom..leftTo] and rightBoundaries[rightFrom..rightTo].
+        final BoundaryBuffers buffers = sBoundaryBuffers.get();
+        final int[] leftBoundaries;
+        final int[] rightBoundaries;
+        final int leftFrom;
+        final int leftTo;
+        final int rightFrom;
+        final int rightTo;
+        final EditScript diffScript;
+        if (mWordDiff != null) {
+            final int[] leftWords = buffers.getLeftWords(left.length() + 1);
+            final int[] rightWords = buffers.getRightWords(right.length() + 1);
+            final int leftWordCount = UnicodeUtil.getWordBoundaries(left, mLocale, leftWords);
+            final int rightWordCount = UnicodeUtil.getWordBoundaries(right, mLocale, rightWords);
+            final int prefixLength = getPrecedingCommonBoundary(leftWords, leftWordCount,
+                    rightWords, rightWordCount, mismatch);
+            final int suffixLength = getCommonSuffixBoundary(leftWords, leftWordCount,
+                    rightWords, rightWordCount, CompareUtil.commonSuffixLength(left, right,
+                            Math.min(left.length(), right.length()) - mismatch));
+            if (coarse) {
+                return highlightCoarsely(line, leftLine, prefixLength,
+                        left.length() - suffixLength, rightLine, prefixLength,
+                        right.length() - suffixLength);
             }
-            return new SideBySideLine(line.getLeftLineNumber(), leftSpan, line.getRightLineNumber(), rightSpan);
+            final int leftWordFrom = Arrays.binarySearch(leftWords, 0, leftWordCount,
+                    prefixLength);
+            final int leftWordTo = Arrays.binarySearch(leftWords, 0, leftWordCount,
+                    left.length() - suffixLength);
+            final int rightWordFrom = Arrays.binarySearch(rightWords, 0, rightWordCount,
+                    prefixLength);
+            final int rightWordTo = Arrays.binarySearch(rightWords, 0, rightWordCount,
+                    right.length() - suffixLength);
+            // Only the characters of the words between the common ends are found
+            leftBoundaries = buffers.getLeft(left.length() + 1);
+            rightBoundaries = buffers.getRight(right.length() + 1);
+            leftFrom = 0;
+            leftTo = UnicodeUtil.getCharacterBoundaries(left, leftWords, leftWordFrom,
+                    leftWordTo, mLocale, leftBoundaries) - 1;
+            rightFrom = 0;
+            rightTo = UnicodeUtil.getCharacterBoundaries(right, rightWords, rightWordFrom,
+                    rightWordTo, mLocale, rightBoundaries) - 1;
+            // Diffs the words and characters in place, without a String per word or character
+            diffScript = mWordDiff.computeEditScript(
+                    left, leftWords, leftWordFrom, leftWordTo, leftBoundaries, leftFrom,
+                    right, rightWords, rightWordFrom, rightWordTo, rightBoundaries, rightFrom);
         } else {
-            return line;
+            leftBoundaries = buffers.getLeft(left.length() + 1);
+            rightBoundaries = buffers.getRight(right.length() + 1);
+            final int leftCount = UnicodeUtil.getCharacterBoundaries(left, 0, left.length(),
+                    mLocale, leftBoundaries);
+            final int rightCount = UnicodeUtil.getCharacterBoundaries(right, 0, right.length(),
+                    mLocale, rightBoundaries);
+            final int prefixLength = getPrecedingCommonBoundary(leftBoundaries, leftCount,
+                    rightBoundaries, rightCount, mismatch);
+            final int suffixLength = getCommonSuffixBoundary(leftBoundaries, leftCount,
+                    rightBoundaries, rightCount, CompareUtil.commonSuffixLength(left, right,
+                            Math.min(left.length(), right.length()) - mismatch));
+            if (coarse) {
+                return highlightCoarsely(line, leftLine, prefixLength,
+                        left.length() - suffixLength, rightLine, prefixLength,
+                        right.length() - suffixLength);
+            }
+            leftFrom = Arrays.binarySearch(leftBoundaries, 0, leftCount, prefixLength);
+            leftTo = Arrays.binarySearch(leftBoundaries, 0, leftCount,
+                    left.length() - suffixLength);
+            rightFrom = Arrays.binarySearch(rightBoundaries, 0, rightCount, prefixLength);
+            rightTo = Arrays.binarySearch(rightBoundaries, 0, rightCount,
+                    right.length() - suffixLength);
+            if (mDiffAlgorithm instanceof LevenshteinDiff.Algorithm) {
+                // Diffs the characters in place, without a String per character
+                diffScript = ((LevenshteinDiff.Algorithm) mDiffAlgorithm).computeEditScript(
+                        left, leftBoundaries, leftFrom, leftTo,
+                        right, rightBoundaries, rightFrom, rightTo);
+            } else {
+                diffScript = mDiffAlgorithm.computeEditScript(
+                        getSegments(left, leftBoundaries, leftFrom, leftTo),
+                        getSegments(right, rightBoundaries, rightFrom, rightTo));
+            }
+        }
+        // The common ends would only ever extend the first and last runs, which are never
+        // absorbed, so this is the same as cleaning up the whole lines
+        final EditScript editScript = mCleanup.apply(diffScript);
+
+        // Each run of edits gets a single span covering all of its characters
+        final Spannable leftSpan = new SpannableString(leftLine);
+        final Spannable rightSpan = new SpannableString(rightLine);
+        int leftIndex = leftFrom;
+        int rightIndex = rightFrom;
+        for (int run = 0; run < editScript.getRunCount(); run++) {
+            final Edit edit = editScript.getRunEdit(run);
+            final int leftStart = leftBoundaries[leftIndex];
+            final int rightStart = rightBoundaries[rightIndex];
+            leftIndex += editScript.getRunFirstLength(run);
+            rightIndex += editScript.getRunSecondLength(run);
+            final int leftEnd = leftBoundaries[leftIndex];
+            final int rightEnd = rightBoundaries[rightIndex];
+            if (edit != Edit.UNCHANGED && !mComparisonMode.isExact()
+                    && mComparisonMode.isIgnoredChange(left, leftStart, leftEnd,
+                            right, rightStart, rightEnd)) {
+                // Only differs in ways the mode ignores
+                continue;
+            }
+            if (edit == Edit.DELETE || edit == Edit.REPLACE) {
+                highlight(leftSpan, leftStart, leftEnd, mRemovedCharactersBackgroundColor);
+            }
+            if (edit == Edit.INSERT || edit == Edit.REPLACE) {
+                highlight(rightSpan, rightStart, rightEnd, mAddedCharactersBackgroundColor);
+            }
+        }
+        return new SideBySideLine(line.getLeftLineNumber(), leftSpan, line.getRightLineNumber(), rightSpan);
+    }
+
+    /**
+     * Highlights everything from the start to the end of each line.
+     */
+    private SideBySideLine highlightCoarsely(SideBySideLine line, CharSequence leftLine,
+            int leftStart, int leftEnd, CharSequence rightLine, int rightStart, int rightEnd) {
+        final Spannable leftSpan = new SpannableString(leftLine);
+        final Spannable rightSpan = new SpannableString(rightLine);
+        highlight(leftSpan, leftStart, leftEnd, mRemovedCharactersBackgroundColor);
+        highlight(rightSpan, rightStart, rightEnd, mAddedCharactersBackgroundColor);
+        return new SideBySideLine(line.getLeftLineNumber(), leftSpan,
+                line.getRightLineNumber(), rightSpan);
+    }
+
+    private static void highlight(Spannable text, int start, int end, int color) {
+        if (start < end) {
+            text.setSpan(new BackgroundColorSpan(color), start, end,
+                    Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
+
+    /**
+     * Returns the largest offset, no greater than the given one, that is one of the sorted
+     * boundaries of both texts. The texts must be identical up to the given offset.
+     */
+    private static int getPrecedingCommonBoundary(int[] left, int leftCount, int[] right,
+            int rightCount, int offset) {
+        while (true) {
+            offset = left[floorIndex(left, leftCount, offset)];
+            final int rightOffset = right[floorIndex(right, rightCount, offset)];
+            if (rightOffset == offset) {
+                return offset;
+            }
+            offset = rightOffset;
+        }
+    }
+
+    /**
+     * Returns the length of the longest suffix, no longer than the given one, that starts at one
+     * of the sorted boundaries of both texts. The texts must end with the same suffixLength
+     * chars.
+     */
+    private static int getCommonSuffixBoundary(int[] left, int leftCount, int[] right,
+            int rightCount, int suffixLength) {
+        final int leftLength = left[leftCount - 1];
+        final int rightLength = right[rightCount - 1];
+        while (true) {
+            // The boundary following an offset is the one after the floor, unless it's exact
+            int index = floorIndex(left, leftCount, leftLength - suffixLength);
+            if (left[index] != leftLength - suffixLength) {
+                index++;
+            }
+            suffixLength = leftLength - left[index];
+            index = floorIndex(right, rightCount, rightLength - suffixLength);
+            if (right[index] == rightLength - suffixLength) {
+                return suffixLength;
+            }
+            suffixLength = rightLength - right[index + 1];
+        }
+    }
+
+    /**
+     * Returns the index of the largest of the sorted boundaries that is no greater than the
+     * offset, which must be at least boundaries[0].
+     */
+    private static int floorIndex(int[] boundaries, int count, int offset) {
+        final int index = Arrays.binarySearch(boundaries, 0, count, offset);
+        return (index >= 0) ? index : -index - 2;
+    }
+
+    /**
+     * Returns the segments of the text between consecutive boundaries, from boundaries[from]
+     * to boundaries[to].
+     */
+    private static List<String> getSegments(String text, int[] boundaries, int from, int to) {
+        final List<String> segments = new ArrayList<String>(to - from);
+        for (int i = from; i < to; i++) {
+            segments.add(text.substring(boundaries[i], boundaries[i + 1]));
         }
+        return segments;
     }
 }
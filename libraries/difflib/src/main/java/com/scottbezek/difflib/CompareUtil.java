@@ -0,0 +1,210 @@
+package com.scottbezek.difflib;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Utilities for finding where two sequences of chars, bytes or ints first differ, scanning
+ * arrays directly rather than through iterators or boxed elements.
+ * <p>
+ * Ranges are given as an offset and length into each array; "prefix" functions scan forwards
+ * from the offsets, and "suffix" functions scan backwards from the ends of the ranges.
+ */
+public class CompareUtil {
+
+    /**
+     * Byte ranges shorter than this are compared a byte at a time, since setting up the word
+     * comparison isn't worth it.
+     */
+    private static final int MIN_WORD_COMPARE_LENGTH = 32;
+
+    private CompareUtil() {}
+
+    /**
+     * Returns the index of the first char at which the two sequences differ, or -1 if they are
+     * equal. If one sequence is a proper prefix of the other, returns the length of the shorter
+     * one. Either sequence may be null, which only equals null.
+     */
+    public static int mismatch(CharSequence first, CharSequence second) {
+        if (first == second) {
+            return -1;
+        }
+        if (first == null || second == null) {
+            return 0;
+        }
+        // String.equals is an intrinsic on most VMs, so check the (common) equal case with it
+        if (first instanceof String && second instanceof String && first.equals(second)) {
+            return -1;
+        }
+        final int prefixLength = commonPrefixLength(first, second);
+        return (prefixLength == first.length() && prefixLength == second.length())
+                ? -1 : prefixLength;
+    }
+
+    /**
+     * Returns the same hash of the chars of the sequence as {@link String#hashCode()}, so that
+     * equal sequences of any type hash equally.
+     */
+    public static int hashCode(CharSequence text) {
+        if (text instanceof String) {
+            return text.hashCode();
+        }
+        int hash = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the length of the longest common prefix of the two sequences.
+     */
+    public static int commonPrefixLength(CharSequence first, CharSequence second) {
+        final int length = Math.min(first.length(), second.length());
+        int i = 0;
+        while (i < length && first.charAt(i) == second.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the length of the longest common suffix of the two sequences, up to maxLength.
+     * Passing the lengths left over after removing the common prefix keeps the prefix and
+     * suffix from overlapping.
+     */
+    public static int commonSuffixLength(CharSequence first, CharSequence second,
+            int maxLength) {
+        final int length = Math.min(maxLength, Math.min(first.length(), second.length()));
+        final int firstEnd = first.length() - 1;
+        final int secondEnd = second.length() - 1;
+        int i = 0;
+        while (i < length && first.charAt(firstEnd - i) == second.charAt(secondEnd - i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of leading chars of the given ranges that are equal.
+     */
+    public static int commonPrefixLength(char[] first, int firstOffset,
+            char[] second, int secondOffset, int length) {
+        checkRange(first.length, firstOffset, length);
+        checkRange(second.length, secondOffset, length);
+        int i = 0;
+        while (i < length && first[firstOffset + i] == second[secondOffset + i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of trailing chars of the given ranges that are equal.
+     */
+    public static int commonSuffixLength(char[] first, int firstOffset,
+            char[] second, int secondOffset, int length) {
+        checkRange(first.length, firstOffset, length);
+        checkRange(second.length, secondOffset, length);
+        final int firstLast = firstOffset + length - 1;
+        final int secondLast = secondOffset + length - 1;
+        int i = 0;
+        while (i < length && first[firstLast - i] == second[secondLast - i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of leading ints of the given ranges that are equal.
+     */
+    public static int commonPrefixLength(int[] first, int firstOffset,
+            int[] second, int secondOffset, int length) {
+        checkRange(first.length, firstOffset, length);
+        checkRange(second.length, secondOffset, length);
+        int i = 0;
+        while (i < length && first[firstOffset + i] == second[secondOffset + i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of trailing ints of the given ranges that are equal.
+     */
+    public static int commonSuffixLength(int[] first, int firstOffset,
+            int[] second, int secondOffset, int length) {
+        checkRange(first.length, firstOffset, length);
+        checkRange(second.length, secondOffset, length);
+        final int firstLast = firstOffset + length - 1;
+        final int secondLast = secondOffset + length - 1;
+        int i = 0;
+        while (i < length && first[firstLast - i] == second[secondLast - i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of leading bytes of the given ranges that are equal. Long ranges are
+     * compared 8 bytes at a time.
+     */
+    public static int commonPrefixLength(byte[] first, int firstOffset,
+            byte[] second, int secondOffset, int length) {
+        checkRange(first.length, firstOffset, length);
+        checkRange(second.length, secondOffset, length);
+        int i = 0;
+        if (length >= MIN_WORD_COMPARE_LENGTH) {
+            // Big endian, so the first differing byte holds the highest differing bit
+            final ByteBuffer firstBuffer = ByteBuffer.wrap(first);
+            final ByteBuffer secondBuffer = ByteBuffer.wrap(second);
+            for (; i <= length - 8; i += 8) {
+                final long difference = firstBuffer.getLong(firstOffset + i)
+                        ^ secondBuffer.getLong(secondOffset + i);
+                if (difference != 0) {
+                    return i + (Long.numberOfLeadingZeros(difference) >>> 3);
+                }
+            }
+        }
+        while (i < length && first[firstOffset + i] == second[secondOffset + i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of trailing bytes of the given ranges that are equal. Long ranges are
+     * compared 8 bytes at a time.
+     */
+    public static int commonSuffixLength(byte[] first, int firstOffset,
+            byte[] second, int secondOffset, int length) {
+        checkRange(first.length, firstOffset, length);
+        checkRange(second.length, secondOffset, length);
+        final int firstEnd = firstOffset + length;
+        final int secondEnd = secondOffset + length;
+        int i = 0;
+        if (length >= MIN_WORD_COMPARE_LENGTH) {
+            // Big endian, so the last differing byte holds the lowest differing bit
+            final ByteBuffer firstBuffer = ByteBuffer.wrap(first);
+            final ByteBuffer secondBuffer = ByteBuffer.wrap(second);
+            for (; i <= length - 8; i += 8) {
+                final long difference = firstBuffer.getLong(firstEnd - i - 8)
+                        ^ secondBuffer.getLong(secondEnd - i - 8);
+                if (difference != 0) {
+                    return i + (Long.numberOfTrailingZeros(difference) >>> 3);
+                }
+            }
+        }
+        while (i < length && first[firstEnd - i - 1] == second[secondEnd - i - 1]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException("Invalid range: offset " + offset
+                    + ", length " + length + ", array length " + arrayLength);
+        }
+    }
+}
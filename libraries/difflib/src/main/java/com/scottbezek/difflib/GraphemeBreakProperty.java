@@ -0,0 +1,199 @@
+package com.scottbezek.difflib;
+
+import java.util.Arrays;
+
+/**
+ * The Grapheme_Cluster_Break property of UAX #29 (with Extended_Pictographic folded in as one
+ * more value), looked up with a two stage table so that each lookup is a couple of array reads.
+ * <p/>
+ * The data is from Unicode 14.0 (GraphemeBreakProperty.txt and emoji-data.txt), stored as runs
+ * of code points with the same value: each char of {@link #RUNS} holds a value in its low 4
+ * bits and the length of the run, minus one, in the rest. Hangul syllables alternate between LV
+ * and LVT, so they are computed instead (see {@link #get(int)}).
+ */
+final class GraphemeBreakProperty {
+
+    static final int OTHER = 0;
+    static final int CR = 1;
+    static final int LF = 2;
+    static final int CONTROL = 3;
+    static final int EXTEND = 4;
+    static final int ZWJ = 5;
+    static final int REGIONAL_INDICATOR = 6;
+    static final int PREPEND = 7;
+    static final int SPACING_MARK = 8;
+    static final int L = 9;
+    static final int V = 10;
+    static final int T = 11;
+    static final int LV = 12;
+    static final int LVT = 13;
+    static final int EXTENDED_PICTOGRAPHIC = 14;
+
+    private static final int VALUE_COUNT = 15;
+
+    private static final int HANGUL_SYLLABLE_FIRST = 0xAC00;
+
+    private static final int HANGUL_SYLLABLE_LAST = 0xD7A3;
+
+    /** Number of trailing vowel and final consonant combinations per leading consonant. */
+    private static final int HANGUL_SYLLABLES_PER_LV = 28;
+
+    private static final int BLOCK_SHIFT = 8;
+
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final String RUNS =
+            "\u0093\u0002\u0013\u0001\u0113\u05e0\u0203\u0080\u000e \u0003\u000e\u2500\u06f4" +
+            "\u1120d\u1060\u02c4\u0000\u0004\u0000\u0014\u0000\u0014\u0000\u0004\u0370W\u0090" +
+            "\u00a4\u0000\u0003\u02d0\u0144\u00f0\u0004\u0640d\u0007\u0000T\u0010\u0014\u0000" +
+            "4\u0200\u0007\u0000\u0004\u01d0\u01a4\u05a0\u00a4\u0390\u0084\u0080\u0004\u01704" +
+            "\u0000\u0084\u0000$\u0000D\u02a0$\u0330\u0017Pt\u0290\u0174\u0007\u01f4\u0008" +
+            "\u0350\u0004\u0008\u0004\u0000(t8\u0004\u0018\u0000d\u0090\u0014\u01c0\u0004" +
+            "\u0018\u0370\u0004\u0000\u0004\u00184\u0010\u0018\u0010\u0018\u0004\u0080\u0004" +
+            "\u0090\u0014\u0190\u0004\u0010\u0014\u0008\u0370\u0004\u0000(\u00140\u0014\u0010" +
+            "$ \u0004\u01d0\u0014 \u0004\u00a0\u0014\u0008\u0370\u0004\u0000(D\u0000\u0014" +
+            "\u0008\u0000\u0018\u0004\u0130\u0014\u0150T\u0000\u0004\u0018\u0370\u0004\u0000" +
+            "\u0014\u00084\u0010\u0018\u0010\u0018\u0004`$\u0090\u0014\u01d0\u0004\u03a0" +
+            "\u0004\u0008\u0004\u0018 (\u0000(\u0004\u0080\u0004\u0270\u0004(\u0004\u0360" +
+            "\u0004\u0000$8\u0000$\u00004`\u0014\u00a0\u0014\u01c0\u0004\u0018\u0370\u0004" +
+            "\u0000\u0008\u0004\u0018\u0004\u0018\u0000\u0004\u0018\u0000\u0018\u0014`\u0014" +
+            "\u00a0\u0014\u01b0\u0014\u0018\u0360\u0014\u0000\u0004\u00184\u0000(\u0000(" +
+            "\u0004\u0007p\u0004\u0090\u0014\u01c0\u0004\u0018\u0450\u00040\u0004\u0018$" +
+            "\u0000\u0004\u0000h\u0004\u0110\u0018\u03c0\u0004\u0000\u0008d\u00b0t\u0610" +
+            "\u0004\u0000\u0008\u0084\u00a0T\u0490\u0014\u01a0\u0004\u0000\u0004\u0000\u00040" +
+            "\u0018\u0300\u00d4\u0008D\u0000\u0014@\u00a4\u0000\u0234\u0080\u0004\u06504" +
+            "\u0008T\u0000\u0014\u0018\u0014\u0160\u0018\u00140$\u00f04\u00c0\u0004\u0000" +
+            "\u0008\u0014P\u0004\u00e0\u0004\u0610\u05f9\u047a\u057b\u15c0$\u3b10$\u0008" +
+            "\u01b0\u0014\u0008\u01c0\u0014\u01d0\u0014\u03f0\u0014\u0008dx\u0004\u0018\u00a4" +
+            "\u0080\u0004\u02c0$\u0003\u0004\u0740\u0014\u0210\u0004\u0750$8\u0014(0\u0018" +
+            "\u0004X$\u0da0\u0014\u0018\u0004\u0380\u0008\u0004\u0008d\u0000\u0004\u0000" +
+            "\u0004\u0010tX\u0094\u0010\u0004\u02f0\u01e4\u03004\u0008\u02e0d\u0008\u0004H" +
+            "\u0004\u0018\u0250\u0084\u00b0\u0014\u0008\u01d0\u00084\u0018\u0014\u0008$\u0370" +
+            "\u0004\u0008\u0014(\u0004\u0008$\u0018\u02f0xt\u0018\u0014\u0970$\u0000\u00c4" +
+            "\u0008d0\u0004P\u0004\u0010\u0008\u0014\u0c50\u03f4\u20a0\u0003\u0004\u0005" +
+            "\u0013\u0170c\u00c0\u000e\u00b0\u000e\u0150\u00f3\u05f0\u0204\u0300\u000e\u0150" +
+            "\u000e\u0590^\u00e0\u001e\u16e0\u001e\u00b0\u000e\u05e0\u000e\u0450\u000e\u0180" +
+            "\u00ae0.\u0c60\u000e\u0e60\u001e\u0090\u000e\u0080\u000e\u0390>\u0000^\u0000" +
+            "\u00be\u0000\u071e\u0090\u075e\u0010\u00ae\u0000\u000e\u0000\u000eP\u000e \u000e" +
+            "P\u000e\u0090\u001e\u00e0\u000e\u0010\u000e0\u000e\u0000\u000e0.\u0000\u000e" +
+            "\u00a0N\u02c0.\u0080\u000e\u00d0\u000e\u00d0\u000e\u1730\u001e\u1ce0.\u0120" +
+            "\u001e\u0320\u000e0\u000e\u1980$\u08c0\u0004\u05f0\u01f4\u2290T\u000e\u00b0" +
+            "\u000e\u05a0\u0014\u1fb0\u000e\u0000\u000e\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\u3d404\u0000\u0094\u01f0\u0014\u04f0\u0014\u10f0\u0004 \u00040\u0004" +
+            "\u0160\u0018\u0014\u00080\u0004\u0520\u0018\u0310\u00f8\u0014\u0190\u0114\u00c0" +
+            "\u0004\u0250t\u0180\u00a4\u0018\u00b0\u01c9 $\u0008\u02e0\u0004\u00184\u0018" +
+            "\u0014(\u0230\u0004\u0420T\u0018\u0014\u0018\u0014\u00b0\u0004p\u0004\u0008" +
+            "\u02d0\u0004\u0320\u0004\u0000$\u0010\u0014@\u0014\u0000\u0004\u0280\u0008\u0014" +
+            "\u0018@\u0008\u0004\u0eb0\u0018\u0004\u0018\u0004\u0018\u0000\u0008\u0004\ufff0" +
+            "\ufff0\ubc10\u016a0\u030b\ufff0\ufff0\u3210\u0004\u2e00\u00f4\u00f0\u00f4\u0ce0" +
+            "\u0003\u09d0\u0014\u04f0\u00b3\u2000\u0004\u0e10\u0004\u0940D\u6850$\u0000\u0014" +
+            "@4\u0270$0\u0004\u0a40\u0014\u23c04\u1820\u0014\u0980\u00a4\u03004\u0790\u0008" +
+            "\u0004\u0008\u0340\u00e4\u0280\u0004\u0010\u0014\u0090$\u0008\u02c0(4\u0018" +
+            "\u0014\u0010\u00070\u0004\u0090\u0007\u0310$\u0230D\u0008t\u00f0\u0018\u02b0" +
+            "\u0004\u00b0\u0014\u0008\u02f0(\u0084\u0018\u0000\u0017@4\u0000\u0008\u0004" +
+            "\u05b0($\u0018\u0004\u0008\u0014P\u0004\u09f0\u0004(t\u0140\u0014\u0018\u0360" +
+            "\u0014\u0000\u0004\u0008\u00048\u0010\u0018\u0010(\u0080\u0004\u0090\u0018\u0010" +
+            "d D\u0bf0(t\u0018$\u0008\u0004\u0160\u0004\u0500\u0004\u0018T\u0008\u0004\u0018" +
+            "\u0004\u0008\u0014\u0008\u0014\u0ea0\u0004\u00184\u00108\u0014\u0008\u0014\u01a0" +
+            "\u0014\u0510(t\u0018\u0004\u0008\u0014\u0690\u0004\u0008\u0004\u0018T\u0008" +
+            "\u0004\u0640$\u00104\u0008D\u0ff0(\u0084\u0008\u0014\u0f40\u0004H\u0000\u0018" +
+            "\u0010\u0014\u0008\u0004\u0007\u0008\u0007\u0008\u0004\u08c0(4\u0010\u00148" +
+            "\u0004 \u0008\u01b0\u0094\u0270T\u0008\u00074p\u0004\u0080T\u0018$\u0270W\u00c4" +
+            "\u0008\u0014\u1940\u0008d\u0000T\u0008\u0004\u0510\u0154\u0000\u0008d\u0008" +
+            "\u0014\u0008\u0014\u0790T \u0004\u0000\u0014\u0000d\u0007\u0004\u0410H\u0000" +
+            "\u0014\u0000\u0018\u0004\u0008\u0004\u15a0\u0014\u0018\ufff0\u5380\u0083\ufff0" +
+            "\ufff0\ufff0\u6b60D\u03a0d\u4170\u0004\u0000\u0368`4\u0500\u0004\u00a0\u0018" +
+            "\ufff0\ufff0\ufff0\ufff0\ucaa0\u0014\u00003\ufff0\u25b0\u02d4\u0010\u0164\u21d0" +
+            "\u0004\u0008$ \u0008Dst\u0010d\u01d04\u0930$\u7ba0\u03640\u0314p\u0004\u00d0" +
+            "\u0004\u0150D\u0000\u00e4\u54f0d\u0000\u0104\u0010d\u0000\u0014\u0000D\u1040d" +
+            "\u1760\u0004\u03c04\u5df0d\u06c0d\u6b40\u0ffe\u00c0.\u01e0\u000e\u03b0^\u00b0" +
+            "\u001e\u00d0\u000e\u0010\u009e\u0110\u038e\u0196\u0000\u00ee\u0090\u000e\u0130" +
+            "\u000e\u0010\u008e\u0000>\u0080\u1b1eD\u13dep\u109e\u02f0\u07fe\u0730\u00be" +
+            "\u0540\u02ae\u00b0>\u0370~\u0090^\u0270~\u01d0\u051e\u00b0\u02ee\u0000\u009e" +
+            "\u0000\u1b8e\u0ff0\u3fde\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\u0010\u01f3\u05f4\u07f3\u0ef4\ue0f3\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0\ufff0" +
+            "\ufff0\ufff0";
+
+    /** Index of the block of values for each block of code points. */
+    private static final char[] sBlockIndex =
+            new char[(Character.MAX_CODE_POINT + 1) >> BLOCK_SHIFT];
+
+    /** Distinct blocks of values, one after another. */
+    private static final byte[] sBlocks;
+
+    static {
+        // Blocks that hold a single value are shared
+        final int[] uniformBlocks = new int[VALUE_COUNT];
+        Arrays.fill(uniformBlocks, -1);
+        byte[] blocks = new byte[16 * BLOCK_SIZE];
+        int blockCount = 0;
+
+        final byte[] block = new byte[BLOCK_SIZE];
+        boolean uniform = true;
+        int codePoint = 0;
+        for (int i = 0; i < RUNS.length(); i++) {
+            final byte value = (byte) (RUNS.charAt(i) & 0xf);
+            int length = (RUNS.charAt(i) >>> 4) + 1;
+            while (length > 0) {
+                final int offset = codePoint & (BLOCK_SIZE - 1);
+                final int count = Math.min(length, BLOCK_SIZE - offset);
+                Arrays.fill(block, offset, offset + count, value);
+                uniform &= (block[0] == value);
+                codePoint += count;
+                length -= count;
+                if ((codePoint & (BLOCK_SIZE - 1)) != 0) {
+                    continue;
+                }
+                // Finished a block
+                int index = uniform ? uniformBlocks[block[0]] : -1;
+                if (index == -1) {
+                    if (blockCount * BLOCK_SIZE == blocks.length) {
+                        blocks = Arrays.copyOf(blocks, 2 * blocks.length);
+                    }
+                    System.arraycopy(block, 0, blocks, blockCount * BLOCK_SIZE, BLOCK_SIZE);
+                    index = blockCount++;
+                    if (uniform) {
+                        uniformBlocks[block[0]] = index;
+                    }
+                }
+                sBlockIndex[(codePoint >> BLOCK_SHIFT) - 1] = (char) index;
+                uniform = true;
+            }
+        }
+        if (codePoint != Character.MAX_CODE_POINT + 1) {
+            throw new AssertionError("Table covers " + codePoint + " code points");
+        }
+        sBlocks = Arrays.copyOf(blocks, blockCount * BLOCK_SIZE);
+    }
+
+    private GraphemeBreakProperty() {}
+
+    /**
+     * Returns the property value of the code point, which must be valid.
+     */
+    static int get(int codePoint) {
+        if (codePoint >= HANGUL_SYLLABLE_FIRST && codePoint <= HANGUL_SYLLABLE_LAST) {
+            return ((codePoint - HANGUL_SYLLABLE_FIRST) % HANGUL_SYLLABLES_PER_LV == 0)
+                    ? LV : LVT;
+        }
+        return sBlocks[(sBlockIndex[codePoint >> BLOCK_SHIFT] << BLOCK_SHIFT)
+                | (codePoint & (BLOCK_SIZE - 1))];
+    }
+}
@@ -0,0 +1,192 @@
+package com.scottbezek.difflib;
+
+import static com.scottbezek.difflib.GraphemeBreakProperty.CONTROL;
+import static com.scottbezek.difflib.GraphemeBreakProperty.CR;
+import static com.scottbezek.difflib.GraphemeBreakProperty.EXTEND;
+import static com.scottbezek.difflib.GraphemeBreakProperty.EXTENDED_PICTOGRAPHIC;
+import static com.scottbezek.difflib.GraphemeBreakProperty.L;
+import static com.scottbezek.difflib.GraphemeBreakProperty.LF;
+import static com.scottbezek.difflib.GraphemeBreakProperty.LV;
+import static com.scottbezek.difflib.GraphemeBreakProperty.LVT;
+import static com.scottbezek.difflib.GraphemeBreakProperty.PREPEND;
+import static com.scottbezek.difflib.GraphemeBreakProperty.REGIONAL_INDICATOR;
+import static com.scottbezek.difflib.GraphemeBreakProperty.SPACING_MARK;
+import static com.scottbezek.difflib.GraphemeBreakProperty.T;
+import static com.scottbezek.difflib.GraphemeBreakProperty.V;
+import static com.scottbezek.difflib.GraphemeBreakProperty.ZWJ;
+
+/**
+ * Splits text into extended grapheme clusters (natural characters), following the default rules
+ * of UAX #29 for Unicode 14.0.
+ * <p/>
+ * Unlike {@link java.text.BreakIterator#getCharacterInstance()}, which is expensive to create
+ * and whose rules vary between Android and JDK versions, this is driven by a fixed property
+ * table and creates nothing per call. Stateless and thread-safe.
+ */
+public class GraphemeSegmenter {
+
+    /** Properties that are always separated from what's before and after them (GB4, GB5). */
+    private static final int SEPARATE = (1 << CR) | (1 << LF) | (1 << CONTROL);
+
+    /** Properties that always join what's before them (GB9, GB9a). */
+    private static final int JOIN_PREVIOUS = (1 << EXTEND) | (1 << ZWJ) | (1 << SPACING_MARK);
+
+    /** Properties that follow L within a Hangul syllable (GB6). */
+    private static final int FOLLOW_L = (1 << L) | (1 << V) | (1 << LV) | (1 << LVT);
+
+    /** Properties that follow LV or V within a Hangul syllable (GB7). */
+    private static final int FOLLOW_V = (1 << V) | (1 << T);
+
+    /**
+     * Chars below this all have a property of Other, Control, or Extended_Pictographic, so
+     * printable ASCII followed by one of them is a cluster on its own.
+     */
+    private static final char FIRST_JOINING_CHAR = '\u0300';
+
+    private GraphemeSegmenter() {}
+
+    /**
+     * Returns the end of the grapheme cluster that starts at the offset, looking no further than
+     * end. The offset is assumed to be a boundary.
+     *
+     * @throws IndexOutOfBoundsException If the offset isn't within the text before end.
+     */
+    public static int following(CharSequence text, int offset, int end) {
+        if (offset < 0 || offset >= end || end > text.length()) {
+            throw new IndexOutOfBoundsException("Invalid offset " + offset + ", end " + end
+                    + ", length " + text.length());
+        }
+        final char first = text.charAt(offset);
+        if (first >= ' ' && first <= '~'
+                && (offset + 1 == end || text.charAt(offset + 1) < FIRST_JOINING_CHAR)) {
+            return offset + 1;
+        }
+
+        int codePoint = codePointAt(text, offset, end);
+        int previous = GraphemeBreakProperty.get(codePoint);
+        int i = offset + Character.charCount(codePoint);
+        // Number of regional indicators in a row, up to and including the previous code point
+        int regionalIndicators = (previous == REGIONAL_INDICATOR) ? 1 : 0;
+        // Whether the cluster so far ends with Extended_Pictographic Extend*
+        boolean pictographic = (previous == EXTENDED_PICTOGRAPHIC);
+        // Whether the cluster so far ends with Extended_Pictographic Extend* ZWJ
+        boolean pictographicZwj = false;
+        while (i < end) {
+            codePoint = codePointAt(text, i, end);
+            final int current = GraphemeBreakProperty.get(codePoint);
+            if (!isJoined(previous, current, regionalIndicators, pictographicZwj)) {
+                break;
+            }
+            regionalIndicators = (current == REGIONAL_INDICATOR) ? regionalIndicators + 1 : 0;
+            pictographicZwj = pictographic && current == ZWJ;
+            pictographic = (current == EXTENDED_PICTOGRAPHIC)
+                    || (pictographic && current == EXTEND);
+            previous = current;
+            i += Character.charCount(codePoint);
+        }
+        return i;
+    }
+
+    /**
+     * Finds the boundaries between the grapheme clusters of the text from start to end, and
+     * writes their offsets into boundaries, starting with start and ending with end.
+     *
+     * @param boundaries Must have room for <code>end - start + 1</code> offsets.
+     * @return The number of offsets written, which is one more than the number of clusters.
+     * @throws IndexOutOfBoundsException If the range isn't within the text.
+     * @throws IllegalArgumentException If boundaries is too short.
+     */
+    public static int getBoundaries(CharSequence text, int start, int end, int[] boundaries) {
+        if (start < 0 || end < start || end > text.length()) {
+            throw new IndexOutOfBoundsException("Invalid range: start " + start + ", end " + end
+                    + ", length " + text.length());
+        }
+        if (boundaries.length < end - start + 1) {
+            throw new IllegalArgumentException("Need room for " + (end - start + 1)
+                    + " boundaries, but only have " + boundaries.length);
+        }
+        int count = 0;
+        boundaries[count++] = start;
+        for (int offset = start; offset < end; ) {
+            offset = following(text, offset, end);
+            boundaries[count++] = offset;
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether there's no boundary between code points with the given properties.
+     *
+     * @param regionalIndicators Number of regional indicators in a row, up to and including the
+     *                           previous code point.
+     * @param pictographicZwj    Whether the previous code point is a ZWJ that follows
+     *                           Extended_Pictographic Extend*.
+     */
+    private static boolean isJoined(int previous, int current, int regionalIndicators,
+            boolean pictographicZwj) {
+        if (previous == CR && current == LF) {
+            // GB3
+            return true;
+        }
+        if (((SEPARATE >> previous) & 1) != 0 || ((SEPARATE >> current) & 1) != 0) {
+            // GB4, GB5
+            return false;
+        }
+        switch (previous) {
+            case L:
+                // GB6
+                if (((FOLLOW_L >> current) & 1) != 0) {
+                    return true;
+                }
+                break;
+            case LV:
+            case V:
+                // GB7
+                if (((FOLLOW_V >> current) & 1) != 0) {
+                    return true;
+                }
+                break;
+            case LVT:
+            case T:
+                // GB8
+                if (current == T) {
+                    return true;
+                }
+                break;
+            case PREPEND:
+                // GB9b
+                return true;
+            case ZWJ:
+                // GB11
+                if (current == EXTENDED_PICTOGRAPHIC && pictographicZwj) {
+                    return true;
+                }
+                break;
+            case REGIONAL_INDICATOR:
+                // GB12, GB13: pairs of regional indicators
+                if (current == REGIONAL_INDICATOR && (regionalIndicators & 1) == 1) {
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+        // GB9, GB9a, otherwise GB999
+        return ((JOIN_PREVIOUS >> current) & 1) != 0;
+    }
+
+    /**
+     * Like {@link Character#codePointAt(CharSequence, int)}, but doesn't look at the char at
+     * end. An unpaired surrogate is returned as is.
+     */
+    private static int codePointAt(CharSequence text, int index, int end) {
+        final char high = text.charAt(index);
+        if (Character.isHighSurrogate(high) && index + 1 < end) {
+            final char low = text.charAt(index + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(high, low);
+            }
+        }
+        return high;
+    }
+}
@@ -10,6 +10,31 @@ import java.util.Locale;
  */
 public class UnicodeUtil {
 
+    /**
+     * A word iterator for a locale, kept per thread since creating one is slow.
+     */
+    private static class WordIterator {
+
+        private Locale mLocale;
+        private BreakIterator mIterator;
+
+        BreakIterator get(Locale locale) {
+            if (mIterator == null || !locale.equals(mLocale)) {
+                mLocale = locale;
+                mIterator = BreakIterator.getWordInstance(locale);
+            }
+            return mIterator;
+        }
+    }
+
+    private static final ThreadLocal<WordIterator> sWordIterator =
+            new ThreadLocal<WordIterator>() {
+                @Override
+                protected WordIterator initialValue() {
+                    return new WordIterator();
+                }
+            };
+
     private UnicodeUtil() {}
 
     /**
@@ -26,17 +51,133 @@ public class UnicodeUtil {
      * @param input
      *            The String to split.
      * @param locale
-     *            The locale to use when determining character boundaries. The
-     *            expected character boundaries may differ depending on the
-     *            user's locale.
+     *            Unused. Natural characters are the extended grapheme clusters
+     *            of UAX #29, which are the same in every locale.
      *
      * @return A List of "natural characters" (where each natural character is
      *         stored as a non-null String of length >= 1).
-     * @see BreakIterator
-     * @see BreakIterator#getCharacterInstance()
+     * @see GraphemeSegmenter
      */
     public static List<String> splitNaturalCharacters(String input, Locale locale) {
-        BreakIterator breakIterator = BreakIterator.getCharacterInstance(locale);
+        final int[] boundaries = new int[input.length() + 1];
+        final int count = getCharacterBoundaries(input, 0, input.length(), locale, boundaries);
+        List<String> result = new ArrayList<String>(count - 1);
+        for (int i = 1; i < count; i++) {
+            result.add(input.substring(boundaries[i - 1], boundaries[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the boundaries between the natural characters (see {@link
+     * #splitNaturalCharacters(String, Locale)}) of <code>text</code> from <code>start</code> to
+     * <code>end</code>, without allocating a String per character.
+     * <p>
+     * ASCII text is handled in a tight loop, and nothing is allocated at all.
+     *
+     * @param locale
+     *            Unused; see {@link #splitNaturalCharacters(String, Locale)}.
+     * @param boundaries
+     *            Receives the offsets of the boundaries in increasing order, starting with
+     *            start and ending with end. Must have room for
+     *            <code>end - start + 1</code> offsets.
+     *
+     * @return The number of offsets written, which is one more than the number
+     *         of natural characters.
+     * @throws IndexOutOfBoundsException If the range isn't within the text.
+     * @throws IllegalArgumentException If boundaries is too short.
+     * @see GraphemeSegmenter#getBoundaries(CharSequence, int, int, int[])
+     */
+    public static int getCharacterBoundaries(CharSequence text, int start, int end,
+            Locale locale, int[] boundaries) {
+        return GraphemeSegmenter.getBoundaries(text, start, end, boundaries);
+    }
+
+    /**
+     * Like {@link #getCharacterBoundaries(CharSequence, int, int, Locale, int[])}, but splits
+     * each of the segments of <code>text</code> between consecutive word boundaries (see {@link
+     * #getWordBoundaries(String, Locale, int[])}), from
+     * <code>wordBoundaries[from]</code> to <code>wordBoundaries[to]</code>, so that every word
+     * boundary is also a character boundary.
+     *
+     * @param boundaries
+     *            Must have room for
+     *            <code>wordBoundaries[to] - wordBoundaries[from] + 1</code> offsets.
+     *
+     * @return The number of offsets written, which is one more than the number
+     *         of natural characters.
+     */
+    public static int getCharacterBoundaries(CharSequence text, int[] wordBoundaries, int from,
+            int to, Locale locale, int[] boundaries) {
+        final int start = wordBoundaries[from];
+        final int end = wordBoundaries[to];
+        if (start < 0 || end < start || end > text.length()) {
+            throw new IndexOutOfBoundsException("Invalid range: start " + start + ", end " + end
+                    + ", length " + text.length());
+        }
+        if (boundaries.length < end - start + 1) {
+            throw new IllegalArgumentException("Need room for " + (end - start + 1)
+                    + " boundaries, but only have " + boundaries.length);
+        }
+        int count = 0;
+        boundaries[count++] = start;
+        for (int word = from; word < to; word++) {
+            final int wordEnd = wordBoundaries[word + 1];
+            for (int offset = wordBoundaries[word]; offset < wordEnd; ) {
+                offset = GraphemeSegmenter.following(text, offset, wordEnd);
+                boundaries[count++] = offset;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the boundaries between the words of <code>text</code>, and the runs of whitespace
+     * and punctuation between them (see {@link #splitWords(String, Locale)}), without
+     * allocating a String per word.
+     *
+     * @param locale
+     *            The locale to use when determining word boundaries.
+     * @param boundaries
+     *            Receives the offsets of the boundaries in increasing order, starting with 0
+     *            and ending with the length of the text. Must have room for
+     *            <code>text.length() + 1</code> offsets.
+     *
+     * @return The number of offsets written, which is one more than the number
+     *         of words.
+     * @throws IllegalArgumentException If boundaries is too short.
+     */
+    public static int getWordBoundaries(String text, Locale locale, int[] boundaries) {
+        if (boundaries.length < text.length() + 1) {
+            throw new IllegalArgumentException("Need room for " + (text.length() + 1)
+                    + " boundaries, but only have " + boundaries.length);
+        }
+        final BreakIterator breakIterator = sWordIterator.get().get(locale);
+        breakIterator.setText(text);
+        int count = 0;
+        boundaries[count++] = breakIterator.first();
+        for (int end = breakIterator.next(); end != BreakIterator.DONE;
+                end = breakIterator.next()) {
+            boundaries[count++] = end;
+        }
+        return count;
+    }
+
+    /**
+     * Splits a String into words, as well as the runs of whitespace and punctuation between
+     * them, so that concatenating the result gives back the input.
+     *
+     * @param input
+     *            The String to split.
+     * @param locale
+     *            The locale to use when determining word boundaries.
+     *
+     * @return A List of the pieces of the input (each stored as a non-null
+     *         String of length >= 1).
+     * @see BreakIterator#getWordInstance()
+     */
+    public static List<String> splitWords(String input, Locale locale) {
+        BreakIterator breakIterator = BreakIterator.getWordInstance(locale);
         List<String> result = new ArrayList<String>();
 
         breakIterator.setText(input);
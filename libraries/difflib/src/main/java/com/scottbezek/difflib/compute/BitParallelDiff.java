@@ -0,0 +1,220 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.Arrays;
+
+/**
+ * Fast path of {@link IntLevenshteinDiff} for when the second sequence has at most {@link
+ * #MAX_SECOND_LENGTH} tokens, so that a whole row of the cost table fits in the bits of a long.
+ * <p/>
+ * Rather than computing the table a cell at a time, each row is computed from the previous one
+ * with a handful of word operations, and kept as the differences between adjacent cells: Myers'
+ * bit-vector algorithm ("A Fast Bit-Vector Algorithm for Approximate String Matching Based on
+ * Dynamic Programming", Gene Myers, 1999, in Hyyro's formulation) for unit costs, or the
+ * bit-parallel LCS algorithm (Allison-Dix, Hyyro) when replacing never beats a deletion plus an
+ * insertion. The cost of any cell can then be recovered with a couple of bit counts, which is
+ * all that tracing back the edit string needs. The traceback makes the same choice at every
+ * cell as {@link IntLevenshteinDiff#computeRow} would, so the edit strings are identical.
+ * <p/>
+ * Not thread-safe; an instance may be reused for any number of diffs (see {@link
+ * DiffWorkspace}).
+ */
+class BitParallelDiff {
+
+    static final int MAX_SECOND_LENGTH = 64;
+
+    /** Number of slots of the match mask hash table; at least twice MAX_SECOND_LENGTH. */
+    private static final int MATCH_TABLE_SIZE = 128;
+
+    /** Row buffers larger than this many longs are allocated for a single use and not kept. */
+    private static final int MAX_RETAINED_ROWS_LENGTH = 1024 * 1024;
+
+    /**
+     * Open addressing hash table from token to the mask of the positions in the second sequence
+     * holding that token. A slot is empty if its mask is 0.
+     */
+    private final int[] mMatchTokens = new int[MATCH_TABLE_SIZE];
+
+    private final long[] mMatchMasks = new long[MATCH_TABLE_SIZE];
+
+    /**
+     * Two longs per row of the table. For unit costs, the bits set in the first are the columns
+     * j where cost(i, j) - cost(i, j - 1) is +1, and in the second where it is -1. Otherwise only
+     * the first is used, holding the bits of the bit-parallel LCS vector.
+     */
+    private long[] mRows = new long[0];
+
+    /**
+     * Returns whether integer costs can be computed bit-parallel: insertions and deletions must
+     * cost the same, and a replacement must cost either that much too, or at least as much as an
+     * insertion plus a deletion.
+     */
+    static boolean supportsCosts(int insertCost, int deleteCost, int replaceCost) {
+        return insertCost > 0 && insertCost == deleteCost
+                && (replaceCost == insertCost || replaceCost >= 2 * insertCost);
+    }
+
+    /**
+     * Computes the minimal cost of transforming the firstLength tokens of first starting at
+     * firstOffset into the secondLength tokens of second starting at secondOffset, and the edit
+     * string if its cost doesn't exceed maxCost. Costs must be supported (see {@link
+     * #supportsCosts}).
+     *
+     * @return The edit string, or null if the max cost was exceeded.
+     */
+    EditScript compute(int[] first, int firstOffset, int firstLength,
+            int[] second, int secondOffset, int secondLength, int insertCost, int deleteCost,
+            int replaceCost, float maxCost) {
+        if (secondLength > MAX_SECOND_LENGTH) {
+            throw new IllegalArgumentException("Second sequence too long: " + secondLength);
+        }
+        final boolean unitCosts = (replaceCost == insertCost);
+        final long[] rows = obtainRows(2 * (firstLength + 1));
+        buildMatchMasks(second, secondOffset, secondLength);
+        if (unitCosts) {
+            computeLevenshteinRows(first, firstOffset, firstLength, rows);
+        } else {
+            computeLcsRows(first, firstOffset, firstLength, rows);
+        }
+
+        final int unitCost = getUnitCost(rows, unitCosts, firstLength, secondLength);
+        if ((long) unitCost * insertCost > maxCost) {
+            return null;
+        }
+        return traceBack(first, firstOffset, firstLength, second, secondOffset, secondLength,
+                insertCost, deleteCost, replaceCost, rows, unitCosts);
+    }
+
+    private long[] obtainRows(int length) {
+        if (length <= mRows.length) {
+            return mRows;
+        }
+        final long[] rows = new long[Math.max(length,
+                Math.min(MAX_RETAINED_ROWS_LENGTH, 2 * mRows.length))];
+        if (rows.length <= MAX_RETAINED_ROWS_LENGTH) {
+            mRows = rows;
+        }
+        return rows;
+    }
+
+    private static int getSlot(int token) {
+        return (token * 0x9E3779B9) >>> 25;
+    }
+
+    private void buildMatchMasks(int[] second, int secondOffset, int secondLength) {
+        Arrays.fill(mMatchMasks, 0);
+        for (int j = 0; j < secondLength; j++) {
+            final int token = second[secondOffset + j];
+            int slot = getSlot(token);
+            while (mMatchMasks[slot] != 0 && mMatchTokens[slot] != token) {
+                slot = (slot + 1) & (MATCH_TABLE_SIZE - 1);
+            }
+            mMatchTokens[slot] = token;
+            mMatchMasks[slot] |= 1L << j;
+        }
+    }
+
+    private long getMatchMask(int token) {
+        int slot = getSlot(token);
+        while (mMatchMasks[slot] != 0) {
+            if (mMatchTokens[slot] == token) {
+                return mMatchMasks[slot];
+            }
+            slot = (slot + 1) & (MATCH_TABLE_SIZE - 1);
+        }
+        return 0;
+    }
+
+    /**
+     * Bit j - 1 of a row corresponds to column j. Bits above the last column may hold garbage,
+     * but carries and shifts only move upwards, so it never affects the lower bits.
+     */
+    private void computeLevenshteinRows(int[] first, int firstOffset, int firstLength,
+            long[] rows) {
+        // Row 0 is all insertions, so every step to the right costs +1
+        long positive = -1L;
+        long negative = 0L;
+        rows[0] = positive;
+        rows[1] = negative;
+        for (int i = 1; i <= firstLength; i++) {
+            final long match = getMatchMask(first[firstOffset + i - 1]);
+            final long x = match | negative;
+            final long d0 = (((match & positive) + positive) ^ positive) | x;
+            // Differences from the previous row; column 0 always goes up by 1
+            final long verticalPositive = ((negative | ~(d0 | positive)) << 1) | 1L;
+            final long verticalNegative = (positive & d0) << 1;
+            positive = verticalNegative | ~(x | verticalPositive);
+            negative = verticalPositive & x;
+            rows[2 * i] = positive;
+            rows[2 * i + 1] = negative;
+        }
+    }
+
+    /**
+     * The zero bits of each row's vector are the columns where the LCS length increases.
+     */
+    private void computeLcsRows(int[] first, int firstOffset, int firstLength, long[] rows) {
+        long vector = -1L;
+        rows[0] = vector;
+        for (int i = 1; i <= firstLength; i++) {
+            final long u = vector & getMatchMask(first[firstOffset + i - 1]);
+            vector = (vector + u) | (vector - u);
+            rows[2 * i] = vector;
+        }
+    }
+
+    /**
+     * Returns the cost of cell (i, j), in units of the insertion cost.
+     */
+    private static int getUnitCost(long[] rows, boolean unitCosts, int i, int j) {
+        final long columns = (j == 64) ? -1L : (1L << j) - 1;
+        if (unitCosts) {
+            return i + Long.bitCount(rows[2 * i] & columns)
+                    - Long.bitCount(rows[2 * i + 1] & columns);
+        } else {
+            // i + j - 2 * LCS, where LCS is the number of zero bits
+            return i - j + 2 * Long.bitCount(rows[2 * i] & columns);
+        }
+    }
+
+    private static EditScript traceBack(int[] first, int firstOffset, int firstLength,
+            int[] second, int secondOffset, int secondLength, int insertCost, int deleteCost,
+            int replaceCost, long[] rows, boolean unitCosts) {
+        final EditScript output = new EditScript();
+        int i = firstLength;
+        int j = secondLength;
+        while (i > 0 && j > 0) {
+            final int deleteTotal = getUnitCost(rows, unitCosts, i - 1, j) * insertCost
+                    + deleteCost;
+            final int insertTotal = getUnitCost(rows, unitCosts, i, j - 1) * insertCost
+                    + insertCost;
+            final int diagonal = getUnitCost(rows, unitCosts, i - 1, j - 1) * insertCost;
+            final int replaceTotal;
+            final Edit replaceType;
+            if (first[firstOffset + i - 1] == second[secondOffset + j - 1]) {
+                replaceTotal = diagonal;
+                replaceType = Edit.UNCHANGED;
+            } else {
+                replaceTotal = diagonal + replaceCost;
+                replaceType = Edit.REPLACE;
+            }
+
+            // Same preferences as IntLevenshteinDiff#computeRow
+            if (replaceTotal <= deleteTotal && replaceTotal <= insertTotal) {
+                output.append(replaceType, 1);
+                i--;
+                j--;
+            } else if (insertTotal <= deleteTotal) {
+                output.append(Edit.INSERT, 1);
+                j--;
+            } else {
+                output.append(Edit.DELETE, 1);
+                i--;
+            }
+        }
+        // Column 0 is all deletions, and row 0 all insertions
+        output.append(Edit.DELETE, i);
+        output.append(Edit.INSERT, j);
+        output.reverse();
+        return output;
+    }
+}
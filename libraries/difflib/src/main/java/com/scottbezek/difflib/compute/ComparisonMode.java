@@ -0,0 +1,259 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * How lines or tokens are compared: exactly, or ignoring changes in whitespace (like diff -b),
+ * all whitespace (like diff -w), and/or case (like diff -i).
+ * <p/>
+ * Rather than materializing a normalized copy of each string, a mode computes a 64-bit key
+ * (see {@link #getKey(CharSequence)}) by hashing the characters of the normalized string as it
+ * scans the original. Elements are equal under the mode if their keys are equal; with 64-bit
+ * keys a false match is vanishingly unlikely. Keys can be computed once and mapped to dense
+ * tokens with a {@link KeyDictionary}, or cached per line with {@link LineKeys}.
+ * <p/>
+ * There is one instance per combination of options (see {@link #of(Whitespace, boolean)}), so
+ * modes can be compared by identity.
+ */
+@Immutable
+public final class ComparisonMode {
+
+    public enum Whitespace {
+        /** Whitespace is compared like any other character. */
+        EXACT,
+        /**
+         * Any run of whitespace is equal to any other, and whitespace at the end of a line is
+         * ignored.
+         */
+        IGNORE_CHANGE,
+        /** Whitespace is ignored entirely. */
+        IGNORE_ALL,
+    }
+
+    private static final ComparisonMode[] sModes;
+    static {
+        final Whitespace[] whitespaceModes = Whitespace.values();
+        sModes = new ComparisonMode[2 * whitespaceModes.length];
+        for (Whitespace whitespace : whitespaceModes) {
+            sModes[2 * whitespace.ordinal()] = new ComparisonMode(whitespace, false);
+            sModes[2 * whitespace.ordinal() + 1] = new ComparisonMode(whitespace, true);
+        }
+    }
+
+    /** Compares elements exactly, with {@link Object#equals(Object)}. */
+    public static final ComparisonMode EXACT = of(Whitespace.EXACT, false);
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Whitespace mWhitespace;
+
+    private final boolean mIgnoreCase;
+
+    private ComparisonMode(Whitespace whitespace, boolean ignoreCase) {
+        mWhitespace = whitespace;
+        mIgnoreCase = ignoreCase;
+    }
+
+    public static ComparisonMode of(Whitespace whitespace, boolean ignoreCase) {
+        return sModes[2 * whitespace.ordinal() + (ignoreCase ? 1 : 0)];
+    }
+
+    /**
+     * Returns the number of distinct modes.
+     */
+    static int getModeCount() {
+        return sModes.length;
+    }
+
+    /**
+     * Returns the index of this mode, from 0 to {@link #getModeCount()} - 1.
+     */
+    int getIndex() {
+        return 2 * mWhitespace.ordinal() + (mIgnoreCase ? 1 : 0);
+    }
+
+    public Whitespace getWhitespace() {
+        return mWhitespace;
+    }
+
+    public boolean isIgnoreCase() {
+        return mIgnoreCase;
+    }
+
+    public boolean isExact() {
+        return this == EXACT;
+    }
+
+    /**
+     * Returns the key of the text under this mode. Texts that are equal under the mode have
+     * equal keys.
+     */
+    public long getKey(CharSequence text) {
+        return getKey(text, 0, text.length());
+    }
+
+    /**
+     * Returns the key of the chars of the text from start to end, like {@link
+     * #getKey(CharSequence)} of that subsequence, but without allocating anything.
+     */
+    public long getKey(CharSequence text, int start, int end) {
+        long hash = FNV_OFFSET_BASIS;
+        boolean pendingSpace = false;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (mWhitespace != Whitespace.EXACT && Character.isWhitespace(c)) {
+                pendingSpace = (mWhitespace == Whitespace.IGNORE_CHANGE);
+                continue;
+            }
+            if (pendingSpace) {
+                hash = hashChar(hash, ' ');
+                pendingSpace = false;
+            }
+            hash = hashChar(hash, normalizeCase(c));
+        }
+        return finish(hash);
+    }
+
+    /**
+     * Returns the key of the concatenation of the texts, e.g. the characters of a word.
+     */
+    public long getKey(List<? extends CharSequence> texts) {
+        final KeyHasher hasher = new KeyHasher();
+        for (int i = 0; i < texts.size(); i++) {
+            hasher.append(texts.get(i));
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * Returns the key of a diffed element, which must be a {@link CharSequence} or a {@link
+     * List} of them.
+     *
+     * @throws IllegalArgumentException If the element is neither.
+     */
+    @SuppressWarnings("unchecked")
+    long getElementKey(Object element) {
+        if (element instanceof CharSequence) {
+            return getKey((CharSequence) element);
+        } else if (element instanceof List) {
+            return getKey((List<? extends CharSequence>) element);
+        }
+        throw new IllegalArgumentException("Can't compute the key of " + element);
+    }
+
+    /**
+     * Returns whether the two texts are equal under this mode.
+     */
+    public boolean isEqual(CharSequence first, CharSequence second) {
+        if (isExact()) {
+            return first.toString().equals(second.toString());
+        }
+        return getKey(first) == getKey(second);
+    }
+
+    /**
+     * Returns whether replacing the chars of first from firstStart to firstEnd with the chars of
+     * second from secondStart to secondEnd (e.g. a run of an intraline diff of the two texts)
+     * is a change that this mode ignores.
+     * <p/>
+     * Unlike comparing the keys of the two ranges, this looks at what surrounds them: when
+     * ignoring changes in whitespace, whitespace added to existing whitespace is ignored, but
+     * whitespace inserted between other characters (e.g. "ab" to "a b") isn't.
+     */
+    public boolean isIgnoredChange(CharSequence first, int firstStart, int firstEnd,
+            CharSequence second, int secondStart, int secondEnd) {
+        if (mWhitespace == Whitespace.IGNORE_CHANGE) {
+            // Compare whole runs of whitespace, along with the characters on either side
+            firstStart = extendBackwards(first, firstStart);
+            firstEnd = extendForwards(first, firstEnd);
+            secondStart = extendBackwards(second, secondStart);
+            secondEnd = extendForwards(second, secondEnd);
+        }
+        return getKey(first, firstStart, firstEnd) == getKey(second, secondStart, secondEnd);
+    }
+
+    /**
+     * Returns the offset before the whitespace that precedes the offset, and the character
+     * before that, if any.
+     */
+    private static int extendBackwards(CharSequence text, int offset) {
+        while (offset > 0 && Character.isWhitespace(text.charAt(offset - 1))) {
+            offset--;
+        }
+        return (offset > 0) ? offset - 1 : offset;
+    }
+
+    /**
+     * Returns the offset after the whitespace that follows the offset, and the character after
+     * that, if any.
+     */
+    private static int extendForwards(CharSequence text, int offset) {
+        final int length = text.length();
+        while (offset < length && Character.isWhitespace(text.charAt(offset))) {
+            offset++;
+        }
+        return (offset < length) ? offset + 1 : offset;
+    }
+
+    @Override
+    public String toString() {
+        return mWhitespace + (mIgnoreCase ? "+IGNORE_CASE" : "");
+    }
+
+    private char normalizeCase(char c) {
+        return mIgnoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+    }
+
+    private static long hashChar(long hash, char c) {
+        hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+        return (hash ^ (c >>> 8)) * FNV_PRIME;
+    }
+
+    private static long finish(long hash) {
+        // Murmur3 64-bit finalizer, since FNV's low bits are weak for hash tables
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Hashes the characters of the normalized text, FNV-1a style, as the original text is
+     * scanned. Unlike {@link #getKey(CharSequence, int, int)}, a run of whitespace may span
+     * several appended texts.
+     */
+    private class KeyHasher {
+
+        private long mHash = FNV_OFFSET_BASIS;
+
+        /** Whether whitespace was skipped since the last character that was hashed. */
+        private boolean mPendingSpace = false;
+
+        void append(CharSequence text) {
+            final int length = text.length();
+            for (int i = 0; i < length; i++) {
+                final char c = text.charAt(i);
+                if (mWhitespace != Whitespace.EXACT && Character.isWhitespace(c)) {
+                    // A run of whitespace only counts once something follows it
+                    mPendingSpace = (mWhitespace == Whitespace.IGNORE_CHANGE);
+                    continue;
+                }
+                if (mPendingSpace) {
+                    mHash = hashChar(mHash, ' ');
+                    mPendingSpace = false;
+                }
+                mHash = hashChar(mHash, normalizeCase(c));
+            }
+        }
+
+        long finish() {
+            return ComparisonMode.finish(mHash);
+        }
+    }
+}
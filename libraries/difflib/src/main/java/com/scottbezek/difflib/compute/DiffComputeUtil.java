@@ -1,8 +1,5 @@
 package com.scottbezek.difflib.compute;
 
-import com.scottbezek.util.Assert;
-
-import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -53,53 +50,53 @@ public class DiffComputeUtil {
     }
 
     /**
-     * Takes 2 lists of elements and returns 2 new lists with the shared prefix and/or
-     * suffix removed. The input lists are not modified.
+     * Run-length encoded variant of {@link #removeSmallUnchangedRegions(List)}, which works a
+     * whole run at a time. See {@link EditScriptCleanup} for a configurable version.
+     *
+     * @param editScript Original edit script, to be modified in place.
+     */
+    public static void removeSmallUnchangedRegions(EditScript editScript) {
+        boolean seenChange = false;
+        // The last run is never followed by a change, so it is never converted
+        for (int run = 0; run < editScript.getRunCount() - 1; run++) {
+            if (editScript.getRunEdit(run) != Edit.UNCHANGED) {
+                seenChange = true;
+            } else if (seenChange && editScript.getRunLength(run) < 4) {
+                editScript.setRunEdit(run, Edit.REPLACE);
+            }
+        }
+        editScript.coalesce();
+    }
+
+    /**
+     * Takes 2 lists of elements and returns views of them with the shared prefix and/or
+     * suffix removed. Nothing is copied: the views are backed by the input lists, which must
+     * not be structurally modified while the views are in use.
      */
     public static <Element> ElementListPair<Element> getTrimmedElements(List<Element> first,
             List<Element> second) {
+        final int shorterSize = Math.min(first.size(), second.size());
+
+        // Iterate rather than index, so that linked lists are trimmed in linear time too
         final ListIterator<Element> firstIterator = first.listIterator();
         final ListIterator<Element> secondIterator = second.listIterator();
-
-        // Move both iterators forward until the elements don't match or the end
-        // of either string is reached.
-        while (firstIterator.hasNext() && secondIterator.hasNext()) {
-            if (!firstIterator.next().equals(secondIterator.next())) {
-                firstIterator.previous();
-                secondIterator.previous();
-                break;
-            }
+        int prefixLength = 0;
+        while (prefixLength < shorterSize
+                && firstIterator.next().equals(secondIterator.next())) {
+            prefixLength++;
         }
 
         final ListIterator<Element> firstBackwardIterator = first.listIterator(first.size());
         final ListIterator<Element> secondBackwardIterator = second.listIterator(second.size());
-        while (firstBackwardIterator.hasPrevious()
-                && secondBackwardIterator.hasPrevious()
-                && firstBackwardIterator.previousIndex() >= firstIterator.nextIndex()
-                && secondBackwardIterator.previousIndex() >= secondIterator.nextIndex()) {
-            if (!firstBackwardIterator.previous().equals(secondBackwardIterator.previous())) {
-                firstBackwardIterator.next();
-                secondBackwardIterator.next();
-                break;
-            }
-        }
-
-        final List<Element> firstTrimmed = new ArrayList<Element>();
-        while (firstIterator.hasNext()
-                && firstIterator.nextIndex() <= firstBackwardIterator.previousIndex()) {
-            firstTrimmed.add(firstIterator.next());
-        }
-
-        final List<Element> secondTrimmed = new ArrayList<Element>();
-        while (secondIterator.hasNext()
-                && secondIterator.nextIndex() <= secondBackwardIterator.previousIndex()) {
-            secondTrimmed.add(secondIterator.next());
+        int suffixLength = 0;
+        while (suffixLength < shorterSize - prefixLength
+                && firstBackwardIterator.previous().equals(secondBackwardIterator.previous())) {
+            suffixLength++;
         }
 
-        // Same number of elements should have been trimmed from each
-        Assert.isTrue(
-                (first.size() - firstTrimmed.size()) == (second.size() - secondTrimmed.size()));
-        return new ElementListPair<Element>(firstTrimmed, secondTrimmed);
+        return new ElementListPair<Element>(
+                first.subList(prefixLength, first.size() - suffixLength),
+                second.subList(prefixLength, second.size() - suffixLength));
     }
 
     public static class ElementListPair<Element> {
@@ -0,0 +1,227 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Reusable buffers for computing diffs, so that diffing many short sequences (e.g. every line of
+ * a file) doesn't allocate new tables for each one. Buffers grow on demand and are kept for the
+ * next diff, up to a limit so that one huge diff doesn't pin a huge buffer forever.
+ * <p/>
+ * A workspace may only be used by one diff at a time, and must not be shared between threads;
+ * use {@link #forCurrentThread()} to get one for the calling thread.
+ */
+public class DiffWorkspace {
+
+    /** Buffers larger than this many elements are allocated for a single use and not kept. */
+    private static final int MAX_RETAINED_BUFFER_LENGTH = 1024 * 1024;
+
+    /**
+     * The key dictionary is cleared once it grows past this many tokens, so that it doesn't
+     * grow without bound when diffing many unrelated sequences.
+     */
+    private static final int MAX_RETAINED_DICTIONARY_SIZE = 64 * 1024;
+
+    /**
+     * The element dictionary is emptied after every diff. One that held more than this many
+     * elements is replaced rather than cleared, since clearing takes time proportional to its
+     * capacity, which never shrinks.
+     */
+    private static final int MAX_CLEARED_DICTIONARY_SIZE = 1024;
+
+    private static final ThreadLocal<DiffWorkspace> sThreadWorkspace =
+            new ThreadLocal<DiffWorkspace>() {
+                @Override
+                protected DiffWorkspace initialValue() {
+                    return new DiffWorkspace();
+                }
+            };
+
+    /**
+     * Returns the workspace belonging to the calling thread.
+     */
+    public static DiffWorkspace forCurrentThread() {
+        return sThreadWorkspace.get();
+    }
+
+    /**
+     * Only holds elements while a diff is being tokenized, so that they aren't kept reachable by
+     * the thread's workspace afterwards. Keys hold no references, so they're kept.
+     */
+    private TokenDictionary<Object> mDictionary = new TokenDictionary<Object>();
+
+    private final KeyDictionary mKeyDictionary = new KeyDictionary();
+
+    private int[] mFirstTokens = new int[0];
+
+    private int[] mSecondTokens = new int[0];
+
+    private final int[][] mCostRows = new int[2][0];
+
+    private long[] mEditTypeTable = new long[0];
+
+    private final BitParallelDiff mBitParallelDiff = new BitParallelDiff();
+
+    /**
+     * Maps the elements of the first sequence of a diff to tokens, returning a buffer holding
+     * them. The buffer may be longer than the number of elements.
+     */
+    int[] tokenizeFirst(List<?> elements) {
+        return tokenizeFirst(elements, ComparisonMode.EXACT);
+    }
+
+    /**
+     * Like {@link #tokenizeFirst(List)}, but elements that are equal under the mode get equal
+     * tokens. Unless the mode is exact, the elements must be {@link CharSequence}s or lists of
+     * them (see {@link ComparisonMode#getKey(List)}).
+     */
+    int[] tokenizeFirst(List<?> elements, ComparisonMode mode) {
+        return tokenize(elements, mode, getFirstTokens(elements.size()));
+    }
+
+    /**
+     * Maps the segments of the text between consecutive boundaries, from boundaries[from] to
+     * boundaries[to], to tokens, returning a buffer holding them. Segments that are equal under
+     * the mode get equal tokens. Nothing is allocated per segment.
+     */
+    int[] tokenizeFirst(CharSequence text, int[] boundaries, int from, int to,
+            ComparisonMode mode) {
+        return tokenize(text, boundaries, from, to, mode, getFirstTokens(to - from));
+    }
+
+    /**
+     * Like {@link #tokenizeFirst(List)}, for the second sequence of a diff. The two sequences
+     * share a dictionary, so equal elements get equal tokens.
+     */
+    int[] tokenizeSecond(List<?> elements) {
+        return tokenizeSecond(elements, ComparisonMode.EXACT);
+    }
+
+    /**
+     * Like {@link #tokenizeFirst(List, ComparisonMode)}, for the second sequence of a diff.
+     */
+    int[] tokenizeSecond(List<?> elements, ComparisonMode mode) {
+        final int[] tokens = tokenize(elements, mode, getSecondTokens(elements.size()));
+        // Both sequences have their tokens, so the elements are no longer needed
+        releaseElements();
+        return tokens;
+    }
+
+    /**
+     * Like {@link #tokenizeFirst(CharSequence, int[], int, int, ComparisonMode)}, for the second
+     * sequence of a diff.
+     */
+    int[] tokenizeSecond(CharSequence text, int[] boundaries, int from, int to,
+            ComparisonMode mode) {
+        return tokenize(text, boundaries, from, to, mode, getSecondTokens(to - from));
+    }
+
+    private int[] getFirstTokens(int length) {
+        // Only safe to forget old tokens before tokenizing the first sequence of a diff. The
+        // elements are normally released already, unless the last diff failed halfway.
+        releaseElements();
+        if (mKeyDictionary.size() > MAX_RETAINED_DICTIONARY_SIZE) {
+            mKeyDictionary.clear();
+        }
+        final int[] tokens = grow(mFirstTokens, length);
+        if (tokens.length <= MAX_RETAINED_BUFFER_LENGTH) {
+            mFirstTokens = tokens;
+        }
+        return tokens;
+    }
+
+    /**
+     * Empties the element dictionary, so that the elements of the last diff can be collected.
+     */
+    private void releaseElements() {
+        if (mDictionary.size() > MAX_CLEARED_DICTIONARY_SIZE) {
+            mDictionary = new TokenDictionary<Object>();
+        } else if (mDictionary.size() > 0) {
+            mDictionary.clear();
+        }
+    }
+
+    private int[] getSecondTokens(int length) {
+        final int[] tokens = grow(mSecondTokens, length);
+        if (tokens.length <= MAX_RETAINED_BUFFER_LENGTH) {
+            mSecondTokens = tokens;
+        }
+        return tokens;
+    }
+
+    private int[] tokenize(CharSequence text, int[] boundaries, int from, int to,
+            ComparisonMode mode, int[] tokens) {
+        for (int i = from; i < to; i++) {
+            tokens[i - from] = mKeyDictionary.getToken(
+                    mode.getKey(text, boundaries[i], boundaries[i + 1]));
+        }
+        return tokens;
+    }
+
+    private int[] tokenize(List<?> elements, ComparisonMode mode, int[] tokens) {
+        if (elements instanceof RandomAccess) {
+            for (int i = 0; i < elements.size(); i++) {
+                tokens[i] = getToken(elements.get(i), mode);
+            }
+        } else {
+            int i = 0;
+            for (Object element : elements) {
+                tokens[i++] = getToken(element, mode);
+            }
+        }
+        return tokens;
+    }
+
+    private int getToken(Object element, ComparisonMode mode) {
+        if (mode.isExact()) {
+            return mDictionary.getToken(element);
+        }
+        return mKeyDictionary.getToken(mode.getElementKey(element));
+    }
+
+    /**
+     * Returns cost row buffer number <code>index</code> (0 or 1), with at least the given length.
+     * Contents are undefined.
+     */
+    int[] getCostRow(int index, int length) {
+        final int[] row = grow(mCostRows[index], length);
+        if (row.length <= MAX_RETAINED_BUFFER_LENGTH) {
+            mCostRows[index] = row;
+        }
+        return row;
+    }
+
+    /**
+     * Returns a packed edit type table (see {@link IntLevenshteinDiff}) with room for at least the
+     * given number of cells. Contents are undefined.
+     */
+    long[] getEditTypeTable(long cells) {
+        final long words = (cells + 31) >>> 5;
+        if (words <= mEditTypeTable.length) {
+            return mEditTypeTable;
+        }
+        if (words > MAX_RETAINED_BUFFER_LENGTH) {
+            return IntLevenshteinDiff.newEditTypeTable(cells);
+        }
+        mEditTypeTable = new long[(int) Math.min(MAX_RETAINED_BUFFER_LENGTH,
+                Math.max(words, 2L * mEditTypeTable.length))];
+        return mEditTypeTable;
+    }
+
+    /**
+     * Returns the workspace's {@link BitParallelDiff}, which keeps its own buffers.
+     */
+    BitParallelDiff getBitParallelDiff() {
+        return mBitParallelDiff;
+    }
+
+    /**
+     * Returns the buffer if it has at least the given length, or a new, larger one otherwise.
+     */
+    private static int[] grow(int[] buffer, int length) {
+        if (length <= buffer.length) {
+            return buffer;
+        }
+        return new int[Math.max(length, Math.min(MAX_RETAINED_BUFFER_LENGTH, 2 * buffer.length))];
+    }
+}
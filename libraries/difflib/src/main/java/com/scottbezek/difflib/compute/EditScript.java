@@ -0,0 +1,224 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Run-length encoded edit string. Edit strings tend to be a handful of long runs of the same
+ * {@link Edit}, so rather than one list entry per element, each run is stored as a single int
+ * holding both the edit and the run length.
+ * <p/>
+ * Runs are accessed by index (see {@link #getRunCount()}, {@link #getRunEdit(int)} and {@link
+ * #getRunLength(int)}), which avoids allocating an iterator. Adjacent runs of the same edit are
+ * merged by {@link #append(Edit, int)}, but may appear after {@link #setRunEdit(int, Edit)}
+ * until {@link #coalesce()} is called.
+ */
+public class EditScript {
+
+    private static final Edit[] EDITS = Edit.values();
+
+    private static final int EDIT_BITS = 2;
+
+    private static final int EDIT_MASK = (1 << EDIT_BITS) - 1;
+
+    /** Longest run that can be stored in a single entry; longer runs are split. */
+    private static final int MAX_RUN_LENGTH = Integer.MAX_VALUE >>> EDIT_BITS;
+
+    private int[] mRuns;
+
+    private int mRunCount = 0;
+
+    public EditScript() {
+        mRuns = new int[4];
+    }
+
+    /**
+     * Construct a copy of another EditScript.
+     */
+    public EditScript(EditScript other) {
+        mRuns = Arrays.copyOf(other.mRuns, Math.max(other.mRunCount, 1));
+        mRunCount = other.mRunCount;
+    }
+
+    /**
+     * Construct an EditScript from an edit string (one {@link Edit} per element).
+     */
+    public static EditScript fromEditString(List<Edit> editString) {
+        final EditScript script = new EditScript();
+        for (Edit edit : editString) {
+            script.append(edit, 1);
+        }
+        return script;
+    }
+
+    /**
+     * Returns the equivalent edit string, with one {@link Edit} per element.
+     */
+    public List<Edit> toEditString() {
+        final List<Edit> editString = new ArrayList<Edit>(getLength());
+        for (int run = 0; run < mRunCount; run++) {
+            final Edit edit = getRunEdit(run);
+            for (int i = getRunLength(run); i > 0; i--) {
+                editString.add(edit);
+            }
+        }
+        return editString;
+    }
+
+    /**
+     * Append a run of <code>length</code> of the given edit, merging it into the last run if
+     * that is the same edit. Appending a run of length 0 does nothing.
+     * @return <code>this</code>, for chaining.
+     */
+    public EditScript append(Edit edit, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative run length: " + length);
+        }
+        if (length == 0) {
+            return this;
+        }
+        if (mRunCount > 0 && getRunEdit(mRunCount - 1) == edit) {
+            final int lastLength = getRunLength(mRunCount - 1);
+            final int merged = (int) Math.min(MAX_RUN_LENGTH, (long) lastLength + length);
+            mRuns[mRunCount - 1] = pack(edit, merged);
+            length -= merged - lastLength;
+        }
+        while (length > 0) {
+            final int runLength = Math.min(MAX_RUN_LENGTH, length);
+            if (mRunCount == mRuns.length) {
+                mRuns = Arrays.copyOf(mRuns, mRuns.length * 2);
+            }
+            mRuns[mRunCount++] = pack(edit, runLength);
+            length -= runLength;
+        }
+        return this;
+    }
+
+    /**
+     * Append all of the runs of another EditScript.
+     * @return <code>this</code>, for chaining.
+     */
+    public EditScript append(EditScript other) {
+        for (int run = 0; run < other.mRunCount; run++) {
+            append(other.getRunEdit(run), other.getRunLength(run));
+        }
+        return this;
+    }
+
+    public int getRunCount() {
+        return mRunCount;
+    }
+
+    public Edit getRunEdit(int run) {
+        return EDITS[mRuns[run] & EDIT_MASK];
+    }
+
+    public int getRunLength(int run) {
+        return mRuns[run] >>> EDIT_BITS;
+    }
+
+    /**
+     * Returns the number of elements of the first sequence that the run consumes.
+     */
+    public int getRunFirstLength(int run) {
+        return getRunEdit(run) == Edit.INSERT ? 0 : getRunLength(run);
+    }
+
+    /**
+     * Returns the number of elements of the second sequence that the run consumes.
+     */
+    public int getRunSecondLength(int run) {
+        return getRunEdit(run) == Edit.DELETE ? 0 : getRunLength(run);
+    }
+
+    /**
+     * Change the edit of a run, keeping its length. This may leave adjacent runs of the same
+     * edit; see {@link #coalesce()}.
+     */
+    public void setRunEdit(int run, Edit edit) {
+        mRuns[run] = pack(edit, getRunLength(run));
+    }
+
+    /**
+     * Merges adjacent runs of the same edit, in place.
+     */
+    public void coalesce() {
+        int out = 0;
+        for (int run = 0; run < mRunCount; run++) {
+            final Edit edit = getRunEdit(run);
+            if (out > 0 && EDITS[mRuns[out - 1] & EDIT_MASK] == edit
+                    && (long) (mRuns[out - 1] >>> EDIT_BITS) + getRunLength(run)
+                            <= MAX_RUN_LENGTH) {
+                mRuns[out - 1] = pack(edit, (mRuns[out - 1] >>> EDIT_BITS) + getRunLength(run));
+            } else {
+                mRuns[out++] = mRuns[run];
+            }
+        }
+        mRunCount = out;
+    }
+
+    /**
+     * Reverses the order of the runs, in place.
+     */
+    void reverse() {
+        for (int i = 0, j = mRunCount - 1; i < j; i++, j--) {
+            final int swap = mRuns[i];
+            mRuns[i] = mRuns[j];
+            mRuns[j] = swap;
+        }
+    }
+
+    /**
+     * Returns the total length of all runs, i.e. the length of the equivalent edit string.
+     */
+    public int getLength() {
+        int length = 0;
+        for (int run = 0; run < mRunCount; run++) {
+            length += getRunLength(run);
+        }
+        return length;
+    }
+
+    private static int pack(Edit edit, int length) {
+        return (length << EDIT_BITS) | edit.ordinal();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EditScript)) {
+            return false;
+        }
+        final EditScript other = (EditScript) o;
+        if (mRunCount != other.mRunCount) {
+            return false;
+        }
+        for (int run = 0; run < mRunCount; run++) {
+            if (mRuns[run] != other.mRuns[run]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int run = 0; run < mRunCount; run++) {
+            hash = 31 * hash + mRuns[run];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int run = 0; run < mRunCount; run++) {
+            sb.append(getRunEdit(run).name().charAt(0)).append(getRunLength(run));
+        }
+        return sb.toString();
+    }
+}
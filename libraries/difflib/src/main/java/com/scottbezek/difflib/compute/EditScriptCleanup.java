@@ -0,0 +1,259 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Makes edit scripts easier to read by absorbing unchanged runs that are more noise than signal
+ * into the changes around them, along the lines of the efficiency and semantic cleanups of
+ * diff-match-patch. Absorbed unchanged elements become {@link Edit#REPLACE}s, so the script
+ * still consumes the same elements of both sequences.
+ * <p/>
+ * An unchanged run between two changes is absorbed if it is shorter than the min unchanged
+ * length (see {@link #setMinUnchangedLength(int)}), or, in semantic mode (see {@link
+ * #setSemantic(boolean)}), if it is no longer than the changes on either side of it. If word
+ * boundaries are given (see {@link #setBoundaries(BitSet, BitSet)}), unchanged runs next to a
+ * change are first shrunk to whole words, so that a word is never left partly highlighted.
+ * <p/>
+ * The cleanup is a single pass over the runs. Absorbing a run can make the run before it
+ * eligible in semantic mode, so the unchanged runs kept so far are held on a stack and
+ * rechecked from the top; each is absorbed at most once, so the total time is still linear in
+ * the number of runs (plus the elements scanned for word boundaries).
+ */
+public class EditScriptCleanup {
+
+    /**
+     * Default value for {@link #setMinUnchangedLength(int)}, the same as {@link
+     * DiffComputeUtil#removeSmallUnchangedRegions(EditScript)}.
+     */
+    public static final int DEFAULT_MIN_UNCHANGED_LENGTH = 4;
+
+    private int mMinUnchangedLength = DEFAULT_MIN_UNCHANGED_LENGTH;
+
+    private boolean mSemantic = false;
+
+    private BitSet mFirstBoundaries = null;
+
+    private BitSet mSecondBoundaries = null;
+
+    /**
+     * Set the length below which an unchanged run between two changes is always absorbed. 0
+     * disables this.
+     * @return <code>this</code>, for chaining.
+     */
+    public EditScriptCleanup setMinUnchangedLength(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length: " + length);
+        }
+        mMinUnchangedLength = length;
+        return this;
+    }
+
+    /**
+     * Set whether to also absorb unchanged runs between two changes that are no longer than
+     * either change, measuring each change by the larger of the number of elements it removes
+     * and adds. This merges the scattered matches of unrelated text into one change.
+     * @return <code>this</code>, for chaining.
+     */
+    public EditScriptCleanup setSemantic(boolean semantic) {
+        mSemantic = semantic;
+        return this;
+    }
+
+    /**
+     * Set the word boundaries of the sequences, or null to ignore words. Bit i is set if a word
+     * starts at element i; the start and end of each sequence are always boundaries.
+     * @return <code>this</code>, for chaining.
+     */
+    public EditScriptCleanup setBoundaries(BitSet firstBoundaries, BitSet secondBoundaries) {
+        if ((firstBoundaries == null) != (secondBoundaries == null)) {
+            throw new IllegalArgumentException("Need boundaries for both sequences, or neither");
+        }
+        mFirstBoundaries = firstBoundaries;
+        mSecondBoundaries = secondBoundaries;
+        return this;
+    }
+
+    /**
+     * Returns a cleaned up copy of the edit script, which is not modified.
+     */
+    public EditScript apply(EditScript editScript) {
+        final EditScript input = new EditScript(editScript);
+        input.coalesce();
+        int firstLength = 0;
+        int secondLength = 0;
+        for (int run = 0; run < input.getRunCount(); run++) {
+            firstLength += input.getRunFirstLength(run);
+            secondLength += input.getRunSecondLength(run);
+        }
+
+        final CleanupPass pass = new CleanupPass();
+        boolean seenChange = false;
+        int first = 0;
+        int second = 0;
+        for (int run = 0; run < input.getRunCount(); run++) {
+            final Edit edit = input.getRunEdit(run);
+            final int length = input.getRunLength(run);
+            if (edit != Edit.UNCHANGED) {
+                pass.appendChange(edit, length);
+                seenChange = true;
+                first += input.getRunFirstLength(run);
+                second += input.getRunSecondLength(run);
+                continue;
+            }
+
+            final boolean followsChange = seenChange;
+            final boolean precedesChange = (run < input.getRunCount() - 1);
+            final int head = followsChange
+                    ? getWordHeadLength(first, second, length, firstLength, secondLength) : 0;
+            final int tail = precedesChange
+                    ? getWordTailLength(first + head, second + head, length - head,
+                            firstLength, secondLength)
+                    : 0;
+            final int middle = length - head - tail;
+            first += length;
+            second += length;
+
+            // The head finishes off the change before this run, and the tail starts off the
+            // change after it
+            pass.appendChange(Edit.REPLACE, head);
+            if (middle > 0) {
+                pass.appendUnchanged(middle, followsChange, precedesChange);
+            }
+            pass.appendChange(Edit.REPLACE, tail);
+        }
+        return pass.finish();
+    }
+
+    private boolean isBoundary(BitSet boundaries, int index, int length) {
+        return index == 0 || index == length || boundaries.get(index);
+    }
+
+    private boolean isCommonBoundary(int first, int second, int firstLength,
+            int secondLength) {
+        return isBoundary(mFirstBoundaries, first, firstLength)
+                && isBoundary(mSecondBoundaries, second, secondLength);
+    }
+
+    /**
+     * Returns the number of elements at the start of an unchanged run (starting at first and
+     * second) before the first word boundary of both sequences.
+     */
+    private int getWordHeadLength(int first, int second, int length, int firstLength,
+            int secondLength) {
+        if (mFirstBoundaries == null) {
+            return 0;
+        }
+        int head = 0;
+        while (head < length
+                && !isCommonBoundary(first + head, second + head, firstLength, secondLength)) {
+            head++;
+        }
+        return head;
+    }
+
+    /**
+     * Returns the number of elements at the end of an unchanged run (starting at first and
+     * second) after the last word boundary of both sequences.
+     */
+    private int getWordTailLength(int first, int second, int length, int firstLength,
+            int secondLength) {
+        if (mFirstBoundaries == null) {
+            return 0;
+        }
+        int tail = 0;
+        while (tail < length && !isCommonBoundary(first + length - tail,
+                second + length - tail, firstLength, secondLength)) {
+            tail++;
+        }
+        return tail;
+    }
+
+    private boolean shouldAbsorb(int length, int beforeFirst, int beforeSecond,
+            int afterFirst, int afterSecond) {
+        return length < mMinUnchangedLength
+                || (mSemantic
+                        && length <= Math.max(beforeFirst, beforeSecond)
+                        && length <= Math.max(afterFirst, afterSecond));
+    }
+
+    /**
+     * State of a single {@link #apply(EditScript)}.
+     */
+    private class CleanupPass {
+
+        private final EditScript mOutput = new EditScript();
+
+        /** Elements removed and added by the change since the last unchanged run. */
+        private int mChangeFirst = 0;
+
+        private int mChangeSecond = 0;
+
+        /**
+         * Stack of the unchanged runs between changes kept so far, as four ints per run: the
+         * index of the run in the output, its length, and the first and second sequence
+         * lengths of the change before it.
+         */
+        private int[] mKeptRuns = new int[16];
+
+        private int mKeptSize = 0;
+
+        void appendChange(Edit edit, int length) {
+            mOutput.append(edit, length);
+            if (edit != Edit.INSERT) {
+                mChangeFirst += length;
+            }
+            if (edit != Edit.DELETE) {
+                mChangeSecond += length;
+            }
+        }
+
+        void appendUnchanged(int length, boolean followsChange, boolean precedesChange) {
+            if (followsChange) {
+                absorbEligible();
+            }
+            mOutput.append(Edit.UNCHANGED, length);
+            if (followsChange && precedesChange) {
+                if (mKeptSize + 4 > mKeptRuns.length) {
+                    mKeptRuns = Arrays.copyOf(mKeptRuns, 2 * mKeptRuns.length);
+                }
+                mKeptRuns[mKeptSize] = mOutput.getRunCount() - 1;
+                mKeptRuns[mKeptSize + 1] = length;
+                mKeptRuns[mKeptSize + 2] = mChangeFirst;
+                mKeptRuns[mKeptSize + 3] = mChangeSecond;
+                mKeptSize += 4;
+            }
+            mChangeFirst = 0;
+            mChangeSecond = 0;
+        }
+
+        /**
+         * Called once the current change is complete, to absorb the kept runs before it that
+         * are now eligible, merging their changes into it.
+         */
+        private void absorbEligible() {
+            while (mKeptSize > 0) {
+                final int length = mKeptRuns[mKeptSize - 3];
+                final int beforeFirst = mKeptRuns[mKeptSize - 2];
+                final int beforeSecond = mKeptRuns[mKeptSize - 1];
+                if (!shouldAbsorb(length, beforeFirst, beforeSecond,
+                        mChangeFirst, mChangeSecond)) {
+                    break;
+                }
+                mOutput.setRunEdit(mKeptRuns[mKeptSize - 4], Edit.REPLACE);
+                mChangeFirst += beforeFirst + length;
+                mChangeSecond += beforeSecond + length;
+                mKeptSize -= 4;
+            }
+        }
+
+        EditScript finish() {
+            // Only if the script ends with a change, since every change has a nonzero size
+            if (mChangeFirst > 0 || mChangeSecond > 0) {
+                absorbEligible();
+            }
+            mOutput.coalesce();
+            return mOutput;
+        }
+    }
+}
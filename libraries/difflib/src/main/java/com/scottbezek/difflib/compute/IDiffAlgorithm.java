@@ -0,0 +1,16 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.List;
+
+/**
+ * A sequence diff algorithm which computes an edit string transforming one sequence into another.
+ * Implementations must be safe to reuse for multiple, independent computations.
+ */
+public interface IDiffAlgorithm {
+
+    /**
+     * Compute an edit string which transforms <code>first</code> into <code>second</code>.
+     * Elements are compared using {@link Object#equals(Object)}.
+     */
+    <Element> EditScript computeEditScript(List<Element> first, List<Element> second);
+}
@@ -0,0 +1,1134 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.CompareUtil;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Core of {@link LevenshteinDiff}, which computes an edit string of minimal Levenshtein cost
+ * between two sequences of int tokens. Comparing primitive tokens (see {@link TokenDictionary})
+ * keeps the innermost loop free of virtual calls and {@link Object#equals(Object)}.
+ * <p/>
+ * Only two rows of costs are kept at a time. When all costs are integers (the common case) they
+ * are computed as ints; otherwise the rows hold the raw bits of float costs, so that results are
+ * identical either way. The edit type of each cell, needed to trace back the edit string, is
+ * packed into 2 bits of a single flat array.
+ */
+public class IntLevenshteinDiff {
+
+    /**
+     * Default value for {@link #setLinearSpaceThreshold(long)}. Tables of this many cells take
+     * roughly 50MB in the full O(NM) mode.
+     */
+    public static final long DEFAULT_LINEAR_SPACE_THRESHOLD = 4L * 1024 * 1024;
+
+    /**
+     * Maximum number of cells of edit types to hold at once while tracing back in linear space
+     * mode. Regions with more cells than this are split in half by rows.
+     */
+    private static final int LINEAR_SPACE_BLOCK_CELLS = 64 * 1024;
+
+    /** Tables with fewer cells than this are always computed serially. */
+    private static final long MIN_PARALLEL_CELLS = 256 * 1024;
+
+    /** Number of rows of each tile in parallel mode. */
+    private static final int PARALLEL_TILE_ROWS = 128;
+
+    /**
+     * Number of columns of each tile in parallel mode. A multiple of 32, so that tiles never
+     * share a word of edit types.
+     */
+    private static final int PARALLEL_TILE_COLUMNS = 1024;
+
+    /**
+     * Integers up to this magnitude are exactly representable as floats, so integral costs whose
+     * sums stay below this give the same results whether computed as ints or floats.
+     */
+    private static final int MAX_EXACT_INTEGER_COST = 1 << 24;
+
+    /** Stored cost of a cell that can't be reached, when computing with integer costs. */
+    private static final int UNREACHABLE_INTEGER = Integer.MAX_VALUE / 2;
+
+    /** Stored cost of a cell that can't be reached, when computing with float costs. */
+    private static final int UNREACHABLE_FLOAT = Float.floatToRawIntBits(Float.POSITIVE_INFINITY);
+
+    private static final Edit[] EDITS = Edit.values();
+
+    private final int[] mFirst;
+
+    private final int mInputFirstOffset;
+
+    private final int mInputFirstLength;
+
+    private final int[] mSecond;
+
+    private final int mInputSecondOffset;
+
+    private final int mInputSecondLength;
+
+    /**
+     * Region of the sequences being diffed by the current computation. Row i of the table
+     * corresponds to mFirst[mFirstOffset + i - 1] and column j to mSecond[mSecondOffset + j - 1].
+     * This is the input with its common prefix and suffix trimmed off (see {@link
+     * #trimCommonEnds()}), except when computing the debug cost table.
+     */
+    private int mFirstOffset;
+
+    private int mFirstLength;
+
+    private int mSecondOffset;
+
+    private int mSecondLength;
+
+    private float mInsertCost = 1f;
+
+    private float mReplaceCost = 1f;
+
+    private float mDeleteCost = 1f;
+
+    private long mLinearSpaceThreshold = DEFAULT_LINEAR_SPACE_THRESHOLD;
+
+    private float mMaxCost = Float.POSITIVE_INFINITY;
+
+    private long mOperationBudget = Long.MAX_VALUE;
+
+    /** Whether costs are being computed as ints (see {@link #canUseIntegerCosts()}). */
+    private boolean mIntegerCosts;
+
+    private boolean mComputed = false;
+
+    private EditScript mEditScript = null;
+
+    private boolean mExceedsMaxCost = false;
+
+    private boolean mExceedsOperationBudget = false;
+
+    private DiffWorkspace mWorkspace = null;
+
+    private boolean mBitParallelEnabled = true;
+
+    private Executor mExecutor = null;
+
+    /** Range of diagonals computed in cost bounded mode (see {@link #findDiagonalBand()}). */
+    private int mLowestDiagonal;
+
+    private int mHighestDiagonal;
+
+    /**
+     * Construct an IntLevenshteinDiff to compute the edit string between two sequences of
+     * tokens. The arrays must not be modified until the diff has been computed.
+     * <p/>
+     * Cost parameters of operations may optionally be adjusted via {@link #setInsertCost(float)},
+     * {@link #setDeleteCost(float)}, {@link #setReplaceCost(float)} before calling {@link
+     * #compute()}.
+     */
+    public IntLevenshteinDiff(int[] first, int[] second) {
+        this(first, first.length, second, second.length);
+    }
+
+    /**
+     * Construct an IntLevenshteinDiff to compute the edit string between the first firstLength
+     * tokens of first and the first secondLength tokens of second. This allows the tokens to be
+     * held in reusable buffers (see {@link DiffWorkspace}).
+     */
+    public IntLevenshteinDiff(int[] first, int firstLength, int[] second, int secondLength) {
+        this(first, 0, firstLength, second, 0, secondLength);
+    }
+
+    /**
+     * Construct an IntLevenshteinDiff to compute the edit string between the firstLength tokens
+     * of first starting at firstOffset, and the secondLength tokens of second starting at
+     * secondOffset. The tokens are never copied.
+     */
+    public IntLevenshteinDiff(int[] first, int firstOffset, int firstLength,
+            int[] second, int secondOffset, int secondLength) {
+        if (firstOffset < 0 || firstLength < 0 || firstOffset + firstLength > first.length) {
+            throw new IndexOutOfBoundsException("Invalid first range: offset " + firstOffset
+                    + ", length " + firstLength + ", array length " + first.length);
+        }
+        if (secondOffset < 0 || secondLength < 0 || secondOffset + secondLength > second.length) {
+            throw new IndexOutOfBoundsException("Invalid second range: offset " + secondOffset
+                    + ", length " + secondLength + ", array length " + second.length);
+        }
+        mFirst = first;
+        mInputFirstOffset = firstOffset;
+        mInputFirstLength = firstLength;
+        mSecond = second;
+        mInputSecondOffset = secondOffset;
+        mInputSecondLength = secondLength;
+    }
+
+    /**
+     * Set the cost of an insertion. Should be called before {@link #compute()}.
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff setInsertCost(float cost) {
+        mInsertCost = cost;
+        return this;
+    }
+
+    /**
+     * Set the cost of a replacement. Should be called before {@link #compute()}.
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff setReplaceCost(float cost) {
+        mReplaceCost = cost;
+        return this;
+    }
+
+    /**
+     * Set the cost of a deletion. Should be called before {@link #compute()}.
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff setDeleteCost(float cost) {
+        mDeleteCost = cost;
+        return this;
+    }
+
+    /**
+     * Set the table size (number of cells, (N+1)*(M+1)) above which {@link #compute()} switches
+     * to linear space mode. Linear space mode produces exactly the same edit string, but never
+     * holds the full tables in memory, at the expense of roughly log(N) times more computation.
+     * Should be called before {@link #compute()}.
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff setLinearSpaceThreshold(long cells) {
+        mLinearSpaceThreshold = cells;
+        return this;
+    }
+
+    /**
+     * Set the maximum acceptable cost of the edit string. If the sequences are so different that
+     * the minimal edit string costs more than this, {@link #compute()} gives up as early as it
+     * can and {@link #exceedsMaxCost()} returns true. Should be called before {@link
+     * #compute()}.
+     * <p/>
+     * Only cells on diagonals that could possibly be part of an edit string within the bound are
+     * computed (Ukkonen's cutoff), so for a max cost of D the diff takes O(D*min(N,M)) time and
+     * space rather than O(NM).
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff setMaxCost(float maxCost) {
+        mMaxCost = maxCost;
+        return this;
+    }
+
+    /**
+     * Set the most table cells the diff may compute, as a bound on its running time. If the
+     * differing middle of the sequences (see {@link #compute()}) needs more cells than this in
+     * the mode that would be used, it isn't diffed at all: the edit string leaves the common
+     * prefix and suffix unchanged and simply replaces the middle, and {@link
+     * #exceedsOperationBudget()} returns true. The check is made up front, so an over-budget
+     * diff takes time linear in the length of the sequences. Should be called before {@link
+     * #compute()}.
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff setOperationBudget(long cells) {
+        if (cells < 0) {
+            throw new IllegalArgumentException("Negative budget: " + cells);
+        }
+        mOperationBudget = cells;
+        return this;
+    }
+
+    /**
+     * Compute into the buffers of the given workspace, rather than allocating new ones. Apart
+     * from the edit string itself, computing a diff that fits within the workspace's buffers
+     * allocates nothing. (Linear space mode, which is only used for huge diffs, still allocates
+     * its own rows.) Should be called before {@link #compute()}.
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff setWorkspace(DiffWorkspace workspace) {
+        mWorkspace = workspace;
+        return this;
+    }
+
+    /**
+     * Compute large tables in parallel on the given executor. The table is split into tiles,
+     * which are computed as soon as the tiles above and to the left of them are done, so the
+     * work proceeds as a wavefront along the anti-diagonals. Every cell is computed exactly as
+     * in serial mode, so the edit string is the same. Both the full table and linear space modes
+     * are parallelized; the bit-parallel and cost bounded modes are always serial.
+     * <p/>
+     * The executor should have roughly as many threads as there are cores; the calling thread
+     * only waits for the tiles to finish. Should be called before {@link #compute()}.
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff setExecutor(Executor executor) {
+        mExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Enable or disable the bit-parallel fast path (see {@link BitParallelDiff}), for testing.
+     * @return <code>this</code>, for chaining.
+     */
+    IntLevenshteinDiff setBitParallelEnabled(boolean enabled) {
+        mBitParallelEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * Returns whether the minimal edit string costs more than the max cost (see {@link
+     * #setMaxCost(float)}), in which case there is no edit string to retrieve. The diff must
+     * have already been computed by calling {@link #compute()}.
+     */
+    public boolean exceedsMaxCost() {
+        if (!mComputed) {
+            throw new IllegalStateException("Must compute the diff first");
+        }
+        return mExceedsMaxCost;
+    }
+
+    /**
+     * Returns whether the diff needed more cells than the operation budget (see {@link
+     * #setOperationBudget(long)}), in which case its edit string is only a coarse one. The diff
+     * must have already been computed by calling {@link #compute()}.
+     */
+    public boolean exceedsOperationBudget() {
+        if (!mComputed) {
+            throw new IllegalStateException("Must compute the diff first");
+        }
+        return mExceedsOperationBudget;
+    }
+
+    /**
+     * Computes the diff. The common prefix and suffix of the sequences are always unchanged, so
+     * they are skipped in linear time, and only the differing middle is diffed; N and M below
+     * are the lengths of that middle, which for typical edits is a small part of the input.
+     * <p/>
+     * The middle is diffed in O(NM) time and O(NM) bits of space, or in O(NM log N) time and
+     * O(N + M log N) space if the table is larger than the linear space threshold (see {@link
+     * #setLinearSpaceThreshold(long)}). If a max cost is set (see {@link #setMaxCost(float)}),
+     * only the band of the table within that cost is computed.
+     * <p/>
+     * If the second sequence has at most 64 tokens and the costs allow it, the table is instead
+     * computed a row at a time with bit-parallel operations (see {@link BitParallelDiff}), in
+     * O(N + M) time and O(N) space. The full table and linear space modes may be computed in
+     * parallel (see {@link #setExecutor(Executor)}). The edit string is the same either way.
+     * <p/>
+     * If the chosen mode would compute more cells than the operation budget (see {@link
+     * #setOperationBudget(long)}), the middle is replaced wholesale instead.
+     * @return <code>this</code>, for chaining.
+     */
+    public IntLevenshteinDiff compute() {
+        mEditScript = null;
+        mExceedsMaxCost = false;
+        mExceedsOperationBudget = false;
+        final int prefixLength = trimCommonEnds();
+        final int suffixLength = mInputFirstLength - prefixLength - mFirstLength;
+        mIntegerCosts = canUseIntegerCosts();
+
+        final EditScript middle;
+        if (getRequiredCells() > mOperationBudget) {
+            mExceedsOperationBudget = true;
+            final int replaced = Math.min(mFirstLength, mSecondLength);
+            middle = new EditScript()
+                    .append(Edit.REPLACE, replaced)
+                    .append(Edit.DELETE, mFirstLength - replaced)
+                    .append(Edit.INSERT, mSecondLength - replaced);
+        } else {
+            middle = computeTrimmed();
+        }
+        if (middle == null) {
+            mExceedsMaxCost = true;
+        } else {
+            // The common ends cost nothing, so they never affect the max cost either
+            mEditScript = new EditScript()
+                    .append(Edit.UNCHANGED, prefixLength)
+                    .append(middle)
+                    .append(Edit.UNCHANGED, suffixLength);
+        }
+        mComputed = true;
+        return this;
+    }
+
+    /**
+     * Sets the region to diff to the input minus its longest common prefix and then its longest
+     * common suffix, which an edit string of minimal cost can always leave unchanged.
+     *
+     * @return The length of the common prefix.
+     */
+    private int trimCommonEnds() {
+        final int prefixLength = CompareUtil.commonPrefixLength(mFirst, mInputFirstOffset,
+                mSecond, mInputSecondOffset, Math.min(mInputFirstLength, mInputSecondLength));
+        mFirstOffset = mInputFirstOffset + prefixLength;
+        mSecondOffset = mInputSecondOffset + prefixLength;
+        final int firstRemaining = mInputFirstLength - prefixLength;
+        final int secondRemaining = mInputSecondLength - prefixLength;
+        final int shorterRemaining = Math.min(firstRemaining, secondRemaining);
+        final int suffixLength = CompareUtil.commonSuffixLength(
+                mFirst, mFirstOffset + firstRemaining - shorterRemaining,
+                mSecond, mSecondOffset + secondRemaining - shorterRemaining, shorterRemaining);
+        mFirstLength = firstRemaining - suffixLength;
+        mSecondLength = secondRemaining - suffixLength;
+        return prefixLength;
+    }
+
+    /**
+     * Returns the number of cells {@link #computeTrimmed()} would compute for the trimmed region:
+     * one per row in bit-parallel mode, the band's cells if a max cost is set (plus the whole
+     * table if the band is too big to keep), and the whole table otherwise.
+     */
+    private long getRequiredCells() {
+        if (mFirstLength == 0 || mSecondLength == 0) {
+            return 0;
+        }
+        if (canComputeBitParallel()) {
+            return mFirstLength;
+        }
+        if (mMaxCost != Float.POSITIVE_INFINITY) {
+            if (!findDiagonalBand()) {
+                return 0;
+            }
+            final long bandCells =
+                    (long) (mFirstLength + 1) * (mHighestDiagonal - mLowestDiagonal + 1);
+            if (bandCells <= mLinearSpaceThreshold) {
+                return bandCells;
+            }
+            return bandCells + (long) mFirstLength * mSecondLength;
+        }
+        return (long) mFirstLength * mSecondLength;
+    }
+
+    /**
+     * Computes the edit string of the trimmed region, choosing the mode as described in {@link
+     * #compute()}.
+     *
+     * @return The edit string, or null if the max cost was exceeded.
+     */
+    private EditScript computeTrimmed() {
+        if (canComputeBitParallel()) {
+            final BitParallelDiff bitParallel = mWorkspace != null
+                    ? mWorkspace.getBitParallelDiff() : new BitParallelDiff();
+            return bitParallel.compute(mFirst, mFirstOffset, mFirstLength,
+                    mSecond, mSecondOffset, mSecondLength,
+                    (int) mInsertCost, (int) mDeleteCost, (int) mReplaceCost, mMaxCost);
+        }
+
+        if (mMaxCost != Float.POSITIVE_INFINITY) {
+            if (!findDiagonalBand()) {
+                return null;
+            }
+            final long bandCells =
+                    (long) (mFirstLength + 1) * (mHighestDiagonal - mLowestDiagonal + 1);
+            if (bandCells <= mLinearSpaceThreshold) {
+                return computeBanded(true);
+            }
+            // Too big to keep even the band, so just check the bound and then fall through
+            if (computeBanded(false) == null) {
+                return null;
+            }
+        }
+
+        final long cells = (long) (mFirstLength + 1) * (mSecondLength + 1);
+        if (cells > mLinearSpaceThreshold) {
+            return computeLinearSpace();
+        } else {
+            return computeFullTable();
+        }
+    }
+
+    /**
+     * Retrieve the edit string for this diff. The diff must have already been computed by calling
+     * {@link #compute()}.
+     *
+     * @throws IllegalStateException If the diff exceeded the max cost (see {@link
+     * #exceedsMaxCost()}).
+     */
+    public List<Edit> getEditString() {
+        return getEditScript().toEditString();
+    }
+
+    /**
+     * Retrieve the run-length encoded edit string for this diff. The diff must have already been
+     * computed by calling {@link #compute()}.
+     *
+     * @throws IllegalStateException If the diff exceeded the max cost (see {@link
+     * #exceedsMaxCost()}).
+     */
+    public EditScript getEditScript() {
+        if (!mComputed) {
+            throw new IllegalStateException("Must compute the diff first");
+        }
+        if (mExceedsMaxCost) {
+            throw new IllegalStateException("Diff exceeds the max cost");
+        }
+        return new EditScript(mEditScript);
+    }
+
+    private boolean canUseIntegerCosts() {
+        final float largestCost = Math.max(mInsertCost, Math.max(mDeleteCost, mReplaceCost));
+        return isSmallNonNegativeInteger(mInsertCost)
+                && isSmallNonNegativeInteger(mDeleteCost)
+                && isSmallNonNegativeInteger(mReplaceCost)
+                // No path has more operations than the total number of elements
+                && (double) largestCost * (mFirstLength + mSecondLength)
+                        < MAX_EXACT_INTEGER_COST;
+    }
+
+    private boolean canComputeBitParallel() {
+        return mBitParallelEnabled
+                && mIntegerCosts
+                && mSecondLength <= BitParallelDiff.MAX_SECOND_LENGTH
+                && BitParallelDiff.supportsCosts(
+                        (int) mInsertCost, (int) mDeleteCost, (int) mReplaceCost);
+    }
+
+    private static boolean isSmallNonNegativeInteger(float cost) {
+        return cost >= 0 && cost < MAX_EXACT_INTEGER_COST && cost == (int) cost;
+    }
+
+    private int getUnreachableCost() {
+        return mIntegerCosts ? UNREACHABLE_INTEGER : UNREACHABLE_FLOAT;
+    }
+
+    /**
+     * Converts a stored cost (see {@link #computeRow}) to its value.
+     */
+    private float toCost(int storedCost) {
+        return mIntegerCosts ? storedCost : Float.intBitsToFloat(storedCost);
+    }
+
+    private int getStoredInsertionsCost(int insertions) {
+        return mIntegerCosts
+                ? insertions * (int) mInsertCost
+                : Float.floatToRawIntBits(insertions * mInsertCost);
+    }
+
+    private EditScript computeFullTable() {
+        final int n = mFirstLength;
+        final int m = mSecondLength;
+        if (isParallel(n, m)) {
+            return computeFullTableParallel();
+        }
+        final long[] editTypes = obtainEditTypeTable((long) (n + 1) * (m + 1));
+
+        int[] previousCostRow = obtainCostRow(0, m + 1);
+        int[] costRow = obtainCostRow(1, m + 1);
+        for (int j = 0; j <= m; j++) {
+            costRow[j] = getStoredInsertionsCost(j);
+        }
+        for (int i = 1; i <= n; i++) {
+            final int[] swap = previousCostRow;
+            previousCostRow = costRow;
+            costRow = swap;
+            computeRow(i, 0, m, previousCostRow, 0, costRow, 0, getUnreachableCost(),
+                    editTypes, (long) i * (m + 1));
+        }
+
+        final EditScript output = new EditScript();
+        final int column = traceBack(editTypes, m + 1, 0, n, m, output);
+        return finishTraceBack(column, output);
+    }
+
+    private EditScript computeFullTableParallel() {
+        final int n = mFirstLength;
+        final int m = mSecondLength;
+        // Pad each row to whole words of edit types
+        final long rowStep = (m + 32) & ~31L;
+        final long[] editTypes = obtainEditTypeTable((n + 1) * rowStep);
+
+        final int[] firstRow = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            firstRow[j] = getStoredInsertionsCost(j);
+        }
+        new TileWavefront(0, n, m, firstRow, editTypes, rowStep).compute();
+
+        final EditScript output = new EditScript();
+        final int column = traceBack(editTypes, rowStep, 0, n, m, output);
+        return finishTraceBack(column, output);
+    }
+
+    private boolean isParallel(int rows, int lastColumn) {
+        return mExecutor != null && (long) rows * (lastColumn + 1) >= MIN_PARALLEL_CELLS;
+    }
+
+    private int[] obtainCostRow(int index, int length) {
+        return mWorkspace != null ? mWorkspace.getCostRow(index, length) : new int[length];
+    }
+
+    private long[] obtainEditTypeTable(long cells) {
+        return mWorkspace != null ? mWorkspace.getEditTypeTable(cells) : newEditTypeTable(cells);
+    }
+
+    /**
+     * Computes columns [firstColumn, lastColumn] of row i of the cost table from the previous
+     * row. All modes of computation share this, so that they make exactly the same choices.
+     * <p/>
+     * Costs are stored as ints, or as the raw int bits of float costs (see {@link #toCost}).
+     * Column j of a row is stored at index (j - base) of its array. Cells of the previous row
+     * outside of [firstColumn - 1, lastColumn] are never read.
+     *
+     * @param leftCost Stored cost of column (firstColumn - 1) of row i, or unreachable if that
+     *                 cell isn't part of the computation.
+     * @param editTypes Receives the edit type of column j at (editTypesBase + j), or null if
+     *                  the edit types aren't needed.
+     */
+    private void computeRow(int i, int firstColumn, int lastColumn,
+            int[] previousCostRow, int previousBase, int[] costRow, int base, int leftCost,
+            long[] editTypes, long editTypesBase) {
+        if (mIntegerCosts) {
+            computeIntegerRow(i, firstColumn, lastColumn, previousCostRow, previousBase,
+                    costRow, base, leftCost, editTypes, editTypesBase);
+        } else {
+            computeFloatRow(i, firstColumn, lastColumn, previousCostRow, previousBase,
+                    costRow, base, leftCost, editTypes, editTypesBase);
+        }
+    }
+
+    private void computeIntegerRow(int i, int firstColumn, int lastColumn,
+            int[] previousCostRow, int previousBase, int[] costRow, int base, int leftCost,
+            long[] editTypes, long editTypesBase) {
+        final int insert = (int) mInsertCost;
+        final int delete = (int) mDeleteCost;
+        final int replace = (int) mReplaceCost;
+        final int firstToken = mFirst[mFirstOffset + i - 1];
+        final int secondBase = mSecondOffset - 1;
+        int left = leftCost;
+        for (int j = firstColumn; j <= lastColumn; j++) {
+            final int opCost;
+            final Edit opType;
+            if (j == 0) {
+                opCost = i * delete;
+                opType = Edit.DELETE;
+            } else {
+                final int deleteCost = previousCostRow[j - previousBase] + delete;
+                final int insertCost = left + insert;
+                final int replaceCost;
+                final Edit replaceType;
+                if (firstToken == mSecond[secondBase + j]) {
+                    replaceCost = previousCostRow[j - 1 - previousBase];
+                    replaceType = Edit.UNCHANGED;
+                } else {
+                    replaceCost = previousCostRow[j - 1 - previousBase] + replace;
+                    replaceType = Edit.REPLACE;
+                }
+
+                // Prefer replace if costs are tied
+                if (replaceCost <= deleteCost && replaceCost <= insertCost) {
+                    opCost = replaceCost;
+                    opType = replaceType;
+                } else if (insertCost <= deleteCost) {
+                    opCost = insertCost;
+                    opType = Edit.INSERT;
+                } else {
+                    opCost = deleteCost;
+                    opType = Edit.DELETE;
+                }
+            }
+            costRow[j - base] = opCost;
+            left = opCost;
+            if (editTypes != null) {
+                setEditType(editTypes, editTypesBase + j, opType);
+            }
+        }
+    }
+
+    private void computeFloatRow(int i, int firstColumn, int lastColumn,
+            int[] previousCostRow, int previousBase, int[] costRow, int base, int leftCost,
+            long[] editTypes, long editTypesBase) {
+        final int firstToken = mFirst[mFirstOffset + i - 1];
+        final int secondBase = mSecondOffset - 1;
+        int left = leftCost;
+        for (int j = firstColumn; j <= lastColumn; j++) {
+            final float opCost;
+            final Edit opType;
+            if (j == 0) {
+                opCost = i * mDeleteCost;
+                opType = Edit.DELETE;
+            } else {
+                final float deleteCost =
+                        Float.intBitsToFloat(previousCostRow[j - previousBase]) + mDeleteCost;
+                final float insertCost = Float.intBitsToFloat(left) + mInsertCost;
+                final float diagonalCost =
+                        Float.intBitsToFloat(previousCostRow[j - 1 - previousBase]);
+                final float replaceCost;
+                final Edit replaceType;
+                if (firstToken == mSecond[secondBase + j]) {
+                    replaceCost = diagonalCost + 0f;
+                    replaceType = Edit.UNCHANGED;
+                } else {
+                    replaceCost = diagonalCost + mReplaceCost;
+                    replaceType = Edit.REPLACE;
+                }
+
+                // Prefer replace if costs are tied
+                if (replaceCost <= deleteCost && replaceCost <= insertCost) {
+                    opCost = replaceCost;
+                    opType = replaceType;
+                } else if (insertCost <= deleteCost) {
+                    opCost = insertCost;
+                    opType = Edit.INSERT;
+                } else {
+                    opCost = deleteCost;
+                    opType = Edit.DELETE;
+                }
+            }
+            left = Float.floatToRawIntBits(opCost);
+            costRow[j - base] = left;
+            if (editTypes != null) {
+                setEditType(editTypes, editTypesBase + j, opType);
+            }
+        }
+    }
+
+    static long[] newEditTypeTable(long cells) {
+        return new long[(int) ((cells + 31) >>> 5)];
+    }
+
+    private static void setEditType(long[] editTypes, long index, Edit editType) {
+        final int word = (int) (index >>> 5);
+        final int shift = (int) (index & 31) << 1;
+        editTypes[word] = (editTypes[word] & ~(3L << shift))
+                | ((long) editType.ordinal() << shift);
+    }
+
+    private static Edit getEditType(long[] editTypes, long index) {
+        return EDITS[(int) (editTypes[(int) (index >>> 5)] >>> ((index & 31) << 1)) & 3];
+    }
+
+    /**
+     * Traces back the path through a table of edit types from (row, column) until it reaches
+     * row 0, appending the edits (in reverse order) to output. The edit type of cell (i, j) is at
+     * index (i * rowStep + j + columnAdjust).
+     *
+     * @return The column at which the path reached row 0.
+     */
+    private static int traceBack(long[] editTypes, long rowStep, long columnAdjust,
+            int row, int column, EditScript output) {
+        while (row > 0) {
+            final Edit editType = getEditType(editTypes, row * rowStep + column + columnAdjust);
+            output.append(editType, 1);
+            switch (editType) {
+                case INSERT:
+                    column--;
+                    break;
+                case DELETE:
+                    row--;
+                    break;
+                case REPLACE:
+                case UNCHANGED:
+                    row--;
+                    column--;
+                    break;
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Completes an edit string that was traced back to row 0 at the given column.
+     *
+     * @param output The edit string traced back so far, in reverse order.
+     */
+    private static EditScript finishTraceBack(int column, EditScript output) {
+        // Row 0 is all initial insertions
+        output.append(Edit.INSERT, column);
+
+        // Reverse the edit string since it was built by back-tracking through the table
+        output.reverse();
+        return output;
+    }
+
+    /**
+     * Computes the edit string without holding the full tables in memory.
+     * <p/>
+     * Unlike Hirschberg's algorithm, this doesn't solve the halves as independent subproblems
+     * (which could break ties differently than the full table). Instead, the forward costs of the
+     * middle row are computed and kept, and the lower half is traced back first, starting from
+     * that row. Wherever the path crosses the middle row bounds the columns of the upper half,
+     * which is then traced back from the row above. Every cost is computed exactly as {@link
+     * #computeFullTable()} would, so the same path is chosen.
+     */
+    private EditScript computeLinearSpace() {
+        final int[] firstRow = new int[mSecondLength + 1];
+        for (int j = 0; j <= mSecondLength; j++) {
+            firstRow[j] = getStoredInsertionsCost(j);
+        }
+
+        final EditScript output = new EditScript();
+        final int column = traceBackRegion(0, mFirstLength, mSecondLength, firstRow, output);
+        return finishTraceBack(column, output);
+    }
+
+    /**
+     * Traces back the path from cell (lastRow, lastColumn) until it reaches topRow, appending
+     * the edits (in reverse order) to output.
+     *
+     * @param topCostRow Stored costs of row topRow, columns [0, lastColumn] (it may be longer).
+     * @return The column at which the path reached topRow.
+     */
+    private int traceBackRegion(int topRow, int lastRow, int lastColumn, int[] topCostRow,
+            EditScript output) {
+        final int rows = lastRow - topRow;
+        if (rows <= 1 || (long) rows * (lastColumn + 1) <= LINEAR_SPACE_BLOCK_CELLS) {
+            return traceBackBlock(topRow, lastRow, lastColumn, topCostRow, output);
+        }
+
+        // Compute forward to the middle row
+        final int middleRow = topRow + rows / 2;
+        final int[] middleCostRow;
+        if (isParallel(middleRow - topRow, lastColumn)) {
+            middleCostRow = new TileWavefront(topRow, middleRow, lastColumn, topCostRow, null, 0)
+                    .compute();
+        } else {
+            middleCostRow = computeRowsSerially(topRow, middleRow, lastColumn, topCostRow);
+        }
+
+        final int middleColumn = traceBackRegion(middleRow, lastRow, lastColumn, middleCostRow,
+                output);
+        return traceBackRegion(topRow, middleRow, middleColumn, topCostRow, output);
+    }
+
+    /**
+     * Computes rows (topRow, lastRow] of columns [0, lastColumn], returning the stored costs of
+     * lastRow.
+     */
+    private int[] computeRowsSerially(int topRow, int lastRow, int lastColumn,
+            int[] topCostRow) {
+        int[] previousCostRow = topCostRow;
+        int[] costRow = new int[lastColumn + 1];
+        int[] spareCostRow = new int[lastColumn + 1];
+        for (int i = topRow + 1; i <= lastRow; i++) {
+            computeRow(i, 0, lastColumn, previousCostRow, 0, costRow, 0, getUnreachableCost(),
+                    null, 0);
+            previousCostRow = costRow;
+            costRow = spareCostRow;
+            spareCostRow = previousCostRow;
+        }
+        return previousCostRow;
+    }
+
+    /**
+     * Base case of {@link #traceBackRegion}, which keeps the edit types for every row in the
+     * region.
+     */
+    private int traceBackBlock(int topRow, int lastRow, int lastColumn, int[] topCostRow,
+            EditScript output) {
+        final int rows = lastRow - topRow;
+        final int columns = lastColumn + 1;
+        final long[] editTypes = newEditTypeTable((long) (rows + 1) * columns);
+
+        int[] previousCostRow = topCostRow;
+        int[] costRow = new int[columns];
+        int[] spareCostRow = new int[columns];
+        for (int r = 1; r <= rows; r++) {
+            computeRow(topRow + r, 0, lastColumn, previousCostRow, 0, costRow, 0,
+                    getUnreachableCost(), editTypes, (long) r * columns);
+            previousCostRow = costRow;
+            costRow = spareCostRow;
+            spareCostRow = previousCostRow;
+        }
+
+        return traceBack(editTypes, columns, 0, rows, lastColumn, output);
+    }
+
+    /**
+     * Lower bound on the cost of any edit string whose path passes through diagonal k (i.e. the
+     * cells where j - i == k), based on the insertions or deletions needed to get onto that
+     * diagonal and then onto the final one.
+     */
+    private float getDiagonalLowerBound(int k) {
+        final int finalDiagonal = mSecondLength - mFirstLength;
+        return getDiagonalChangeCost(k) + getDiagonalChangeCost(finalDiagonal - k);
+    }
+
+    private float getDiagonalChangeCost(int k) {
+        return k >= 0 ? k * mInsertCost : -k * mDeleteCost;
+    }
+
+    /**
+     * Finds the range of diagonals [mLowestDiagonal, mHighestDiagonal] whose lower bound is
+     * within the max cost.
+     *
+     * @return False if even the final diagonal's lower bound exceeds the max cost.
+     */
+    private boolean findDiagonalBand() {
+        final int finalDiagonal = mSecondLength - mFirstLength;
+        if (getDiagonalLowerBound(finalDiagonal) > mMaxCost) {
+            return false;
+        }
+        // The lower bound is convex in k, and both diagonal 0 and the final diagonal are
+        // minimal, so the band is everything in between plus whatever fits on either side.
+        int lowest = Math.min(0, finalDiagonal);
+        while (lowest > -mFirstLength && getDiagonalLowerBound(lowest - 1) <= mMaxCost) {
+            lowest--;
+        }
+        int highest = Math.max(0, finalDiagonal);
+        while (highest < mSecondLength && getDiagonalLowerBound(highest + 1) <= mMaxCost) {
+            highest++;
+        }
+        mLowestDiagonal = lowest;
+        mHighestDiagonal = highest;
+        return true;
+    }
+
+    /**
+     * Computes the diff using only the cells on diagonals [mLowestDiagonal, mHighestDiagonal],
+     * treating everything outside that band as unreachable. Cells in the band are computed
+     * exactly as {@link #computeFullTable()} would, so an edit string within the max cost is the
+     * same one the full table would produce.
+     *
+     * @param keepEditTypes Whether to keep the band's edit types so that the edit string can be
+     *                      traced back. If false, this only checks the bound.
+     * @return The edit string (or an empty one if keepEditTypes is false), or null if the
+     * max cost was exceeded.
+     */
+    private EditScript computeBanded(boolean keepEditTypes) {
+        final int n = mFirstLength;
+        final int m = mSecondLength;
+        final int lowestDiagonal = mLowestDiagonal;
+        final int highestDiagonal = mHighestDiagonal;
+        final int width = highestDiagonal - lowestDiagonal + 1;
+        final int unreachable = getUnreachableCost();
+
+        // Column j of row i is stored at index t = j - i - lowestDiagonal. The extra trailing
+        // cell is always unreachable, and stands in for the cell above the last diagonal.
+        int[] previousCostRow = obtainCostRow(0, width + 1);
+        int[] costRow = obtainCostRow(1, width + 1);
+        final long[] editTypes =
+                keepEditTypes ? obtainEditTypeTable((long) (n + 1) * width) : null;
+
+        Arrays.fill(costRow, 0, width + 1, unreachable);
+        for (int j = 0; j <= Math.min(m, highestDiagonal); j++) {
+            costRow[j - lowestDiagonal] = getStoredInsertionsCost(j);
+        }
+
+        for (int i = 1; i <= n; i++) {
+            final int[] swap = previousCostRow;
+            previousCostRow = costRow;
+            costRow = swap;
+            Arrays.fill(costRow, 0, width + 1, unreachable);
+
+            final int base = i + lowestDiagonal;
+            final int firstColumn = Math.max(0, base);
+            final int lastColumn = Math.min(m, i + highestDiagonal);
+            computeRow(i, firstColumn, lastColumn, previousCostRow, base - 1, costRow, base,
+                    unreachable, editTypes, (long) i * (width - 1) - lowestDiagonal);
+
+            // Every path passes through this row, so give up as soon as none can make it
+            float rowLowerBound = Float.POSITIVE_INFINITY;
+            for (int j = firstColumn; j <= lastColumn; j++) {
+                rowLowerBound = Math.min(rowLowerBound, toCost(costRow[j - base])
+                        + getDiagonalChangeCost(m - n - (j - i)));
+            }
+            if (rowLowerBound > mMaxCost) {
+                return null;
+            }
+        }
+
+        if (toCost(costRow[m - n - lowestDiagonal]) > mMaxCost) {
+            return null;
+        }
+        if (!keepEditTypes) {
+            return new EditScript();
+        }
+
+        final EditScript output = new EditScript();
+        final int column = traceBack(editTypes, width - 1, -lowestDiagonal, n, m, output);
+        return finishTraceBack(column, output);
+    }
+
+    /**
+     * Computes rows (topRow, lastRow] of columns [0, lastColumn] in parallel on the executor, a
+     * tile at a time. Each tile is started once the tiles above and to the left of it are done.
+     * Tiles are computed by {@link #computeRow} from the same inputs as in serial mode, so the
+     * results are identical.
+     */
+    private class TileWavefront {
+
+        private final int mTopRow;
+
+        private final int mLastRow;
+
+        private final int mLastColumn;
+
+        private final long[] mEditTypes;
+
+        private final long mRowStep;
+
+        private final int mTileRows;
+
+        private final int mTileColumns;
+
+        /**
+         * Stored costs of the bottom row of the last tile computed in each column of tiles,
+         * starting out as the top row.
+         */
+        private final int[] mBoundaryRow;
+
+        /**
+         * Stored costs of the right column of the last tile computed in each row of tiles,
+         * including the row above the tile.
+         */
+        private final int[][] mEdgeColumns;
+
+        /** Number of unfinished tiles that each tile is waiting for. */
+        private final AtomicIntegerArray mPendingTiles;
+
+        private final CountDownLatch mDone = new CountDownLatch(1);
+
+        private volatile Throwable mFailure = null;
+
+        /**
+         * @param topCostRow Stored costs of row topRow, columns [0, lastColumn] (it may be
+         *                   longer).
+         * @param editTypes  Receives the edit type of cell (i, j) at ((i - topRow) * rowStep +
+         *                   j), or null if the edit types aren't needed. rowStep must be a
+         *                   multiple of 32.
+         */
+        TileWavefront(int topRow, int lastRow, int lastColumn, int[] topCostRow,
+                long[] editTypes, long rowStep) {
+            mTopRow = topRow;
+            mLastRow = lastRow;
+            mLastColumn = lastColumn;
+            mEditTypes = editTypes;
+            mRowStep = rowStep;
+            mTileRows = (lastRow - topRow + PARALLEL_TILE_ROWS - 1) / PARALLEL_TILE_ROWS;
+            mTileColumns = (lastColumn + PARALLEL_TILE_COLUMNS) / PARALLEL_TILE_COLUMNS;
+            mBoundaryRow = Arrays.copyOf(topCostRow, lastColumn + 1);
+            mEdgeColumns = new int[mTileRows][PARALLEL_TILE_ROWS + 1];
+            mPendingTiles = new AtomicIntegerArray(mTileRows * mTileColumns);
+            for (int r = 0; r < mTileRows; r++) {
+                for (int c = 0; c < mTileColumns; c++) {
+                    mPendingTiles.set(r * mTileColumns + c, (r > 0 ? 1 : 0) + (c > 0 ? 1 : 0));
+                }
+            }
+        }
+
+        /**
+         * Computes all of the tiles, waiting for them to finish.
+         *
+         * @return The stored costs of lastRow.
+         */
+        int[] compute() {
+            mExecutor.execute(new Tile(0, 0));
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mDone.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // The tiles can't be cancelled, so keep waiting for them
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (mFailure != null) {
+                throw new IllegalStateException("Failed to compute tile", mFailure);
+            }
+            return mBoundaryRow;
+        }
+
+        private void release(int tileRow, int tileColumn) {
+            if (mPendingTiles.decrementAndGet(tileRow * mTileColumns + tileColumn) == 0) {
+                mExecutor.execute(new Tile(tileRow, tileColumn));
+            }
+        }
+
+        private void computeTile(int tileRow, int tileColumn) {
+            final int topRow = mTopRow + tileRow * PARALLEL_TILE_ROWS;
+            final int rows = Math.min(mLastRow - topRow, PARALLEL_TILE_ROWS);
+            final int firstColumn = tileColumn * PARALLEL_TILE_COLUMNS;
+            final int lastColumn =
+                    Math.min(mLastColumn, firstColumn + PARALLEL_TILE_COLUMNS - 1);
+            final int width = lastColumn - firstColumn + 1;
+            final int unreachable = getUnreachableCost();
+            final int[] edgeColumn = mEdgeColumns[tileRow];
+            final int[] leftColumn =
+                    (tileColumn > 0) ? Arrays.copyOf(edgeColumn, rows + 1) : null;
+
+            // Index 0 of each row holds column (firstColumn - 1), from the tile to the left
+            int[] previousCostRow = new int[width + 1];
+            int[] costRow = new int[width + 1];
+            previousCostRow[0] = (leftColumn != null) ? leftColumn[0] : unreachable;
+            System.arraycopy(mBoundaryRow, firstColumn, previousCostRow, 1, width);
+            edgeColumn[0] = previousCostRow[width];
+            for (int r = 1; r <= rows; r++) {
+                final int i = topRow + r;
+                final int leftCost = (leftColumn != null) ? leftColumn[r] : unreachable;
+                computeRow(i, firstColumn, lastColumn, previousCostRow, firstColumn - 1,
+                        costRow, firstColumn - 1, leftCost,
+                        mEditTypes, (long) (i - mTopRow) * mRowStep);
+                costRow[0] = leftCost;
+                edgeColumn[r] = costRow[width];
+                final int[] swap = previousCostRow;
+                previousCostRow = costRow;
+                costRow = swap;
+            }
+            System.arraycopy(previousCostRow, 1, mBoundaryRow, firstColumn, width);
+        }
+
+        private class Tile implements Runnable {
+
+            private final int mTileRow;
+
+            private final int mTileColumn;
+
+            Tile(int tileRow, int tileColumn) {
+                mTileRow = tileRow;
+                mTileColumn = tileColumn;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    computeTile(mTileRow, mTileColumn);
+                    if (mTileColumn + 1 < mTileColumns) {
+                        release(mTileRow, mTileColumn + 1);
+                    }
+                    if (mTileRow + 1 < mTileRows) {
+                        release(mTileRow + 1, mTileColumn);
+                    }
+                    if (mTileRow + 1 == mTileRows && mTileColumn + 1 == mTileColumns) {
+                        mDone.countDown();
+                    }
+                } catch (Throwable t) {
+                    // Tiles waiting on this one will never run, so give up on all of them
+                    mFailure = t;
+                    mDone.countDown();
+                }
+            }
+        }
+    }
+
+    boolean isComputed() {
+        return mComputed;
+    }
+
+    /**
+     * Computes the full table of costs, for debugging.
+     */
+    float[][] computeCostTable() {
+        mFirstOffset = mInputFirstOffset;
+        mFirstLength = mInputFirstLength;
+        mSecondOffset = mInputSecondOffset;
+        mSecondLength = mInputSecondLength;
+        mIntegerCosts = canUseIntegerCosts();
+        final float[][] costTable = new float[mFirstLength + 1][mSecondLength + 1];
+        int[] previousCostRow = new int[mSecondLength + 1];
+        int[] costRow = new int[mSecondLength + 1];
+        for (int j = 0; j <= mSecondLength; j++) {
+            costRow[j] = getStoredInsertionsCost(j);
+            costTable[0][j] = toCost(costRow[j]);
+        }
+        for (int i = 1; i <= mFirstLength; i++) {
+            final int[] swap = previousCostRow;
+            previousCostRow = costRow;
+            costRow = swap;
+            computeRow(i, 0, mSecondLength, previousCostRow, 0, costRow, 0,
+                    getUnreachableCost(), null, 0);
+            for (int j = 0; j <= mSecondLength; j++) {
+                costTable[i][j] = toCost(costRow[j]);
+            }
+        }
+        return costTable;
+    }
+}
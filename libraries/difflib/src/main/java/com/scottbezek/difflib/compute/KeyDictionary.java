@@ -0,0 +1,97 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.Arrays;
+
+/**
+ * Like {@link TokenDictionary}, but maps 64-bit keys (see {@link ComparisonMode}) to dense int
+ * tokens. Keys are stored in a flat open-addressing table, so tokenizing doesn't box or
+ * allocate per key. Not thread-safe.
+ */
+public class KeyDictionary {
+
+    private static final int NO_TOKEN = -1;
+
+    private long[] mKeys = new long[16];
+
+    private int[] mTokens = newTokenTable(16);
+
+    private int mSize = 0;
+
+    /**
+     * Returns the token for the key, assigning a new one if it hasn't been seen before.
+     */
+    public int getToken(long key) {
+        final int mask = mTokens.length - 1;
+        int slot = hashSlot(key) & mask;
+        while (mTokens[slot] != NO_TOKEN) {
+            if (mKeys[slot] == key) {
+                return mTokens[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        final int token = mSize++;
+        mKeys[slot] = key;
+        mTokens[slot] = token;
+        if (2 * mSize > mTokens.length) {
+            rehash(2 * mTokens.length);
+        }
+        return token;
+    }
+
+    /**
+     * Returns the tokens for each of the keys, in order.
+     */
+    public int[] tokenize(long[] keys) {
+        final int[] tokens = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            tokens[i] = getToken(keys[i]);
+        }
+        return tokens;
+    }
+
+    /**
+     * Forgets all tokens. Tokens assigned afterwards start again from 0, so tokens from before
+     * and after clearing must not be compared.
+     */
+    public void clear() {
+        Arrays.fill(mTokens, NO_TOKEN);
+        mSize = 0;
+    }
+
+    /**
+     * Returns the number of distinct tokens assigned so far.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = mKeys;
+        final int[] oldTokens = mTokens;
+        mKeys = new long[capacity];
+        mTokens = newTokenTable(capacity);
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldTokens.length; i++) {
+            if (oldTokens[i] != NO_TOKEN) {
+                int slot = hashSlot(oldKeys[i]) & mask;
+                while (mTokens[slot] != NO_TOKEN) {
+                    slot = (slot + 1) & mask;
+                }
+                mKeys[slot] = oldKeys[i];
+                mTokens[slot] = oldTokens[i];
+            }
+        }
+    }
+
+    private static int hashSlot(long key) {
+        // Keys are already well mixed hashes, but callers may use anything
+        final long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash >>> 32);
+    }
+
+    private static int[] newTokenTable(int capacity) {
+        final int[] tokens = new int[capacity];
+        Arrays.fill(tokens, NO_TOKEN);
+        return tokens;
+    }
+}
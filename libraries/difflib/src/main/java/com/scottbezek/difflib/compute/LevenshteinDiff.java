@@ -1,28 +1,163 @@
 package com.scottbezek.difflib.compute;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Diff algorithm that computes an edit string of minimal Levenshtein cost which transforms one
  * sequence to another. Cost of insert/delete/replace operations can be adjusted.
+ * <p/>
+ * Elements are mapped to int tokens up front (see {@link TokenDictionary}), and the diff itself
+ * is computed by {@link IntLevenshteinDiff}.
  */
 public class LevenshteinDiff<Element> {
 
-    private final List<Element> mFirst;
+    /**
+     * {@link IDiffAlgorithm} implementation backed by {@link LevenshteinDiff}, with adjustable
+     * operation costs. Diffs are computed in the calling thread's {@link DiffWorkspace}.
+     */
+    public static class Algorithm implements IDiffAlgorithm {
 
-    private final List<Element> mSecond;
+        private float mInsertCost = 1f;
+
+        private float mReplaceCost = 1f;
+
+        private float mDeleteCost = 1f;
+
+        private float mMaxCostFraction = Float.POSITIVE_INFINITY;
+
+        private ComparisonMode mComparisonMode = ComparisonMode.EXACT;
+
+        private long mOperationBudget = Long.MAX_VALUE;
+
+        /**
+         * @see LevenshteinDiff#setInsertCost(float)
+         * @return <code>this</code>, for chaining.
+         */
+        public Algorithm setInsertCost(float cost) {
+            mInsertCost = cost;
+            return this;
+        }
+
+        /**
+         * @see LevenshteinDiff#setReplaceCost(float)
+         * @return <code>this</code>, for chaining.
+         */
+        public Algorithm setReplaceCost(float cost) {
+            mReplaceCost = cost;
+            return this;
+        }
+
+        /**
+         * @see LevenshteinDiff#setDeleteCost(float)
+         * @return <code>this</code>, for chaining.
+         */
+        public Algorithm setDeleteCost(float cost) {
+            mDeleteCost = cost;
+            return this;
+        }
+
+        /**
+         * Bound the cost of the edit string to a fraction of the cost of deleting all of the
+         * first sequence and inserting all of the second. Sequences that are more different than
+         * that aren't diffed in detail; the edit string simply deletes every element of the first
+         * sequence and then inserts every element of the second.
+         *
+         * @see LevenshteinDiff#setMaxCost(float)
+         * @return <code>this</code>, for chaining.
+         */
+        public Algorithm setMaxCostFraction(float fraction) {
+            mMaxCostFraction = fraction;
+            return this;
+        }
+
+        /**
+         * Set how elements are compared. Unless the mode is exact, elements must be {@link
+         * CharSequence}s or lists of them, e.g. the characters of a word.
+         * @return <code>this</code>, for chaining.
+         */
+        public Algorithm setComparisonMode(ComparisonMode mode) {
+            mComparisonMode = mode;
+            return this;
+        }
+
+        /**
+         * Bound the work done by each diff. Diffs that would need more than this many table
+         * cells get a coarse edit string, which replaces everything between the common prefix
+         * and suffix.
+         *
+         * @see LevenshteinDiff#setOperationBudget(long)
+         * @return <code>this</code>, for chaining.
+         */
+        public Algorithm setOperationBudget(long cells) {
+            mOperationBudget = cells;
+            return this;
+        }
 
-    private float mInsertCost = 1f;
+        @Override
+        public <E> EditScript computeEditScript(List<E> first, List<E> second) {
+            final DiffWorkspace workspace = DiffWorkspace.forCurrentThread();
+            return computeEditScript(new IntLevenshteinDiff(
+                    workspace.tokenizeFirst(first, mComparisonMode), first.size(),
+                    workspace.tokenizeSecond(second, mComparisonMode), second.size())
+                            .setWorkspace(workspace),
+                    first.size(), second.size());
+        }
 
-    private float mReplaceCost = 1f;
+        /**
+         * Like {@link #computeEditScript(List, List)}, but the elements are the segments of two
+         * texts between consecutive boundaries (e.g. natural characters, see {@link
+         * com.scottbezek.difflib.UnicodeUtil#getCharacterBoundaries}). The first sequence is
+         * the segments from firstBoundaries[firstFrom] to firstBoundaries[firstTo], and likewise
+         * for the second. No object is allocated per segment.
+         */
+        public EditScript computeEditScript(CharSequence first, int[] firstBoundaries,
+                int firstFrom, int firstTo, CharSequence second, int[] secondBoundaries,
+                int secondFrom, int secondTo) {
+            final DiffWorkspace workspace = DiffWorkspace.forCurrentThread();
+            final int firstSize = firstTo - firstFrom;
+            final int secondSize = secondTo - secondFrom;
+            return computeEditScript(new IntLevenshteinDiff(
+                    workspace.tokenizeFirst(first, firstBoundaries, firstFrom, firstTo,
+                            mComparisonMode), firstSize,
+                    workspace.tokenizeSecond(second, secondBoundaries, secondFrom, secondTo,
+                            mComparisonMode), secondSize)
+                            .setWorkspace(workspace),
+                    firstSize, secondSize);
+        }
 
-    private float mDeleteCost = 1f;
+        private EditScript computeEditScript(IntLevenshteinDiff diff, int firstSize,
+                int secondSize) {
+            diff.setInsertCost(mInsertCost)
+                    .setReplaceCost(mReplaceCost)
+                    .setDeleteCost(mDeleteCost)
+                    .setOperationBudget(mOperationBudget);
+            if (mMaxCostFraction != Float.POSITIVE_INFINITY) {
+                final float rewriteCost = firstSize * mDeleteCost + secondSize * mInsertCost;
+                diff.setMaxCost(mMaxCostFraction * rewriteCost);
+            }
+            diff.compute();
+            if (diff.exceedsMaxCost()) {
+                return new EditScript()
+                        .append(Edit.DELETE, firstSize)
+                        .append(Edit.INSERT, secondSize);
+            }
+            return diff.getEditScript();
+        }
+    }
 
-    private float[][] mCostTable = null;
+    /**
+     * Default value for {@link #setLinearSpaceThreshold(long)}. Tables of this many cells take
+     * roughly 50MB in the full O(NM) mode.
+     */
+    public static final long DEFAULT_LINEAR_SPACE_THRESHOLD =
+            IntLevenshteinDiff.DEFAULT_LINEAR_SPACE_THRESHOLD;
 
-    private Edit[][] mEditTypeTable = null;
+    private final List<Element> mFirst;
+
+    private final List<Element> mSecond;
+
+    private final IntLevenshteinDiff mCore;
 
     /**
      * Construct a LevenshteinDiff to compute the edit string (i.e. series of insertions,
@@ -33,8 +168,42 @@ public class LevenshteinDiff<Element> {
      * #compute()}.
      */
     public LevenshteinDiff(List<Element> first, List<Element> second) {
+        this(first, second, new TokenDictionary<Element>());
+    }
+
+    /**
+     * Construct a LevenshteinDiff, mapping elements to tokens with the given dictionary. Sharing
+     * a dictionary between diffs avoids re-hashing elements that have been seen before.
+     */
+    public LevenshteinDiff(List<Element> first, List<Element> second,
+            TokenDictionary<Element> dictionary) {
         mFirst = first;
         mSecond = second;
+        mCore = new IntLevenshteinDiff(dictionary.tokenize(first), dictionary.tokenize(second));
+    }
+
+    /**
+     * Construct a LevenshteinDiff which tokenizes and computes into the buffers of the given
+     * workspace (see {@link IntLevenshteinDiff#setWorkspace(DiffWorkspace)}). The diff must be
+     * computed before the workspace is used for anything else.
+     */
+    public LevenshteinDiff(List<Element> first, List<Element> second, DiffWorkspace workspace) {
+        this(first, second, workspace, ComparisonMode.EXACT);
+    }
+
+    /**
+     * Like {@link #LevenshteinDiff(List, List, DiffWorkspace)}, but elements that are equal under
+     * the mode are unchanged. Unless the mode is exact, elements must be {@link CharSequence}s or
+     * lists of them.
+     */
+    public LevenshteinDiff(List<Element> first, List<Element> second, DiffWorkspace workspace,
+            ComparisonMode mode) {
+        mFirst = first;
+        mSecond = second;
+        mCore = new IntLevenshteinDiff(
+                workspace.tokenizeFirst(first, mode), first.size(),
+                workspace.tokenizeSecond(second, mode), second.size())
+                .setWorkspace(workspace);
     }
 
     /**
@@ -42,7 +211,7 @@ public class LevenshteinDiff<Element> {
      * @return <code>this</code>, for chaining.
      */
     public LevenshteinDiff<Element> setInsertCost(float cost) {
-        mInsertCost = cost;
+        mCore.setInsertCost(cost);
         return this;
     }
 
@@ -51,7 +220,7 @@ public class LevenshteinDiff<Element> {
      * @return <code>this</code>, for chaining.
      */
     public LevenshteinDiff<Element> setReplaceCost(float cost) {
-        mReplaceCost = cost;
+        mCore.setReplaceCost(cost);
         return this;
     }
 
@@ -60,114 +229,99 @@ public class LevenshteinDiff<Element> {
      * @return <code>this</code>, for chaining.
      */
     public LevenshteinDiff<Element> setDeleteCost(float cost) {
-        mDeleteCost = cost;
+        mCore.setDeleteCost(cost);
         return this;
     }
 
     /**
-     * Computes the diff in O(NM) time and space.
+     * @see IntLevenshteinDiff#setLinearSpaceThreshold(long)
      * @return <code>this</code>, for chaining.
      */
-    public LevenshteinDiff<Element> compute() {
-        mCostTable = new float[mFirst.size() + 1][];
-        mEditTypeTable = new Edit[mFirst.size() + 1][];
+    public LevenshteinDiff<Element> setLinearSpaceThreshold(long cells) {
+        mCore.setLinearSpaceThreshold(cells);
+        return this;
+    }
 
-        /*
-         * Initialize the upper row and left column, which correspond to initial deletions/insertions.
-         */
-        for (int i = 0; i <= mFirst.size(); i++) {
-            mCostTable[i] = new float[mSecond.size() + 1];
-            mEditTypeTable[i] = new Edit[mSecond.size() + 1];
+    /**
+     * @see IntLevenshteinDiff#setExecutor(Executor)
+     * @return <code>this</code>, for chaining.
+     */
+    public LevenshteinDiff<Element> setExecutor(Executor executor) {
+        mCore.setExecutor(executor);
+        return this;
+    }
 
-            mCostTable[i][0] = i * mDeleteCost;
-            mEditTypeTable[i][0] = Edit.DELETE;
-        }
-        for (int j = 0; j <= mSecond.size(); j++) {
-            mCostTable[0][j] = j * mInsertCost;
-            mEditTypeTable[0][j] = Edit.INSERT;
-        }
+    /**
+     * @see IntLevenshteinDiff#setMaxCost(float)
+     * @return <code>this</code>, for chaining.
+     */
+    public LevenshteinDiff<Element> setMaxCost(float maxCost) {
+        mCore.setMaxCost(maxCost);
+        return this;
+    }
 
-        for (int i = 1; i <= mFirst.size(); i++) {
-            for (int j = 1; j <= mSecond.size(); j++) {
-                final float deleteCost = mCostTable[i - 1][j] + mDeleteCost;
-                final float insertCost = mCostTable[i][j - 1] + mInsertCost;
-                final float replaceCost;
-                final Edit replaceType;
-                if (mFirst.get(i - 1).equals(mSecond.get(j - 1))) {
-                    replaceCost = mCostTable[i - 1][j - 1] + 0f;
-                    replaceType = Edit.UNCHANGED;
-                } else {
-                    replaceCost = mCostTable[i - 1][j - 1] + mReplaceCost;
-                    replaceType = Edit.REPLACE;
-                }
+    /**
+     * @see IntLevenshteinDiff#setOperationBudget(long)
+     * @return <code>this</code>, for chaining.
+     */
+    public LevenshteinDiff<Element> setOperationBudget(long cells) {
+        mCore.setOperationBudget(cells);
+        return this;
+    }
 
-                final float opCost;
-                final Edit opType;
+    /**
+     * @see IntLevenshteinDiff#exceedsOperationBudget()
+     */
+    public boolean exceedsOperationBudget() {
+        return mCore.exceedsOperationBudget();
+    }
 
-                // Prefer replace if costs are tied
-                if (replaceCost <= deleteCost && replaceCost <= insertCost) {
-                    opCost = replaceCost;
-                    opType = replaceType;
-                } else if (insertCost <= deleteCost) {
-                    opCost = insertCost;
-                    opType = Edit.INSERT;
-                } else {
-                    opCost = deleteCost;
-                    opType = Edit.DELETE;
-                }
+    /**
+     * @see IntLevenshteinDiff#exceedsMaxCost()
+     */
+    public boolean exceedsMaxCost() {
+        return mCore.exceedsMaxCost();
+    }
 
-                mCostTable[i][j] = opCost;
-                mEditTypeTable[i][j] = opType;
-            }
-        }
+    /**
+     * @see IntLevenshteinDiff#compute()
+     * @return <code>this</code>, for chaining.
+     */
+    public LevenshteinDiff<Element> compute() {
+        mCore.compute();
         return this;
     }
 
     /**
      * Retrieve the edit string for this diff. The diff must have already been computed by calling
      * {@link #compute()}.
+     *
+     * @throws IllegalStateException If the diff exceeded the max cost (see {@link
+     * #exceedsMaxCost()}).
      */
     public List<Edit> getEditString() {
-        if (mCostTable == null) {
-            throw new IllegalStateException("Must compute the diff first");
-        }
-
-        List<Edit> output = new ArrayList<Edit>();
-        int i = mFirst.size();
-        int j = mSecond.size();
-        while (i > 0 || j > 0) {
-            Edit editType = mEditTypeTable[i][j];
-            output.add(editType);
-            switch (editType) {
-                case INSERT:
-                    j--;
-                    break;
-                case DELETE:
-                    i--;
-                    break;
-                case REPLACE:
-                    i--;
-                    j--;
-                    break;
-                case UNCHANGED:
-                    i--;
-                    j--;
-                    break;
-            }
-        }
+        return mCore.getEditString();
+    }
 
-        // Reverse the edit string since it was built by back-tracking through the table
-        Collections.reverse(output);
-        return output;
+    /**
+     * Retrieve the run-length encoded edit string for this diff. The diff must have already been
+     * computed by calling {@link #compute()}.
+     *
+     * @throws IllegalStateException If the diff exceeded the max cost (see {@link
+     * #exceedsMaxCost()}).
+     */
+    public EditScript getEditScript() {
+        return mCore.getEditScript();
     }
 
     /**
      * Returns a printable representation of the computed cost table, for debugging.
      */
     String getDebugCostTable() {
-        if (mCostTable == null) {
+        if (!mCore.isComputed()) {
             throw new IllegalStateException("Must compute the diff first");
         }
+        final float[][] costTable = mCore.computeCostTable();
         int colWidth = 4;
         StringBuilder sb = new StringBuilder();
         for (int j = -1; j <= mSecond.size(); j++) {
@@ -182,7 +336,7 @@ public class LevenshteinDiff<Element> {
                     String columnHeader = mFirst.get(i-1).toString();
                     sb.append(String.format("%1$-" + colWidth + "s", columnHeader));
                 } else {
-                    sb.append(String.format("%1$." + colWidth + "f", mCostTable[i][j]).substring(0, colWidth));
+                    sb.append(String.format("%1$." + colWidth + "f", costTable[i][j]).substring(0, colWidth));
                 }
                 sb.append(" ");
             }
@@ -0,0 +1,232 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.unified.Chunk;
+import com.scottbezek.difflib.unified.Parser.DiffParseException;
+import com.scottbezek.difflib.unified.SingleFileDiff;
+import com.scottbezek.util.Assert;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes a line-level diff between two versions of a file, producing the same {@link
+ * SingleFileDiff} (made of {@link Chunk}s surrounded by unchanged context lines) that {@link
+ * com.scottbezek.difflib.unified.Parser} produces from a unified diff.
+ * <p/>
+ * Each line is hashed once, into a {@link TokenDictionary}, and the line tokens are diffed with
+ * {@link MyersDiff}, so files with few changes are diffed in roughly linear time and space. Lines
+ * may instead be compared ignoring whitespace or case (see {@link
+ * #setComparisonMode(ComparisonMode)}), in which case their keys are computed once per mode and
+ * kept, so the same LineDiff can be recomputed in another mode cheaply.
+ */
+public class LineDiff {
+
+    /**
+     * Default value for {@link #setContextLines(int)}, matching the default of diff -u.
+     */
+    public static final int DEFAULT_CONTEXT_LINES = 3;
+
+    private final List<? extends CharSequence> mLeftLines;
+
+    private final List<? extends CharSequence> mRightLines;
+
+    private final LineKeys mLeftKeys;
+
+    private final LineKeys mRightKeys;
+
+    private int mContextLines = DEFAULT_CONTEXT_LINES;
+
+    private ComparisonMode mComparisonMode = ComparisonMode.EXACT;
+
+    /**
+     * Lines are compared with {@link Object#equals(Object)} unless a comparison mode is set, so
+     * both lists should hold the same type of CharSequence, e.g. Strings or
+     * {@link com.scottbezek.difflib.unified.LineSlice}s.
+     */
+    public LineDiff(List<? extends CharSequence> leftLines,
+            List<? extends CharSequence> rightLines) {
+        mLeftLines = leftLines;
+        mRightLines = rightLines;
+        mLeftKeys = new LineKeys(leftLines);
+        mRightKeys = new LineKeys(rightLines);
+    }
+
+    /**
+     * Set the number of unchanged lines to include before and after each change. Changes that
+     * are separated by no more than twice this many unchanged lines share a chunk.
+     * @return <code>this</code>, for chaining.
+     */
+    public LineDiff setContextLines(int contextLines) {
+        if (contextLines < 0) {
+            throw new IllegalArgumentException("Negative context: " + contextLines);
+        }
+        mContextLines = contextLines;
+        return this;
+    }
+
+    /**
+     * Set how lines are compared. Lines that are only equal under the mode are shown as
+     * unchanged, with their left and right versions side by side.
+     * @return <code>this</code>, for chaining.
+     */
+    public LineDiff setComparisonMode(ComparisonMode mode) {
+        mComparisonMode = mode;
+        return this;
+    }
+
+    /**
+     * Computes the diff. Each chunk's start lines are the (1-based) numbers of its first left and
+     * right lines, even if the chunk doesn't contain any lines from that side.
+     */
+    public SingleFileDiff compute(String leftFilename, String rightFilename) {
+        final MyersDiff<CharSequence> diff;
+        if (mComparisonMode.isExact()) {
+            final TokenDictionary<CharSequence> dictionary = new TokenDictionary<CharSequence>();
+            diff = new MyersDiff<CharSequence>(
+                    dictionary.tokenize(mLeftLines), dictionary.tokenize(mRightLines));
+        } else {
+            final KeyDictionary dictionary = new KeyDictionary();
+            diff = new MyersDiff<CharSequence>(
+                    dictionary.tokenize(mLeftKeys.getKeys(mComparisonMode)),
+                    dictionary.tokenize(mRightKeys.getKeys(mComparisonMode)));
+        }
+        final EditScript editScript = diff.compute().getEditScript();
+        try {
+            return buildFileDiff(leftFilename, rightFilename, editScript);
+        } catch (DiffParseException e) {
+            // The chunk ranges are computed from the same edit script, so they always match up
+            throw Assert.fail("Inconsistent chunk: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the ranges of the chunks for the edit script, as {leftStart, leftEnd, rightStart,
+     * rightEnd} with 0-based, exclusive end line indices.
+     */
+    private List<int[]> findChunkRanges(EditScript editScript) {
+        final List<int[]> ranges = new ArrayList<int[]>();
+        int left = 0;
+        int right = 0;
+        int[] current = null;
+        for (int run = 0; run < editScript.getRunCount(); run++) {
+            final int length = editScript.getRunLength(run);
+            if (editScript.getRunEdit(run) == Edit.UNCHANGED) {
+                left += length;
+                right += length;
+                continue;
+            }
+
+            // Unchanged lines before a change are the same on both sides, so the context can be
+            // measured on the left
+            if (current == null || left - current[1] > 2 * mContextLines) {
+                if (current != null) {
+                    closeChunkRange(current);
+                }
+                final int context = Math.min(mContextLines,
+                        current == null ? left : left - current[1]);
+                current = new int[] {left - context, left, right - context, right};
+                ranges.add(current);
+            }
+            left += editScript.getRunFirstLength(run);
+            right += editScript.getRunSecondLength(run);
+            current[1] = left;
+            current[3] = right;
+        }
+        if (current != null) {
+            closeChunkRange(current);
+        }
+        return ranges;
+    }
+
+    private void closeChunkRange(int[] range) {
+        final int context = Math.min(mContextLines, mLeftLines.size() - range[1]);
+        range[1] += context;
+        range[3] += context;
+    }
+
+    private SingleFileDiff buildFileDiff(String leftFilename, String rightFilename,
+            EditScript editScript) throws DiffParseException {
+        final SingleFileDiff.Builder fileBuilder = new SingleFileDiff.Builder()
+                .setLeftFilename(leftFilename)
+                .setRightFilename(rightFilename);
+
+        final List<int[]> ranges = findChunkRanges(editScript);
+        int rangeIndex = 0;
+        Chunk.Builder chunkBuilder = null;
+        int left = 0;
+        int right = 0;
+        for (int run = 0; run < editScript.getRunCount(); run++) {
+            final Edit edit = editScript.getRunEdit(run);
+            int remaining = editScript.getRunLength(run);
+            while (remaining > 0) {
+                if (chunkBuilder == null) {
+                    if (rangeIndex == ranges.size()) {
+                        break;
+                    }
+                    final int[] range = ranges.get(rangeIndex);
+                    if (left < range[0]) {
+                        // Skip unchanged lines up to the start of the next chunk
+                        Assert.isTrue(edit == Edit.UNCHANGED);
+                        final int skipped = Math.min(remaining, range[0] - left);
+                        left += skipped;
+                        right += skipped;
+                        remaining -= skipped;
+                        continue;
+                    }
+                    chunkBuilder = new Chunk.Builder(range[0] + 1, range[1] - range[0],
+                            range[2] + 1, range[3] - range[2]);
+                }
+
+                switch (edit) {
+                    case UNCHANGED:
+                        chunkBuilder.appendLineUnchanged(mLeftLines.get(left),
+                                mRightLines.get(right));
+                        left++;
+                        right++;
+                        break;
+                    case DELETE:
+                        chunkBuilder.appendLineLeftRemoved(mLeftLines.get(left));
+                        left++;
+                        break;
+                    case INSERT:
+                        chunkBuilder.appendLineRightAdded(mRightLines.get(right));
+                        right++;
+                        break;
+                    case REPLACE:
+                        chunkBuilder.appendLineLeftRemoved(mLeftLines.get(left));
+                        chunkBuilder.appendLineRightAdded(mRightLines.get(right));
+                        left++;
+                        right++;
+                        break;
+                    default:
+                        throw Assert.fail("Unknown edit type: " + edit);
+                }
+                remaining--;
+
+                if (chunkBuilder.isComplete()) {
+                    fileBuilder.addChunk(chunkBuilder.build());
+                    chunkBuilder = null;
+                    rangeIndex++;
+                }
+            }
+        }
+        Assert.isTrue(chunkBuilder == null && rangeIndex == ranges.size());
+        return fileBuilder.build();
+    }
+
+    /**
+     * Reads all lines from the reader, without line terminators. The reader is not closed.
+     */
+    public static List<String> readLines(Reader reader) throws IOException {
+        final BufferedReader bufferedReader = new BufferedReader(reader);
+        final List<String> lines = new ArrayList<String>();
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,40 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.List;
+
+/**
+ * The keys (see {@link ComparisonMode#getKey(CharSequence)}) of a list of lines, computed once
+ * per mode and cached, so that diffing the same lines again in a mode that was used before
+ * doesn't rescan them. Each mode costs one long per line; no normalized copies of the lines are
+ * made. Not thread-safe.
+ */
+public class LineKeys {
+
+    private final List<? extends CharSequence> mLines;
+
+    private final long[][] mKeysByMode = new long[ComparisonMode.getModeCount()][];
+
+    public LineKeys(List<? extends CharSequence> lines) {
+        mLines = lines;
+    }
+
+    public List<? extends CharSequence> getLines() {
+        return mLines;
+    }
+
+    /**
+     * Returns the key of each line under the mode. The returned array must not be modified.
+     */
+    public long[] getKeys(ComparisonMode mode) {
+        long[] keys = mKeysByMode[mode.getIndex()];
+        if (keys == null) {
+            keys = new long[mLines.size()];
+            int i = 0;
+            for (CharSequence line : mLines) {
+                keys[i++] = mode.getKey(line);
+            }
+            mKeysByMode[mode.getIndex()] = keys;
+        }
+        return keys;
+    }
+}
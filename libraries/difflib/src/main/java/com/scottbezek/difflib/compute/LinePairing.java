@@ -0,0 +1,342 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.CompareUtil;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pairs up the removed and added lines of a change, so that each removed line can be shown next
+ * to the added line it most likely became, and lines with no counterpart are shown on their
+ * own. Only pairs of similar lines are worth an intraline diff; pairing lines by position
+ * instead means a single inserted line makes every following pair a complete rewrite.
+ * <p/>
+ * Similarity is estimated from a small sketch of each line: a one-permutation MinHash of its
+ * character trigrams, which approximates the Jaccard similarity of the two sets of trigrams in
+ * time linear in the line length. Lines are then aligned in order (pairs never cross) so as to
+ * maximize the total similarity of the pairs, using only pairs at least as similar as the
+ * threshold.
+ * <p/>
+ * Large changes are first split at anchors: lines whose sketch appears exactly once among the
+ * removed lines and once among the added lines, kept in order as the longest increasing run.
+ * The lines between anchors are then aligned within a band around the diagonal, so the work
+ * stays near linear in the number of lines.
+ */
+public class LinePairing {
+
+    /**
+     * Default value of the minimum similarity of a pair, as an estimated Jaccard similarity of
+     * the lines' trigrams. A line with a word changed is usually well above this, while
+     * unrelated lines of code share little more than indentation and punctuation.
+     */
+    public static final float DEFAULT_MIN_SIMILARITY = 0.3f;
+
+    /** Number of MinHash values kept for each line. Must be a power of 2. */
+    static final int SKETCH_SLOTS = 32;
+
+    private static final int SLOT_SHIFT = 32 - Integer.numberOfTrailingZeros(SKETCH_SLOTS);
+
+    /** Marks a slot that no trigram hashed to. Stored hash values are never negative. */
+    private static final int EMPTY_SLOT = -1;
+
+    /**
+     * Changes with more candidate pairs than this are split at anchors, and only pairs near the
+     * diagonal between anchors are considered.
+     */
+    private static final long MAX_ALIGNMENT_CELLS = 256 * 1024;
+
+    /** Marks a sketch that appears more than once, so can't be an anchor. */
+    private static final int REPEATED = -1;
+
+    private static final byte FROM_DIAGONAL = 0;
+
+    private static final byte FROM_ABOVE = 1;
+
+    private static final byte FROM_LEFT = 2;
+
+    private LinePairing() {}
+
+    /**
+     * Pairs lines using {@link #DEFAULT_MIN_SIMILARITY}.
+     *
+     * @see #pair(List, List, float)
+     */
+    public static int[] pair(List<? extends CharSequence> removedLines,
+            List<? extends CharSequence> addedLines) {
+        return pair(removedLines, addedLines, DEFAULT_MIN_SIMILARITY);
+    }
+
+    /**
+     * Pairs removed lines with added lines.
+     *
+     * @return For each removed line, the index of the added line it is paired with, or -1 if it
+     * isn't paired. The paired indices are strictly increasing.
+     */
+    public static int[] pair(List<? extends CharSequence> removedLines,
+            List<? extends CharSequence> addedLines, float minSimilarity) {
+        final int removedCount = removedLines.size();
+        final int addedCount = addedLines.size();
+        final int[] pairs = new int[removedCount];
+        Arrays.fill(pairs, -1);
+        if (removedCount == 0 || addedCount == 0) {
+            return pairs;
+        }
+
+        final int[][] removedSketches = sketchAll(removedLines);
+        final int[][] addedSketches = sketchAll(addedLines);
+        if ((long) removedCount * addedCount <= MAX_ALIGNMENT_CELLS) {
+            align(removedSketches, 0, removedCount, addedSketches, 0, addedCount,
+                    minSimilarity, pairs);
+            return pairs;
+        }
+
+        final int[] anchors = findAnchors(removedSketches, addedSketches);
+        int removedFrom = 0;
+        int addedFrom = 0;
+        for (int removed = 0; removed < removedCount; removed++) {
+            final int added = anchors[removed];
+            if (added != -1) {
+                align(removedSketches, removedFrom, removed, addedSketches, addedFrom, added,
+                        minSimilarity, pairs);
+                pairs[removed] = added;
+                removedFrom = removed + 1;
+                addedFrom = added + 1;
+            }
+        }
+        align(removedSketches, removedFrom, removedCount, addedSketches, addedFrom, addedCount,
+                minSimilarity, pairs);
+        return pairs;
+    }
+
+    /**
+     * Aligns a range of removed lines with a range of added lines, maximizing the total
+     * similarity of the pairs. If the ranges have more candidate pairs than
+     * {@link #MAX_ALIGNMENT_CELLS}, only pairs within a band around the diagonal are considered.
+     */
+    private static void align(int[][] removedSketches, int removedFrom, int removedTo,
+            int[][] addedSketches, int addedFrom, int addedTo, float minSimilarity,
+            int[] pairs) {
+        final int rows = removedTo - removedFrom;
+        final int columns = addedTo - addedFrom;
+        if (rows == 0 || columns == 0) {
+            return;
+        }
+
+        // Each row covers the columns within halfWidth of the diagonal. The band is wide enough
+        // that consecutive rows overlap, so there is always a path from corner to corner.
+        final int halfWidth;
+        if ((long) rows * columns <= MAX_ALIGNMENT_CELLS) {
+            halfWidth = columns;
+        } else {
+            halfWidth = (int) Math.max(MAX_ALIGNMENT_CELLS / (2L * (rows + 1)),
+                    columns / rows + 1);
+        }
+        final int[] rowFirst = new int[rows + 1];
+        final int[] rowStart = new int[rows + 2];
+        for (int i = 0; i <= rows; i++) {
+            final long diagonal = (long) i * columns / rows;
+            rowFirst[i] = (int) Math.max(0, diagonal - halfWidth);
+            final int rowLast = (int) Math.min(columns, diagonal + halfWidth);
+            rowStart[i + 1] = rowStart[i] + rowLast - rowFirst[i] + 1;
+        }
+
+        // Maximize the total similarity of the pairs; leaving a line unpaired scores nothing
+        final float[] scores = new float[rowStart[rows + 1]];
+        final byte[] moves = new byte[rowStart[rows + 1]];
+        for (int i = 1; i <= rows; i++) {
+            final int first = rowFirst[i];
+            final int last = first + rowStart[i + 1] - rowStart[i] - 1;
+            final int previousFirst = rowFirst[i - 1];
+            final int previousLast = previousFirst + rowStart[i] - rowStart[i - 1] - 1;
+            for (int j = first; j <= last; j++) {
+                final int cell = rowStart[i] + j - first;
+                final float above = (j <= previousLast)
+                        ? scores[rowStart[i - 1] + j - previousFirst] : Float.NEGATIVE_INFINITY;
+                if (j == 0) {
+                    scores[cell] = above;
+                    moves[cell] = FROM_ABOVE;
+                    continue;
+                }
+                final float left = (j > first) ? scores[cell - 1] : Float.NEGATIVE_INFINITY;
+                float diagonal = Float.NEGATIVE_INFINITY;
+                if (j - 1 >= previousFirst && j - 1 <= previousLast) {
+                    final float similarity = getSimilarity(
+                            removedSketches[removedFrom + i - 1],
+                            addedSketches[addedFrom + j - 1]);
+                    if (similarity >= minSimilarity) {
+                        diagonal = scores[rowStart[i - 1] + j - 1 - previousFirst] + similarity;
+                    }
+                }
+                if (diagonal != Float.NEGATIVE_INFINITY && diagonal >= Math.max(above, left)) {
+                    scores[cell] = diagonal;
+                    moves[cell] = FROM_DIAGONAL;
+                } else if (above >= left) {
+                    scores[cell] = above;
+                    moves[cell] = FROM_ABOVE;
+                } else {
+                    scores[cell] = left;
+                    moves[cell] = FROM_LEFT;
+                }
+            }
+        }
+
+        int i = rows;
+        int j = columns;
+        while (i > 0 && j > 0) {
+            switch (moves[rowStart[i] + j - rowFirst[i]]) {
+                case FROM_DIAGONAL:
+                    pairs[removedFrom + i - 1] = addedFrom + j - 1;
+                    i--;
+                    j--;
+                    break;
+                case FROM_ABOVE:
+                    i--;
+                    break;
+                default:
+                    j--;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Finds the lines to split a large change at: pairs of lines whose sketch appears exactly
+     * once on each side, keeping the longest run of them that is in order on both sides.
+     *
+     * @return For each removed line, the index of the added line it is anchored to, or -1.
+     */
+    private static int[] findAnchors(int[][] removedSketches, int[][] addedSketches) {
+        final Map<Long, Integer> removedByHash = indexUnique(removedSketches);
+        final Map<Long, Integer> addedByHash = indexUnique(addedSketches);
+
+        // Candidate anchors in removed order, then the longest run increasing in added order
+        final int[] candidateRemoved = new int[removedSketches.length];
+        final int[] candidateAdded = new int[removedSketches.length];
+        int candidateCount = 0;
+        for (int removed = 0; removed < removedSketches.length; removed++) {
+            final Long hash = Long.valueOf(getSketchHash(removedSketches[removed]));
+            final Integer added = addedByHash.get(hash);
+            if (removedByHash.get(hash).intValue() == removed && added != null
+                    && added.intValue() != REPEATED
+                    && Arrays.equals(removedSketches[removed], addedSketches[added.intValue()])) {
+                candidateRemoved[candidateCount] = removed;
+                candidateAdded[candidateCount] = added.intValue();
+                candidateCount++;
+            }
+        }
+        final int[] tails = new int[candidateCount];
+        final int[] previous = new int[candidateCount];
+        int length = 0;
+        for (int c = 0; c < candidateCount; c++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (candidateAdded[tails[middle]] < candidateAdded[c]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[c] = (low > 0) ? tails[low - 1] : -1;
+            tails[low] = c;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        final int[] anchors = new int[removedSketches.length];
+        Arrays.fill(anchors, -1);
+        for (int c = (length > 0) ? tails[length - 1] : -1; c != -1; c = previous[c]) {
+            anchors[candidateRemoved[c]] = candidateAdded[c];
+        }
+        return anchors;
+    }
+
+    /** Maps each sketch hash to the index of the only line with it, or {@link #REPEATED}. */
+    private static Map<Long, Integer> indexUnique(int[][] sketches) {
+        final Map<Long, Integer> byHash = new HashMap<Long, Integer>();
+        for (int i = 0; i < sketches.length; i++) {
+            final Long hash = Long.valueOf(getSketchHash(sketches[i]));
+            if (byHash.put(hash, Integer.valueOf(i)) != null) {
+                byHash.put(hash, Integer.valueOf(REPEATED));
+            }
+        }
+        return byHash;
+    }
+
+    private static long getSketchHash(int[] sketch) {
+        long hash = 0;
+        for (int slot = 0; slot < SKETCH_SLOTS; slot++) {
+            hash = hash * 1000003 + sketch[slot];
+        }
+        return hash;
+    }
+
+    private static int[][] sketchAll(List<? extends CharSequence> lines) {
+        final int[][] sketches = new int[lines.size()][];
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i] = sketch(lines.get(i));
+        }
+        return sketches;
+    }
+
+    /**
+     * Computes the one-permutation MinHash sketch of the line's character trigrams: each
+     * trigram's hash picks a slot, which keeps the smallest remaining hash bits seen. Lines
+     * shorter than a trigram are hashed whole.
+     */
+    static int[] sketch(CharSequence line) {
+        final int[] sketch = new int[SKETCH_SLOTS];
+        Arrays.fill(sketch, EMPTY_SLOT);
+        final int length = line.length();
+        if (length == 0) {
+            return sketch;
+        }
+        if (length < 3) {
+            addToSketch(sketch, CompareUtil.hashCode(line));
+            return sketch;
+        }
+        for (int i = 0; i + 3 <= length; i++) {
+            addToSketch(sketch,
+                    (line.charAt(i) * 31 + line.charAt(i + 1)) * 31 + line.charAt(i + 2));
+        }
+        return sketch;
+    }
+
+    private static void addToSketch(int[] sketch, int value) {
+        // Murmur3 finalizer, so that similar trigrams get unrelated hashes
+        int hash = value;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        final int slot = hash >>> SLOT_SHIFT;
+        final int rest = hash & ((1 << SLOT_SHIFT) - 1);
+        if (sketch[slot] == EMPTY_SLOT || rest < sketch[slot]) {
+            sketch[slot] = rest;
+        }
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the trigrams of two lines from their sketches: the
+     * fraction of slots used by either line in which both lines have the same minimum. Two
+     * empty lines are identical.
+     */
+    static float getSimilarity(int[] first, int[] second) {
+        int used = 0;
+        int matching = 0;
+        for (int slot = 0; slot < SKETCH_SLOTS; slot++) {
+            if (first[slot] != EMPTY_SLOT || second[slot] != EMPTY_SLOT) {
+                used++;
+                if (first[slot] == second[slot]) {
+                    matching++;
+                }
+            }
+        }
+        return (used == 0) ? 1f : (float) matching / used;
+    }
+}
@@ -0,0 +1,346 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.CompareUtil;
+import com.scottbezek.difflib.unified.Chunk;
+import com.scottbezek.difflib.unified.Chunk.Block.Delta;
+import com.scottbezek.difflib.unified.SideBySideLine;
+import com.scottbezek.difflib.unified.SingleFileDiff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Finds blocks of lines that were moved within a file: runs of added lines that exactly match
+ * a run of removed lines elsewhere in the diff. Otherwise a moved block shows up as an
+ * unrelated delete and insert, neither of which is worth an intraline diff.
+ * <p/>
+ * Every window of {@link #setMinLines(int) min lines} consecutive removed lines is indexed by
+ * a rolling hash of its line hashes. The added lines are then scanned with the same rolling
+ * hash; each window found in the index is checked line by line, extended as far as the lines
+ * keep matching, and claimed so that a removed line is moved to at most one place. Both passes
+ * are linear in the number of changed lines, rather than comparing every removed run with
+ * every added run.
+ */
+public class MoveDetector {
+
+    /** Default value for {@link #setMinLines(int)}. */
+    public static final int DEFAULT_MIN_LINES = 3;
+
+    /**
+     * Moved blocks with fewer letters and digits than this are ignored, so that runs of blank
+     * lines and closing braces aren't reported as moves.
+     */
+    public static final int MIN_ALPHANUMERIC_CHARS = 20;
+
+    /** Most candidate windows checked for each window of added lines. */
+    private static final int MAX_CANDIDATES = 16;
+
+    private static final long HASH_BASE = 0x100000001b3L;
+
+    private int mMinLines = DEFAULT_MIN_LINES;
+
+    /**
+     * Set the minimum number of lines in a moved block, which is also the size of the hashed
+     * windows.
+     * @return <code>this</code>, for chaining.
+     */
+    public MoveDetector setMinLines(int minLines) {
+        if (minLines < 1) {
+            throw new IllegalArgumentException("Must be at least 1: " + minLines);
+        }
+        mMinLines = minLines;
+        return this;
+    }
+
+    public Moves detect(SingleFileDiff diff) {
+        final LineRuns removed = new LineRuns();
+        final LineRuns added = new LineRuns();
+        for (Chunk chunk : diff.getChunks()) {
+            for (Chunk.Block block : chunk.getBlocks()) {
+                if (block instanceof Delta) {
+                    final Delta delta = (Delta) block;
+                    removed.addRun(delta.getLeftStartLine(), delta.getRemovedLines());
+                    added.addRun(delta.getRightStartLine(), delta.getAddedLines());
+                }
+            }
+        }
+
+        final int windowSize = mMinLines;
+        final long windowPower = power(HASH_BASE, windowSize - 1);
+
+        // Index every window of removed lines by hash, chaining windows with equal hashes
+        final Map<Long, Integer> firstWindowByHash = new HashMap<Long, Integer>();
+        final int[] nextWindow = new int[removed.size()];
+        for (int start = removed.size() - windowSize; start >= 0; start--) {
+            if (removed.getRunEnd(start) - start < windowSize) {
+                continue;
+            }
+            final Long hash = Long.valueOf(removed.getWindowHash(start, windowSize));
+            final Integer next = firstWindowByHash.put(hash, Integer.valueOf(start));
+            nextWindow[start] = (next != null) ? next.intValue() : -1;
+        }
+
+        final boolean[] claimed = new boolean[removed.size()];
+        final List<MovedBlock> blocks = new ArrayList<MovedBlock>();
+        final BitSet movedLeftLines = new BitSet();
+        final BitSet movedRightLines = new BitSet();
+        int start = 0;
+        while (start < added.size()) {
+            final int runEnd = added.getRunEnd(start);
+            if (runEnd - start < windowSize) {
+                start = runEnd;
+                continue;
+            }
+            long hash = added.getWindowHash(start, windowSize);
+            while (true) {
+                final int length = findMove(removed, added, start, runEnd, hash,
+                        firstWindowByHash, nextWindow, claimed, blocks);
+                if (length > 0) {
+                    final MovedBlock block = blocks.get(blocks.size() - 1);
+                    movedLeftLines.set(block.getLeftStartLine(),
+                            block.getLeftStartLine() + length);
+                    movedRightLines.set(block.getRightStartLine(),
+                            block.getRightStartLine() + length);
+                    start += length;
+                    if (runEnd - start < windowSize) {
+                        break;
+                    }
+                    hash = added.getWindowHash(start, windowSize);
+                } else if (length < 0) {
+                    // The lines matched, but are too trivial to be worth calling a move
+                    start -= length;
+                    if (runEnd - start < windowSize) {
+                        break;
+                    }
+                    hash = added.getWindowHash(start, windowSize);
+                } else {
+                    if (start + windowSize >= runEnd) {
+                        break;
+                    }
+                    hash = (hash - added.getLineHash(start) * windowPower) * HASH_BASE
+                            + added.getLineHash(start + windowSize);
+                    start++;
+                }
+            }
+            start = runEnd;
+        }
+        return new Moves(blocks, movedLeftLines, movedRightLines);
+    }
+
+    /**
+     * Looks up the window of added lines at start, and if it matches unclaimed removed lines,
+     * extends the match as far as possible.
+     *
+     * @return The length of the move that was added to blocks; the negated length of a match
+     * that was too trivial to be a move; or 0 if there was no match.
+     */
+    private int findMove(LineRuns removed, LineRuns added, int start, int runEnd, long hash,
+            Map<Long, Integer> firstWindowByHash, int[] nextWindow, boolean[] claimed,
+            List<MovedBlock> blocks) {
+        final Integer first = firstWindowByHash.get(Long.valueOf(hash));
+        int candidate = (first != null) ? first.intValue() : -1;
+        for (int tries = 0; candidate != -1 && tries < MAX_CANDIDATES; tries++) {
+            final int removedEnd = removed.getRunEnd(candidate);
+            int length = 0;
+            while (start + length < runEnd && candidate + length < removedEnd
+                    && !claimed[candidate + length]
+                    && CompareUtil.mismatch(removed.getLine(candidate + length),
+                            added.getLine(start + length)) == -1) {
+                length++;
+            }
+            if (length >= mMinLines) {
+                if (countAlphanumericChars(added, start, length) < MIN_ALPHANUMERIC_CHARS) {
+                    return -length;
+                }
+                for (int i = 0; i < length; i++) {
+                    claimed[candidate + i] = true;
+                }
+                blocks.add(new MovedBlock(removed.getLineNumber(candidate),
+                        added.getLineNumber(start), length));
+                return length;
+            }
+            candidate = nextWindow[candidate];
+        }
+        return 0;
+    }
+
+    private static int countAlphanumericChars(LineRuns lines, int start, int length) {
+        int count = 0;
+        for (int i = start; i < start + length && count < MIN_ALPHANUMERIC_CHARS; i++) {
+            final CharSequence line = lines.getLine(i);
+            for (int j = 0; j < line.length(); j++) {
+                if (Character.isLetterOrDigit(line.charAt(j))) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long power(long base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    /**
+     * The removed or added lines of a diff, in order, split into runs of consecutive lines.
+     */
+    private static class LineRuns {
+
+        private final List<CharSequence> mLines = new ArrayList<CharSequence>();
+
+        private long[] mLineHashes = new long[16];
+
+        private int[] mLineNumbers = new int[16];
+
+        /** For each line, the index after the last line of its run. */
+        private int[] mRunEnds = new int[16];
+
+        void addRun(int startLine, List<? extends CharSequence> lines) {
+            final int start = mLines.size();
+            final int end = start + lines.size();
+            if (end > mLineHashes.length) {
+                final int capacity = Math.max(end, 2 * mLineHashes.length);
+                mLineHashes = Arrays.copyOf(mLineHashes, capacity);
+                mLineNumbers = Arrays.copyOf(mLineNumbers, capacity);
+                mRunEnds = Arrays.copyOf(mRunEnds, capacity);
+            }
+            mLines.addAll(lines);
+            for (int i = start; i < end; i++) {
+                mLineHashes[i] = hashLine(mLines.get(i));
+                mLineNumbers[i] = startLine + i - start;
+                mRunEnds[i] = end;
+            }
+        }
+
+        int size() {
+            return mLines.size();
+        }
+
+        CharSequence getLine(int index) {
+            return mLines.get(index);
+        }
+
+        long getLineHash(int index) {
+            return mLineHashes[index];
+        }
+
+        int getLineNumber(int index) {
+            return mLineNumbers[index];
+        }
+
+        int getRunEnd(int index) {
+            return mRunEnds[index];
+        }
+
+        long getWindowHash(int start, int windowSize) {
+            long hash = 0;
+            for (int i = start; i < start + windowSize; i++) {
+                hash = hash * HASH_BASE + mLineHashes[i];
+            }
+            return hash;
+        }
+
+        private static long hashLine(CharSequence line) {
+            // Murmur3 64-bit finalizer, to spread String's hash over all the bits
+            long hash = CompareUtil.hashCode(line) ^ ((long) line.length() << 32);
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+
+    /**
+     * A block of lines moved from the left file to the right file.
+     */
+    @Immutable
+    public static class MovedBlock {
+
+        private final int mLeftStartLine;
+        private final int mRightStartLine;
+        private final int mLineCount;
+
+        public MovedBlock(int leftStartLine, int rightStartLine, int lineCount) {
+            mLeftStartLine = leftStartLine;
+            mRightStartLine = rightStartLine;
+            mLineCount = lineCount;
+        }
+
+        public int getLeftStartLine() {
+            return mLeftStartLine;
+        }
+
+        public int getRightStartLine() {
+            return mRightStartLine;
+        }
+
+        public int getLineCount() {
+            return mLineCount;
+        }
+
+        @Override
+        public String toString() {
+            return mLeftStartLine + "->" + mRightStartLine + "x" + mLineCount;
+        }
+    }
+
+    /**
+     * The moved blocks found in a diff.
+     */
+    @Immutable
+    public static class Moves {
+
+        private final List<MovedBlock> mBlocks;
+        private final BitSet mMovedLeftLines;
+        private final BitSet mMovedRightLines;
+
+        private Moves(List<MovedBlock> blocks, BitSet movedLeftLines, BitSet movedRightLines) {
+            mBlocks = Collections.unmodifiableList(blocks);
+            mMovedLeftLines = movedLeftLines;
+            mMovedRightLines = movedRightLines;
+        }
+
+        /**
+         * Get the moved blocks, in order of their right lines.
+         */
+        public List<MovedBlock> getBlocks() {
+            return mBlocks;
+        }
+
+        public boolean isLeftLineMoved(int lineNumber) {
+            return mMovedLeftLines.get(lineNumber);
+        }
+
+        public boolean isRightLineMoved(int lineNumber) {
+            return mMovedRightLines.get(lineNumber);
+        }
+
+        /**
+         * Returns the line, marked with whether each side of it was moved.
+         */
+        public SideBySideLine annotate(SideBySideLine line) {
+            final boolean leftMoved = line.getLeftLine() != null
+                    && isLeftLineMoved(line.getLeftLineNumber());
+            final boolean rightMoved = line.getRightLine() != null
+                    && isRightLineMoved(line.getRightLineNumber());
+            if (leftMoved == line.isLeftMoved() && rightMoved == line.isRightMoved()) {
+                return line;
+            }
+            return new SideBySideLine(line.getLeftLineNumber(), line.getLeftLine(),
+                    line.getRightLineNumber(), line.getRightLine(), leftMoved, rightMoved);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Diff algorithm that computes a shortest edit string (insertions and deletions only) which
+ * transforms one sequence to another, using Myers' O(ND) algorithm ("An O(ND) Difference
+ * Algorithm and Its Variations", Eugene W. Myers, 1986) with the linear-space refinement.
+ * <p/>
+ * The running time depends on the size of the edit (D) rather than the product of the sequence
+ * lengths, so it is much cheaper than {@link LevenshteinDiff} for sequences that are nearly
+ * identical. The resulting edit string never contains {@link Edit#REPLACE}; it has the same
+ * minimal cost as a {@link LevenshteinDiff} whose replacement costs as much as a deletion plus an
+ * insertion, though ties between equally cheap edit strings may be broken differently.
+ */
+public class MyersDiff<Element> {
+
+    /**
+     * {@link IDiffAlgorithm} implementation backed by {@link MyersDiff}.
+     */
+    public static final IDiffAlgorithm ALGORITHM = new IDiffAlgorithm() {
+        @Override
+        public <E> EditScript computeEditScript(List<E> first, List<E> second) {
+            return new MyersDiff<E>(first, second).compute().getEditScript();
+        }
+    };
+
+    private final int[] mFirst;
+
+    private final int[] mSecond;
+
+    private EditScript mEditScript = null;
+
+    /**
+     * Construct a MyersDiff to compute the edit string (i.e. series of insertions, deletions, and
+     * no-ops to transform one sequence into another).
+     */
+    public MyersDiff(List<Element> first, List<Element> second) {
+        this(first, second, new TokenDictionary<Element>());
+    }
+
+    /**
+     * Construct a MyersDiff, mapping elements to tokens with the given dictionary.
+     */
+    public MyersDiff(List<Element> first, List<Element> second,
+            TokenDictionary<Element> dictionary) {
+        mFirst = dictionary.tokenize(first);
+        mSecond = dictionary.tokenize(second);
+    }
+
+    /**
+     * Construct a MyersDiff of sequences that were already mapped to tokens (e.g. by a {@link
+     * KeyDictionary}). Elements are equal if their tokens are.
+     */
+    public MyersDiff(int[] firstTokens, int[] secondTokens) {
+        mFirst = firstTokens;
+        mSecond = secondTokens;
+    }
+
+    /**
+     * Computes the diff in O((N+M)D) time and O(N+M) space, where D is the size of the minimal
+     * edit string.
+     * @return <code>this</code>, for chaining.
+     */
+    public MyersDiff<Element> compute() {
+        mEditScript = new EditScript();
+        diffRange(0, mFirst.length, 0, mSecond.length);
+        return this;
+    }
+
+    /**
+     * Retrieve the edit string for this diff. The diff must have already been computed by calling
+     * {@link #compute()}.
+     */
+    public List<Edit> getEditString() {
+        return getEditScript().toEditString();
+    }
+
+    /**
+     * Retrieve the run-length encoded edit string for this diff. The diff must have already been
+     * computed by calling {@link #compute()}.
+     */
+    public EditScript getEditScript() {
+        if (mEditScript == null) {
+            throw new IllegalStateException("Must compute the diff first");
+        }
+        return new EditScript(mEditScript);
+    }
+
+    private boolean matches(int firstIndex, int secondIndex) {
+        return mFirst[firstIndex] == mSecond[secondIndex];
+    }
+
+    /**
+     * Appends the edit string for first[firstStart, firstEnd) -> second[secondStart, secondEnd).
+     */
+    private void diffRange(int firstStart, int firstEnd, int secondStart, int secondEnd) {
+        // Strip the common prefix and suffix, which are never part of the edit
+        int prefixLength = 0;
+        while (firstStart < firstEnd && secondStart < secondEnd
+                && matches(firstStart, secondStart)) {
+            firstStart++;
+            secondStart++;
+            prefixLength++;
+        }
+        mEditScript.append(Edit.UNCHANGED, prefixLength);
+        int suffixLength = 0;
+        while (firstStart < firstEnd && secondStart < secondEnd
+                && matches(firstEnd - 1, secondEnd - 1)) {
+            firstEnd--;
+            secondEnd--;
+            suffixLength++;
+        }
+
+        if (firstStart == firstEnd) {
+            mEditScript.append(Edit.INSERT, secondEnd - secondStart);
+        } else if (secondStart == secondEnd) {
+            mEditScript.append(Edit.DELETE, firstEnd - firstStart);
+        } else {
+            bisect(firstStart, firstEnd, secondStart, secondEnd);
+        }
+
+        mEditScript.append(Edit.UNCHANGED, suffixLength);
+    }
+
+    /**
+     * Finds a point on an optimal edit path by running the forward and reverse searches until
+     * they overlap, then recursively diffs the two halves. Both ranges must be non-empty and must
+     * not share a common prefix or suffix.
+     */
+    private void bisect(int firstStart, int firstEnd, int secondStart, int secondEnd) {
+        final int n = firstEnd - firstStart;
+        final int m = secondEnd - secondStart;
+        final int maxD = (n + m + 1) / 2;
+        final int vOffset = maxD;
+        final int vLength = 2 * maxD + 2;
+
+        // Furthest reaching x coordinate of the forward (v1) and reverse (v2) paths, indexed
+        // by diagonal
+        final int[] v1 = new int[vLength];
+        final int[] v2 = new int[vLength];
+        Arrays.fill(v1, -1);
+        Arrays.fill(v2, -1);
+        v1[vOffset + 1] = 0;
+        v2[vOffset + 1] = 0;
+
+        final int delta = n - m;
+        // If the total number of elements is odd, the forward path will collide with the
+        // reverse path; otherwise the reverse path collides with the forward path.
+        final boolean front = (delta % 2 != 0);
+
+        // Offsets for the start and end of the diagonal range, to skip diagonals that have run
+        // off the edge of the grid
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+        for (int d = 0; d < maxD; d++) {
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                final int k1Offset = vOffset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])) {
+                    x1 = v1[k1Offset + 1];
+                } else {
+                    x1 = v1[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && matches(firstStart + x1, secondStart + y1)) {
+                    x1++;
+                    y1++;
+                }
+                v1[k1Offset] = x1;
+                if (x1 > n) {
+                    // Ran off the right of the grid
+                    k1end += 2;
+                } else if (y1 > m) {
+                    // Ran off the bottom of the grid
+                    k1start += 2;
+                } else if (front) {
+                    final int k2Offset = vOffset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < vLength && v2[k2Offset] != -1) {
+                        // Mirror x2 onto the top-left coordinate system
+                        final int x2 = n - v2[k2Offset];
+                        if (x1 >= x2) {
+                            split(firstStart, firstEnd, secondStart, secondEnd, x1, y1);
+                            return;
+                        }
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                final int k2Offset = vOffset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])) {
+                    x2 = v2[k2Offset + 1];
+                } else {
+                    x2 = v2[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m
+                        && matches(firstEnd - x2 - 1, secondEnd - y2 - 1)) {
+                    x2++;
+                    y2++;
+                }
+                v2[k2Offset] = x2;
+                if (x2 > n) {
+                    // Ran off the left of the grid
+                    k2end += 2;
+                } else if (y2 > m) {
+                    // Ran off the top of the grid
+                    k2start += 2;
+                } else if (!front) {
+                    final int k1Offset = vOffset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < vLength && v1[k1Offset] != -1) {
+                        final int x1 = v1[k1Offset];
+                        final int y1 = vOffset + x1 - k1Offset;
+                        // Mirror x2 onto the top-left coordinate system
+                        if (x1 >= n - x2) {
+                            split(firstStart, firstEnd, secondStart, secondEnd, x1, y1);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        // The paths always meet before running out of diagonals; this is just a safe fallback
+        mEditScript.append(Edit.DELETE, n);
+        mEditScript.append(Edit.INSERT, m);
+    }
+
+    private void split(int firstStart, int firstEnd, int secondStart, int secondEnd,
+            int x, int y) {
+        diffRange(firstStart, firstStart + x, secondStart, secondStart + y);
+        diffRange(firstStart + x, firstEnd, secondStart + y, secondEnd);
+    }
+}
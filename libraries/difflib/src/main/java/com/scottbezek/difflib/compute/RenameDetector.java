@@ -0,0 +1,324 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.CompareUtil;
+import com.scottbezek.difflib.unified.Chunk;
+import com.scottbezek.difflib.unified.Chunk.Block.Delta;
+import com.scottbezek.difflib.unified.SingleFileDiff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds files of a multi-file diff that were renamed or copied, like git's -M and -C: a deleted
+ * file and an added file with similar contents are replaced by a single diff between the two.
+ * Otherwise a renamed file shows up as two diffs the size of the whole file.
+ * <p/>
+ * Each deleted and added file is sketched by the MinHash of its set of lines, whose slots
+ * estimate the Jaccard similarity of two files. Sketches are indexed by bands of slots
+ * (locality-sensitive hashing), so that only files sharing a whole band are ever compared, and
+ * the time is linear in the number of files rather than quadratic. Candidate pairs at least as
+ * similar as the threshold are then paired greedily, most similar first, and only the paired
+ * files are diffed again.
+ */
+public class RenameDetector {
+
+    /**
+     * Default value for {@link #setMinSimilarity(float)}, the same as git's default rename
+     * threshold.
+     */
+    public static final float DEFAULT_MIN_SIMILARITY = 0.5f;
+
+    /** Number of MinHash values kept for each file. */
+    static final int SKETCH_SLOTS = 32;
+
+    /**
+     * Number of slots in each band of the LSH index. Two files with similarity s share at least
+     * one band with probability 1 - (1 - s^2)^16, which is over 99% at the default threshold.
+     */
+    private static final int BAND_SLOTS = 2;
+
+    /**
+     * Most deleted files kept in a single bucket of the index, so that files sharing common
+     * lines (license headers, empty files) can't make the comparisons quadratic.
+     */
+    private static final int MAX_BUCKET_SIZE = 64;
+
+    private float mMinSimilarity = DEFAULT_MIN_SIMILARITY;
+
+    private boolean mDetectCopies = false;
+
+    private int mContextLines = LineDiff.DEFAULT_CONTEXT_LINES;
+
+    /**
+     * Set the estimated fraction of distinct lines two files must share to be paired.
+     * @return <code>this</code>, for chaining.
+     */
+    public RenameDetector setMinSimilarity(float minSimilarity) {
+        if (minSimilarity < 0f || minSimilarity > 1f) {
+            throw new IllegalArgumentException("Not a similarity: " + minSimilarity);
+        }
+        mMinSimilarity = minSimilarity;
+        return this;
+    }
+
+    /**
+     * Set whether an added file whose best match was already paired with another added file is
+     * shown as a copy of it. Each deleted file is renamed at most once either way.
+     * @return <code>this</code>, for chaining.
+     */
+    public RenameDetector setDetectCopies(boolean detectCopies) {
+        mDetectCopies = detectCopies;
+        return this;
+    }
+
+    /**
+     * Set the context lines of the diffs between paired files.
+     * @return <code>this</code>, for chaining.
+     * @see LineDiff#setContextLines(int)
+     */
+    public RenameDetector setContextLines(int contextLines) {
+        if (contextLines < 0) {
+            throw new IllegalArgumentException("Negative context lines: " + contextLines);
+        }
+        mContextLines = contextLines;
+        return this;
+    }
+
+    /**
+     * Returns the diffs with renamed and copied files paired up. Each renamed file's deleted
+     * diff is dropped, and each renamed or copied file's added diff is replaced by the diff from
+     * the file it came from; all other diffs are returned as they are, in the same order.
+     */
+    public List<SingleFileDiff> detect(List<SingleFileDiff> fileDiffs) {
+        final List<Integer> deleted = new ArrayList<Integer>();
+        final List<Integer> added = new ArrayList<Integer>();
+        final List<List<CharSequence>> deletedLines = new ArrayList<List<CharSequence>>();
+        final List<int[]> deletedSketches = new ArrayList<int[]>();
+        for (int i = 0; i < fileDiffs.size(); i++) {
+            final SingleFileDiff diff = fileDiffs.get(i);
+            if (diff.isDeletedFile()) {
+                final List<CharSequence> lines = getLines(diff, false);
+                if (!lines.isEmpty()) {
+                    deleted.add(Integer.valueOf(i));
+                    deletedLines.add(lines);
+                    deletedSketches.add(sketch(lines));
+                }
+            } else if (diff.isAddedFile()) {
+                added.add(Integer.valueOf(i));
+            }
+        }
+        if (deleted.isEmpty() || added.isEmpty()) {
+            return fileDiffs;
+        }
+
+        // Index the deleted files by each band of their sketches
+        final Map<Long, List<Integer>> buckets = new HashMap<Long, List<Integer>>();
+        for (int d = 0; d < deletedSketches.size(); d++) {
+            final int[] sketch = deletedSketches.get(d);
+            for (int band = 0; band < SKETCH_SLOTS / BAND_SLOTS; band++) {
+                final Long key = Long.valueOf(getBandKey(sketch, band));
+                List<Integer> bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<Integer>();
+                    buckets.put(key, bucket);
+                }
+                if (bucket.size() < MAX_BUCKET_SIZE) {
+                    bucket.add(Integer.valueOf(d));
+                }
+            }
+        }
+
+        // Find the similar enough deleted files for each added file
+        final List<Candidate> candidates = new ArrayList<Candidate>();
+        final List<List<CharSequence>> addedLines = new ArrayList<List<CharSequence>>();
+        final int[] lastCompared = new int[deletedSketches.size()];
+        Arrays.fill(lastCompared, -1);
+        for (int a = 0; a < added.size(); a++) {
+            final List<CharSequence> lines =
+                    getLines(fileDiffs.get(added.get(a).intValue()), true);
+            addedLines.add(lines);
+            if (lines.isEmpty()) {
+                continue;
+            }
+            final int[] sketch = sketch(lines);
+            for (int band = 0; band < SKETCH_SLOTS / BAND_SLOTS; band++) {
+                final List<Integer> bucket = buckets.get(Long.valueOf(getBandKey(sketch, band)));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Integer d : bucket) {
+                    if (lastCompared[d.intValue()] == a) {
+                        continue;
+                    }
+                    lastCompared[d.intValue()] = a;
+                    final float similarity =
+                            getSimilarity(sketch, deletedSketches.get(d.intValue()));
+                    if (similarity >= mMinSimilarity) {
+                        candidates.add(new Candidate(a, d.intValue(), similarity));
+                    }
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return fileDiffs;
+        }
+        Candidate.sortBySimilarity(candidates);
+
+        // Pair each file at most once, most similar first. Copies come from files that were
+        // already renamed, so they're only picked once the renames are settled.
+        final int[] sourceByAdded = new int[added.size()];
+        Arrays.fill(sourceByAdded, -1);
+        final boolean[] renamed = new boolean[deletedSketches.size()];
+        for (Candidate candidate : candidates) {
+            if (sourceByAdded[candidate.mAdded] == -1 && !renamed[candidate.mDeleted]) {
+                sourceByAdded[candidate.mAdded] = candidate.mDeleted;
+                renamed[candidate.mDeleted] = true;
+            }
+        }
+        if (mDetectCopies) {
+            for (Candidate candidate : candidates) {
+                if (sourceByAdded[candidate.mAdded] == -1) {
+                    sourceByAdded[candidate.mAdded] = candidate.mDeleted;
+                }
+            }
+        }
+
+        final Map<Integer, SingleFileDiff> replacements = new HashMap<Integer, SingleFileDiff>();
+        for (int d = 0; d < deleted.size(); d++) {
+            if (renamed[d]) {
+                replacements.put(deleted.get(d), null);
+            }
+        }
+        for (int a = 0; a < added.size(); a++) {
+            final int d = sourceByAdded[a];
+            if (d == -1) {
+                continue;
+            }
+            final SingleFileDiff source = fileDiffs.get(deleted.get(d).intValue());
+            final SingleFileDiff destination = fileDiffs.get(added.get(a).intValue());
+            replacements.put(added.get(a), new LineDiff(deletedLines.get(d), addedLines.get(a))
+                    .setContextLines(mContextLines)
+                    .compute(source.getLeftFilename(), destination.getRightFilename()));
+        }
+
+        final List<SingleFileDiff> output = new ArrayList<SingleFileDiff>();
+        for (int i = 0; i < fileDiffs.size(); i++) {
+            final Integer index = Integer.valueOf(i);
+            if (!replacements.containsKey(index)) {
+                output.add(fileDiffs.get(i));
+            } else if (replacements.get(index) != null) {
+                output.add(replacements.get(index));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Get the contents of an added or deleted file, which are all the added or removed lines of
+     * its diff.
+     */
+    private static List<CharSequence> getLines(SingleFileDiff diff, boolean added) {
+        final List<CharSequence> lines = new ArrayList<CharSequence>();
+        for (Chunk chunk : diff.getChunks()) {
+            for (Chunk.Block block : chunk.getBlocks()) {
+                if (block instanceof Delta) {
+                    final Delta delta = (Delta) block;
+                    lines.addAll(added ? delta.getAddedLines() : delta.getRemovedLines());
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Computes the MinHash sketch of the set of lines: slot i keeps the smallest value of the
+     * i-th hash function over all the lines.
+     */
+    static int[] sketch(List<? extends CharSequence> lines) {
+        final int[] sketch = new int[SKETCH_SLOTS];
+        Arrays.fill(sketch, Integer.MAX_VALUE);
+        for (CharSequence line : lines) {
+            final int lineHash = CompareUtil.hashCode(line);
+            for (int slot = 0; slot < SKETCH_SLOTS; slot++) {
+                final int hash = mix(lineHash + slot * 0x9e3779b9);
+                if (hash < sketch[slot]) {
+                    sketch[slot] = hash;
+                }
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * Murmur3 finalizer, so that each slot's hash function orders the lines differently.
+     */
+    private static int mix(int value) {
+        int hash = value;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static long getBandKey(int[] sketch, int band) {
+        long key = band;
+        for (int slot = band * BAND_SLOTS; slot < (band + 1) * BAND_SLOTS; slot++) {
+            key = key * 0x100000001b3L + sketch[slot];
+        }
+        return key;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the line sets of two files from their sketches: the
+     * fraction of slots with the same minimum.
+     */
+    static float getSimilarity(int[] first, int[] second) {
+        int matching = 0;
+        for (int slot = 0; slot < SKETCH_SLOTS; slot++) {
+            if (first[slot] == second[slot]) {
+                matching++;
+            }
+        }
+        return (float) matching / SKETCH_SLOTS;
+    }
+
+    private static class Candidate {
+
+        private final int mAdded;
+        private final int mDeleted;
+        private final float mSimilarity;
+
+        Candidate(int added, int deleted, float similarity) {
+            mAdded = added;
+            mDeleted = deleted;
+            mSimilarity = similarity;
+        }
+
+        /**
+         * Sorts candidates from most to least similar, breaking ties by position so that the
+         * pairing doesn't depend on the order the index returned them in.
+         */
+        static void sortBySimilarity(List<Candidate> candidates) {
+            Collections.sort(candidates, new Comparator<Candidate>() {
+                @Override
+                public int compare(Candidate lhs, Candidate rhs) {
+                    if (lhs.mSimilarity != rhs.mSimilarity) {
+                        return (lhs.mSimilarity > rhs.mSimilarity) ? -1 : 1;
+                    }
+                    if (lhs.mAdded != rhs.mAdded) {
+                        return (lhs.mAdded < rhs.mAdded) ? -1 : 1;
+                    }
+                    return (lhs.mDeleted < rhs.mDeleted) ? -1
+                            : (lhs.mDeleted == rhs.mDeleted ? 0 : 1);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps elements to dense int tokens, so that diff algorithms can compare elements with a single
+ * int comparison instead of {@link Object#equals(Object)}. Equal elements always map to the same
+ * token, and tokens are assigned in increasing order starting from 0.
+ * <p/>
+ * A dictionary may be shared between several diffs (e.g. all of the lines in a file), so each
+ * distinct element is only hashed into it once. Not thread-safe.
+ */
+public class TokenDictionary<Element> {
+
+    private final Map<Element, Integer> mTokens = new HashMap<Element, Integer>();
+
+    /**
+     * Returns the token for the element, assigning a new one if it hasn't been seen before.
+     */
+    public int getToken(Element element) {
+        Integer token = mTokens.get(element);
+        if (token == null) {
+            token = mTokens.size();
+            mTokens.put(element, token);
+        }
+        return token;
+    }
+
+    /**
+     * Returns the tokens for each of the elements, in order.
+     */
+    public int[] tokenize(List<? extends Element> elements) {
+        final int[] tokens = new int[elements.size()];
+        int i = 0;
+        for (Element element : elements) {
+            tokens[i++] = getToken(element);
+        }
+        return tokens;
+    }
+
+    /**
+     * Forgets all tokens. Tokens assigned afterwards start again from 0, so tokens from before
+     * and after clearing must not be compared.
+     */
+    public void clear() {
+        mTokens.clear();
+    }
+
+    /**
+     * Returns the number of distinct tokens assigned so far.
+     */
+    public int size() {
+        return mTokens.size();
+    }
+}
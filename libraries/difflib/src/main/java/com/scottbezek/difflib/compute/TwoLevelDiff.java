@@ -0,0 +1,206 @@
+package com.scottbezek.difflib.compute;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Diffs sequences of elements that are grouped into larger units (e.g. the characters of a line,
+ * grouped into words) in two levels: first the groups are diffed as a whole, and then only the
+ * regions of changed groups are diffed element by element.
+ * <p/>
+ * Since most groups are usually unchanged, this is much cheaper than diffing all of the elements
+ * directly. It also avoids spurious matches of single elements between unrelated groups, since
+ * elements can only match within a changed region.
+ */
+public class TwoLevelDiff {
+
+    private final IDiffAlgorithm mGroupAlgorithm;
+
+    private final IDiffAlgorithm mElementAlgorithm;
+
+    /**
+     * @param groupAlgorithm   Algorithm used to diff the groups, which are compared using {@link
+     *                         List#equals(Object)}, or under its {@link ComparisonMode}. Groups
+     *                         that are equal but have different numbers of elements are diffed
+     *                         element by element, like changed groups.
+     * @param elementAlgorithm Algorithm used to diff the elements of each changed region.
+     */
+    public TwoLevelDiff(IDiffAlgorithm groupAlgorithm, IDiffAlgorithm elementAlgorithm) {
+        mGroupAlgorithm = groupAlgorithm;
+        mElementAlgorithm = elementAlgorithm;
+    }
+
+    /**
+     * Compute an edit string which transforms the elements of <code>firstGroups</code> into the
+     * elements of <code>secondGroups</code>. The edit string is in terms of the individual
+     * elements, not the groups.
+     */
+    public <Element> EditScript computeEditScript(List<List<Element>> firstGroups,
+            List<List<Element>> secondGroups) {
+        final EditScript groupScript =
+                mGroupAlgorithm.computeEditScript(firstGroups, secondGroups);
+        final EditScript output = new EditScript();
+        final List<Element> firstChanged = new ArrayList<Element>();
+        final List<Element> secondChanged = new ArrayList<Element>();
+        int firstGroup = 0;
+        int secondGroup = 0;
+        for (int run = 0; run < groupScript.getRunCount(); run++) {
+            final int firstLength = groupScript.getRunFirstLength(run);
+            final int secondLength = groupScript.getRunSecondLength(run);
+            if (groupScript.getRunEdit(run) == Edit.UNCHANGED) {
+                for (int k = 0; k < firstLength; k++) {
+                    final List<Element> first = firstGroups.get(firstGroup + k);
+                    final List<Element> second = secondGroups.get(secondGroup + k);
+                    if (first.size() == second.size()) {
+                        appendChangedRegion(firstChanged, secondChanged, output);
+                        output.append(Edit.UNCHANGED, first.size());
+                    } else {
+                        // Equal under the group algorithm's comparison mode (e.g. " " and
+                        // "    ", when ignoring whitespace changes), but the elements don't
+                        // pair up, so they're refined like a changed region
+                        firstChanged.addAll(first);
+                        secondChanged.addAll(second);
+                    }
+                }
+            } else {
+                // Adjacent changed runs are refined together as a single region
+                for (int k = 0; k < firstLength; k++) {
+                    firstChanged.addAll(firstGroups.get(firstGroup + k));
+                }
+                for (int k = 0; k < secondLength; k++) {
+                    secondChanged.addAll(secondGroups.get(secondGroup + k));
+                }
+            }
+            firstGroup += firstLength;
+            secondGroup += secondLength;
+        }
+        appendChangedRegion(firstChanged, secondChanged, output);
+        return output;
+    }
+
+    /**
+     * Like {@link #computeEditScript(List, List)}, but the groups and elements are the segments
+     * of two texts between consecutive boundaries (see {@link
+     * LevenshteinDiff.Algorithm#computeEditScript(CharSequence, int[], int, int, CharSequence,
+     * int[], int, int)}). The first groups are the segments from
+     * firstGroupBoundaries[firstGroupFrom] to firstGroupBoundaries[firstGroupTo], and their
+     * elements are the segments from firstBoundaries[firstFrom] onwards, so every group
+     * boundary must also be an element boundary. Likewise for the second groups.
+     * <p/>
+     * If both algorithms are {@link LevenshteinDiff.Algorithm}s, no object is allocated per
+     * group or element.
+     */
+    public EditScript computeEditScript(
+            CharSequence first, int[] firstGroupBoundaries, int firstGroupFrom, int firstGroupTo,
+            int[] firstBoundaries, int firstFrom,
+            CharSequence second, int[] secondGroupBoundaries, int secondGroupFrom,
+            int secondGroupTo, int[] secondBoundaries, int secondFrom) {
+        final EditScript groupScript = computeEditScript(mGroupAlgorithm,
+                first, firstGroupBoundaries, firstGroupFrom, firstGroupTo,
+                second, secondGroupBoundaries, secondGroupFrom, secondGroupTo);
+        final EditScript output = new EditScript();
+        int firstGroup = firstGroupFrom;
+        int secondGroup = secondGroupFrom;
+        // Indexes of the first elements of the current groups, and of the changed region
+        int firstElement = firstFrom;
+        int secondElement = secondFrom;
+        int firstChanged = firstFrom;
+        int secondChanged = secondFrom;
+        for (int run = 0; run < groupScript.getRunCount(); run++) {
+            final int firstLength = groupScript.getRunFirstLength(run);
+            final int secondLength = groupScript.getRunSecondLength(run);
+            if (groupScript.getRunEdit(run) == Edit.UNCHANGED) {
+                for (int k = 0; k < firstLength; k++) {
+                    final int firstEnd = findBoundary(firstBoundaries, firstElement,
+                            firstGroupBoundaries[++firstGroup]);
+                    final int secondEnd = findBoundary(secondBoundaries, secondElement,
+                            secondGroupBoundaries[++secondGroup]);
+                    if (firstEnd - firstElement == secondEnd - secondElement) {
+                        appendChangedRegion(first, firstBoundaries, firstChanged, firstElement,
+                                second, secondBoundaries, secondChanged, secondElement, output);
+                        output.append(Edit.UNCHANGED, firstEnd - firstElement);
+                        firstChanged = firstEnd;
+                        secondChanged = secondEnd;
+                    }
+                    // Otherwise the groups are refined along with the changed region, as in
+                    // computeEditScript(List, List)
+                    firstElement = firstEnd;
+                    secondElement = secondEnd;
+                }
+            } else {
+                firstGroup += firstLength;
+                secondGroup += secondLength;
+                firstElement = findBoundary(firstBoundaries, firstElement,
+                        firstGroupBoundaries[firstGroup]);
+                secondElement = findBoundary(secondBoundaries, secondElement,
+                        secondGroupBoundaries[secondGroup]);
+            }
+        }
+        appendChangedRegion(first, firstBoundaries, firstChanged, firstElement,
+                second, secondBoundaries, secondChanged, secondElement, output);
+        return output;
+    }
+
+    /**
+     * Returns the index of the boundary at the offset, searching forwards from the given index.
+     */
+    private static int findBoundary(int[] boundaries, int index, int offset) {
+        while (boundaries[index] < offset) {
+            index++;
+        }
+        return index;
+    }
+
+    private void appendChangedRegion(CharSequence first, int[] firstBoundaries, int firstFrom,
+            int firstTo, CharSequence second, int[] secondBoundaries, int secondFrom,
+            int secondTo, EditScript output) {
+        if (firstFrom == firstTo) {
+            output.append(Edit.INSERT, secondTo - secondFrom);
+        } else if (secondFrom == secondTo) {
+            output.append(Edit.DELETE, firstTo - firstFrom);
+        } else {
+            output.append(computeEditScript(mElementAlgorithm,
+                    first, firstBoundaries, firstFrom, firstTo,
+                    second, secondBoundaries, secondFrom, secondTo));
+        }
+    }
+
+    /**
+     * Diffs segments of the texts with the algorithm, in place if it's a {@link
+     * LevenshteinDiff.Algorithm}, and as Strings otherwise.
+     */
+    private static EditScript computeEditScript(IDiffAlgorithm algorithm,
+            CharSequence first, int[] firstBoundaries, int firstFrom, int firstTo,
+            CharSequence second, int[] secondBoundaries, int secondFrom, int secondTo) {
+        if (algorithm instanceof LevenshteinDiff.Algorithm) {
+            return ((LevenshteinDiff.Algorithm) algorithm).computeEditScript(
+                    first, firstBoundaries, firstFrom, firstTo,
+                    second, secondBoundaries, secondFrom, secondTo);
+        }
+        return algorithm.computeEditScript(
+                getSegments(first, firstBoundaries, firstFrom, firstTo),
+                getSegments(second, secondBoundaries, secondFrom, secondTo));
+    }
+
+    private static List<String> getSegments(CharSequence text, int[] boundaries, int from,
+            int to) {
+        final List<String> segments = new ArrayList<String>(to - from);
+        for (int i = from; i < to; i++) {
+            segments.add(text.subSequence(boundaries[i], boundaries[i + 1]).toString());
+        }
+        return segments;
+    }
+
+    private <Element> void appendChangedRegion(List<Element> firstChanged,
+            List<Element> secondChanged, EditScript output) {
+        if (firstChanged.isEmpty()) {
+            output.append(Edit.INSERT, secondChanged.size());
+        } else if (secondChanged.isEmpty()) {
+            output.append(Edit.DELETE, firstChanged.size());
+        } else {
+            output.append(mElementAlgorithm.computeEditScript(firstChanged, secondChanged));
+        }
+        firstChanged.clear();
+        secondChanged.clear();
+    }
+}
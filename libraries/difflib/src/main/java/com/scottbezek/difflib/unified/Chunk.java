@@ -1,11 +1,15 @@
 package com.scottbezek.difflib.unified;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
+import com.scottbezek.difflib.CompareUtil;
+import com.scottbezek.difflib.compute.ComparisonMode;
+import com.scottbezek.difflib.compute.LinePairing;
 import com.scottbezek.difflib.unified.Chunk.Block.Delta;
 import com.scottbezek.difflib.unified.Chunk.Block.Unchanged;
 import com.scottbezek.difflib.unified.Parser.DiffParseException;
@@ -26,11 +30,23 @@ public class Chunk implements IForwardApplicable, IDiffLines {
         return mLeftStartLine;
     }
 
+    /**
+     * Get the blocks of this chunk, in order.
+     */
+    public List<Block> getBlocks() {
+        return Collections.unmodifiableList(mBlocks);
+    }
+
     @Override
     public List<SideBySideLine> applyForward(ILineReader leftFile) {
+        return applyForward(leftFile, ComparisonMode.EXACT);
+    }
+
+    @Override
+    public List<SideBySideLine> applyForward(ILineReader leftFile, ComparisonMode mode) {
         List<SideBySideLine> output = new ArrayList<SideBySideLine>();
         for (Block block : mBlocks) {
-            output.addAll(block.applyForward(leftFile));
+            output.addAll(block.applyForward(leftFile, mode));
         }
         return output;
     }
@@ -47,6 +63,26 @@ public class Chunk implements IForwardApplicable, IDiffLines {
         return output;
     }
 
+    /**
+     * Throws if a line consumed while applying the chunk doesn't match the line the chunk
+     * expected under the mode.
+     */
+    private static void checkConsumedLine(CharSequence expectedLine, String consumedLine,
+            ComparisonMode mode) {
+        if (!mode.isExact()) {
+            if (consumedLine == null || !mode.isEqual(expectedLine, consumedLine)) {
+                throw new IllegalStateException("Expected:\n" + expectedLine + "\nBut got:\n"
+                        + consumedLine + "\n(comparing " + mode + ")");
+            }
+            return;
+        }
+        final int mismatch = CompareUtil.mismatch(expectedLine, consumedLine);
+        if (mismatch != -1) {
+            throw new IllegalStateException("Expected:\n" + expectedLine + "\nBut got:\n"
+                    + consumedLine + "\n(lines differ at column " + (mismatch + 1) + ")");
+        }
+    }
+
     public static class Builder {
 
         private final int mLeftStartLine;
@@ -109,8 +145,17 @@ public class Chunk implements IForwardApplicable, IDiffLines {
             return mCurrentUnchangedBuilder;
         }
 
-        public void appendLineUnchanged(String line) throws DiffParseException {
-            prepareUnchangedBuilder().appendLine(line);
+        public void appendLineUnchanged(CharSequence line) throws DiffParseException {
+            appendLineUnchanged(line, line);
+        }
+
+        /**
+         * Append an unchanged line whose left and right versions may differ, because they are
+         * only equal under some {@link ComparisonMode}.
+         */
+        public void appendLineUnchanged(CharSequence leftLine, CharSequence rightLine)
+                throws DiffParseException {
+            prepareUnchangedBuilder().appendLine(leftLine, rightLine);
             mLeftLinesProcessed++;
             mRightLinesProcessed++;
             assertSize();
@@ -135,13 +180,13 @@ public class Chunk implements IForwardApplicable, IDiffLines {
             return mCurrentDeltaBuilder;
         }
 
-        public void appendLineLeftRemoved(String line) throws DiffParseException {
+        public void appendLineLeftRemoved(CharSequence line) throws DiffParseException {
             prepareDeltaBuilder().appendRemovedLine(line);
             mLeftLinesProcessed++;
             assertSize();
         }
 
-        public void appendLineRightAdded(String line) throws DiffParseException {
+        public void appendLineRightAdded(CharSequence line) throws DiffParseException {
             prepareDeltaBuilder().appendAddedLine(line);
             mRightLinesProcessed++;
             assertSize();
@@ -172,29 +217,38 @@ public class Chunk implements IForwardApplicable, IDiffLines {
 
             private final int mLeftStartLine;
             private final int mRightStartLine;
-            private final List<String> mLines;
+            private final List<CharSequence> mLines;
+            private final List<CharSequence> mRightLines;
 
-            public Unchanged(int leftStartLine, int rightStartLine, List<String> lines) {
+            public Unchanged(int leftStartLine, int rightStartLine, List<CharSequence> lines) {
+                this(leftStartLine, rightStartLine, lines, null);
+            }
+
+            /**
+             * @param rightLines The right versions of the lines, if any differ from the left
+             *                   lines (see {@link Chunk.Builder#appendLineUnchanged(
+             *                   CharSequence, CharSequence)}), or null.
+             */
+            public Unchanged(int leftStartLine, int rightStartLine, List<CharSequence> leftLines,
+                    List<CharSequence> rightLines) {
                 mLeftStartLine = leftStartLine;
                 mRightStartLine = rightStartLine;
-                mLines = lines;
+                mLines = leftLines;
+                mRightLines = rightLines;
             }
 
             @Override
             public List<SideBySideLine> applyForward(ILineReader leftFile) {
-                int leftLine = mLeftStartLine;
-                int rightLine = mRightStartLine;
-                List<SideBySideLine> output = new ArrayList<SideBySideLine>();
-                for (String line : mLines) {
-                    String consumedLine = leftFile.consumeLine();
-                    if (!line.equals(consumedLine)) {
-                        throw new IllegalStateException("Expected:\n" + line + "\nBut got:\n" + consumedLine);
-                    }
-                    output.add(new SideBySideLine(leftLine, line, rightLine, line));
-                    leftLine++;
-                    rightLine++;
+                return applyForward(leftFile, ComparisonMode.EXACT);
+            }
+
+            @Override
+            public List<SideBySideLine> applyForward(ILineReader leftFile,
+                    ComparisonMode mode) {
+                for (CharSequence line : mLines) {
+                    checkConsumedLine(line, leftFile.consumeLine(), mode);
                 }
-                return output;
+                return getLines();
             }
 
             @Override
@@ -202,8 +256,10 @@ public class Chunk implements IForwardApplicable, IDiffLines {
                 int leftLine = mLeftStartLine;
                 int rightLine = mRightStartLine;
                 List<SideBySideLine> output = new ArrayList<SideBySideLine>();
-                for (String line : mLines) {
-                    output.add(new SideBySideLine(leftLine, line, rightLine, line));
+                for (int i = 0; i < mLines.size(); i++) {
+                    final CharSequence line = mLines.get(i);
+                    output.add(new SideBySideLine(leftLine, line, rightLine,
+                            (mRightLines != null) ? mRightLines.get(i) : line));
                     leftLine++;
                     rightLine++;
                 }
@@ -214,19 +270,36 @@ public class Chunk implements IForwardApplicable, IDiffLines {
 
                 private final int mLeftStartLine;
                 private final int mRightStartLine;
-                private final List<String> mLines = new ArrayList<String>();
+                private final ArrayList<CharSequence> mLines = new ArrayList<CharSequence>();
+                private ArrayList<CharSequence> mRightLines = null;
 
                 public Builder(int leftStartLine, int rightStartLine) {
                     mLeftStartLine = leftStartLine;
                     mRightStartLine = rightStartLine;
                 }
 
-                public void appendLine(String line) {
-                    mLines.add(line);
+                public void appendLine(CharSequence line) {
+                    appendLine(line, line);
+                }
+
+                public void appendLine(CharSequence leftLine, CharSequence rightLine) {
+                    // Right lines are only kept once one differs from its left line
+                    if (mRightLines == null && CompareUtil.mismatch(leftLine, rightLine) != -1) {
+                        mRightLines = new ArrayList<CharSequence>(mLines);
+                    }
+                    mLines.add(leftLine);
+                    if (mRightLines != null) {
+                        mRightLines.add(rightLine);
+                    }
                 }
 
                 public Unchanged build() {
-                    return new Unchanged(mLeftStartLine, mRightStartLine, mLines);
+                    // Blocks are often short, so don't keep the lists' spare capacity around
+                    mLines.trimToSize();
+                    if (mRightLines != null) {
+                        mRightLines.trimToSize();
+                    }
+                    return new Unchanged(mLeftStartLine, mRightStartLine, mLines, mRightLines);
                 }
             }
         }
@@ -236,38 +309,58 @@ public class Chunk implements IForwardApplicable, IDiffLines {
 
             private final int mLeftStartLine;
             private final int mRightStartLine;
-            private final List<String> mRemovedLines;
-            private final List<String> mAddedLines;
+            private final List<CharSequence> mRemovedLines;
+            private final List<CharSequence> mAddedLines;
 
             public Delta(int leftStartLine, int rightStartLine,
-                    List<String> removedLines, List<String> addedLines) {
+                    List<CharSequence> removedLines, List<CharSequence> addedLines) {
                 mLeftStartLine = leftStartLine;
                 mRightStartLine = rightStartLine;
                 mRemovedLines = removedLines;
                 mAddedLines = addedLines;
             }
 
+            public int getLeftStartLine() {
+                return mLeftStartLine;
+            }
+
+            public int getRightStartLine() {
+                return mRightStartLine;
+            }
+
+            public List<CharSequence> getRemovedLines() {
+                return Collections.unmodifiableList(mRemovedLines);
+            }
+
+            public List<CharSequence> getAddedLines() {
+                return Collections.unmodifiableList(mAddedLines);
+            }
+
             public static class Builder {
 
                 private final int mLeftStartLine;
                 private final int mRightStartLine;
-                private final List<String> mRemovedLines = new ArrayList<String>();
-                private final List<String> mAddedLines = new ArrayList<String>();
+                private final ArrayList<CharSequence> mRemovedLines =
+                        new ArrayList<CharSequence>();
+                private final ArrayList<CharSequence> mAddedLines =
+                        new ArrayList<CharSequence>();
 
                 public Builder(int leftStartLine, int rightStartLine) {
                     mLeftStartLine = leftStartLine;
                     mRightStartLine = rightStartLine;
                 }
 
-                public void appendRemovedLine(String removedLine) {
+                public void appendRemovedLine(CharSequence removedLine) {
                     mRemovedLines.add(removedLine);
                 }
 
-                public void appendAddedLine(String addedLine) {
+                public void appendAddedLine(CharSequence addedLine) {
                     mAddedLines.add(addedLine);
                 }
 
                 public Delta build() {
+                    mRemovedLines.trimToSize();
+                    mAddedLines.trimToSize();
                     return new Delta(mLeftStartLine, mRightStartLine,
                             mRemovedLines, mAddedLines);
                 }
@@ -275,66 +368,56 @@ public class Chunk implements IForwardApplicable, IDiffLines {
 
             @Override
             public List<SideBySideLine> applyForward(ILineReader leftFile) {
-                int outLines = Math.max(mRemovedLines.size(), mAddedLines.size());
-
-                int leftLine = mLeftStartLine;
-                int rightLine = mRightStartLine;
-                List<SideBySideLine> output = new ArrayList<SideBySideLine>();
-
-                for (int i = 0; i < outLines; i++) {
-                    String expectedRemovedLine = null;
-                    String addedLine = null;
-                    if (i < mRemovedLines.size()) {
-                        expectedRemovedLine = mRemovedLines.get(i);
-                        String consumedLine = leftFile.consumeLine();
-                        if (!expectedRemovedLine.equals(consumedLine)) {
-                            throw new IllegalStateException("Expected:\n"
-                                    + expectedRemovedLine + "\nBut got:\n"
-                                    + consumedLine);
-                        }
-                    }
-                    if (i < mAddedLines.size()) {
-                        addedLine = mAddedLines.get(i);
-                    }
-                    SideBySideLine line = new SideBySideLine(leftLine, expectedRemovedLine, rightLine, addedLine);
-                    output.add(line);
+                return applyForward(leftFile, ComparisonMode.EXACT);
+            }
 
-                    if (line.getLeftLine() != null) {
-                        leftLine++;
-                    }
-                    if (line.getRightLine() != null) {
-                        rightLine++;
-                    }
+            @Override
+            public List<SideBySideLine> applyForward(ILineReader leftFile,
+                    ComparisonMode mode) {
+                for (CharSequence removedLine : mRemovedLines) {
+                    checkConsumedLine(removedLine, leftFile.consumeLine(), mode);
                 }
-                return output;
+                return getLines();
             }
 
+            /**
+             * Get the lines of this block. Removed and added lines are shown side by side only
+             * if they are similar (see {@link LinePairing}); the rest are shown on their own.
+             */
             @Override
             public List<SideBySideLine> getLines() {
-                int outLines = Math.max(mRemovedLines.size(), mAddedLines.size());
+                final int[] pairs = LinePairing.pair(mRemovedLines, mAddedLines);
 
                 int leftLine = mLeftStartLine;
                 int rightLine = mRightStartLine;
+                int addedIndex = 0;
                 List<SideBySideLine> output = new ArrayList<SideBySideLine>();
-
-                for (int i = 0; i < outLines; i++) {
-                    String expectedRemovedLine = null;
-                    String addedLine = null;
-                    if (i < mRemovedLines.size()) {
-                        expectedRemovedLine = mRemovedLines.get(i);
-                    }
-                    if (i < mAddedLines.size()) {
-                        addedLine = mAddedLines.get(i);
-                    }
-                    SideBySideLine line = new SideBySideLine(leftLine, expectedRemovedLine, rightLine, addedLine);
-                    output.add(line);
-
-                    if (line.getLeftLine() != null) {
+                for (int removedIndex = 0; removedIndex < pairs.length; removedIndex++) {
+                    final CharSequence removedLine = mRemovedLines.get(removedIndex);
+                    final int partner = pairs[removedIndex];
+                    if (partner == -1) {
+                        output.add(new SideBySideLine(leftLine, removedLine, rightLine, null));
                         leftLine++;
+                        continue;
                     }
-                    if (line.getRightLine() != null) {
+                    // Added lines before the partner have no counterpart
+                    while (addedIndex < partner) {
+                        output.add(new SideBySideLine(
+                                leftLine, null, rightLine, mAddedLines.get(addedIndex)));
                         rightLine++;
+                        addedIndex++;
                     }
+                    output.add(new SideBySideLine(
+                            leftLine, removedLine, rightLine, mAddedLines.get(addedIndex)));
+                    leftLine++;
+                    rightLine++;
+                    addedIndex++;
+                }
+                while (addedIndex < mAddedLines.size()) {
+                    output.add(new SideBySideLine(
+                            leftLine, null, rightLine, mAddedLines.get(addedIndex)));
+                    rightLine++;
+                    addedIndex++;
                 }
                 return output;
             }
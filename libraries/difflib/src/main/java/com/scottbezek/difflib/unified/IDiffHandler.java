@@ -0,0 +1,56 @@
+package com.scottbezek.difflib.unified;
+
+import com.scottbezek.difflib.unified.Parser.DiffParseException;
+
+/**
+ * Receives the parts of a unified diff as they're parsed (see {@link Parser#parse(
+ * LineSource, IDiffHandler)}), so that consumers can process a diff in a single pass
+ * without holding all of it in memory.
+ * <p/>
+ * Events always nest: every file start is followed by its chunks and then a file end, and
+ * every chunk start by its lines and then a chunk end. The only exception is a chunk that the
+ * input ends in the middle of, whose end is never reported; its file's end still is. Handlers
+ * may throw {@link DiffParseException} to abort parsing.
+ */
+public interface IDiffHandler {
+
+    /**
+     * Called once both filenames of the next file are known.
+     */
+    void onFileStart(String leftFilename, String rightFilename) throws DiffParseException;
+
+    /**
+     * Called for each chunk header.
+     *
+     * @param contextSnippet The text after the line ranges (e.g. the enclosing function), or
+     *                       null if there is none.
+     */
+    void onChunkStart(int leftStartLine, int leftLength, int rightStartLine, int rightLength,
+            String contextSnippet) throws DiffParseException;
+
+    /**
+     * Called for a line that is in both files, without its leading ' '. Lines are immutable
+     * (see {@link LineSlice}), so they may be kept.
+     */
+    void onLineUnchanged(CharSequence line) throws DiffParseException;
+
+    /**
+     * Called for a line that is only in the left file, without its leading '-'.
+     */
+    void onLineLeftRemoved(CharSequence line) throws DiffParseException;
+
+    /**
+     * Called for a line that is only in the right file, without its leading '+'.
+     */
+    void onLineRightAdded(CharSequence line) throws DiffParseException;
+
+    /**
+     * Called once all of the lines of the chunk have been reported.
+     */
+    void onChunkEnd() throws DiffParseException;
+
+    /**
+     * Called once all of the chunks of the file have been reported.
+     */
+    void onFileEnd() throws DiffParseException;
+}
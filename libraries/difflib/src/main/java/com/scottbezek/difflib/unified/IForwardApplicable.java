@@ -1,5 +1,7 @@
 package com.scottbezek.difflib.unified;
 
+import com.scottbezek.difflib.compute.ComparisonMode;
+
 import java.util.List;
 
 public interface IForwardApplicable {
@@ -12,4 +14,10 @@ public interface IForwardApplicable {
      * @return
      */
     List<SideBySideLine> applyForward(ILineReader baseFile);
+
+    /**
+     * Like {@link #applyForward(ILineReader)}, but lines read from the base file only need to
+     * match the diff under the given mode, e.g. for a diff made ignoring whitespace.
+     */
+    List<SideBySideLine> applyForward(ILineReader baseFile, ComparisonMode mode);
 }
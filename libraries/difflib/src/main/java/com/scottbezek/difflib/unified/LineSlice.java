@@ -0,0 +1,246 @@
+package com.scottbezek.difflib.unified;
+
+import com.scottbezek.difflib.CompareUtil;
+
+import java.nio.charset.Charset;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The text of a diff line, as a range of an array that's shared with other lines (see
+ * {@link Buffer}), so that a parsed diff costs one small object per line plus its chars,
+ * rather than a String and an array per line.
+ * <p/>
+ * Like compact Strings, lines whose chars all fit in a byte (e.g. ASCII lines, which are most
+ * lines of most diffs) are stored a byte per char; other lines are stored as chars.
+ * <p/>
+ * Slices are equal if their chars are, and hash like Strings with the same chars do. A slice
+ * is never equal to a String; use {@link CompareUtil#mismatch(CharSequence, CharSequence)} to
+ * compare with other kinds of CharSequence.
+ */
+@Immutable
+public abstract class LineSlice implements CharSequence {
+
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    private final int mStart;
+    private final int mLength;
+
+    private LineSlice(int start, int length, int arrayLength) {
+        if (start < 0 || length < 0 || start + length > arrayLength) {
+            throw new IndexOutOfBoundsException("Invalid slice: start " + start + ", length "
+                    + length + ", array length " + arrayLength);
+        }
+        mStart = start;
+        mLength = length;
+    }
+
+    @Override
+    public final int length() {
+        return mLength;
+    }
+
+    /**
+     * Returns the index in the backing array of the first char.
+     */
+    final int getStart() {
+        return mStart;
+    }
+
+    final void checkIndex(int index) {
+        if (index < 0 || index >= mLength) {
+            throw new IndexOutOfBoundsException("Index " + index + ", length " + mLength);
+        }
+    }
+
+    final void checkRange(int start, int end) {
+        if (start < 0 || end < start || end > mLength) {
+            throw new IndexOutOfBoundsException("Invalid range: start " + start + ", end " + end
+                    + ", length " + mLength);
+        }
+    }
+
+    /**
+     * Returns a slice of the same chars, without copying them.
+     */
+    @Override
+    public abstract LineSlice subSequence(int start, int end);
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LineSlice)) {
+            return false;
+        }
+        final LineSlice other = (LineSlice) o;
+        if (mLength != other.mLength) {
+            return false;
+        }
+        if (this instanceof Latin1Slice && other instanceof Latin1Slice) {
+            return CompareUtil.commonPrefixLength(((Latin1Slice) this).mBytes, mStart,
+                    ((Latin1Slice) other).mBytes, other.mStart, mLength) == mLength;
+        }
+        return CompareUtil.commonPrefixLength(this, other) == mLength;
+    }
+
+    /**
+     * Not cached, unlike String's, to keep slices small; callers that hash lines repeatedly
+     * already keep the hashes themselves.
+     */
+    @Override
+    public final int hashCode() {
+        return CompareUtil.hashCode(this);
+    }
+
+    /**
+     * A line whose chars are all below U+0100, stored a byte per char.
+     */
+    private static final class Latin1Slice extends LineSlice {
+
+        private final byte[] mBytes;
+
+        Latin1Slice(byte[] bytes, int start, int length) {
+            super(start, length, bytes.length);
+            mBytes = bytes;
+        }
+
+        @Override
+        public char charAt(int index) {
+            checkIndex(index);
+            return (char) (mBytes[getStart() + index] & 0xff);
+        }
+
+        @Override
+        public LineSlice subSequence(int start, int end) {
+            checkRange(start, end);
+            return new Latin1Slice(mBytes, getStart() + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(mBytes, getStart(), length(), LATIN_1);
+        }
+    }
+
+    /**
+     * A line with chars of U+0100 and above, stored as chars.
+     */
+    private static final class CharSlice extends LineSlice {
+
+        private final char[] mChars;
+
+        CharSlice(char[] chars, int start, int length) {
+            super(start, length, chars.length);
+            mChars = chars;
+        }
+
+        @Override
+        public char charAt(int index) {
+            checkIndex(index);
+            return mChars[getStart() + index];
+        }
+
+        @Override
+        public LineSlice subSequence(int start, int end) {
+            checkRange(start, end);
+            return new CharSlice(mChars, getStart() + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(mChars, getStart(), length());
+        }
+    }
+
+    /**
+     * Packs lines into shared arrays, handing out a slice for each. Arrays are allocated in
+     * blocks of {@link #BLOCK_SIZE} bytes or chars (or more, for longer lines), and are kept
+     * alive by the slices of them that are still in use. Not thread-safe.
+     */
+    public static class Buffer {
+
+        public static final int BLOCK_SIZE = 16 * 1024;
+
+        private byte[] mLatin1Block = null;
+
+        /** Bytes of the current Latin-1 block before this are used by slices. */
+        private int mLatin1Used = 0;
+
+        private char[] mCharBlock = null;
+
+        /** Chars of the current char block before this are used by slices. */
+        private int mCharsUsed = 0;
+
+        /**
+         * Copies the chars of the text from start to end into the buffer.
+         */
+        public LineSlice append(CharSequence text, int start, int end) {
+            final int length = end - start;
+            boolean latin1 = true;
+            for (int i = start; i < end && latin1; i++) {
+                latin1 = text.charAt(i) < 0x100;
+            }
+            if (latin1) {
+                final byte[] block = reserveLatin1(length);
+                for (int i = 0; i < length; i++) {
+                    block[mLatin1Used + i] = (byte) text.charAt(start + i);
+                }
+                return commitLatin1(length);
+            }
+            final char[] block = reserveChars(length);
+            for (int i = 0; i < length; i++) {
+                block[mCharsUsed + i] = text.charAt(start + i);
+            }
+            return commitChars(length);
+        }
+
+        /**
+         * Makes sure the current Latin-1 block has room for at least capacity more chars,
+         * which are to be written starting at {@link #getLatin1Offset()}, and returns it.
+         */
+        byte[] reserveLatin1(int capacity) {
+            if (mLatin1Block == null || mLatin1Block.length - mLatin1Used < capacity) {
+                mLatin1Block = new byte[Math.max(BLOCK_SIZE, capacity)];
+                mLatin1Used = 0;
+            }
+            return mLatin1Block;
+        }
+
+        int getLatin1Offset() {
+            return mLatin1Used;
+        }
+
+        /**
+         * Returns a slice of the length chars written to the block returned by
+         * {@link #reserveLatin1(int)}.
+         */
+        LineSlice commitLatin1(int length) {
+            final LineSlice slice = new Latin1Slice(mLatin1Block, mLatin1Used, length);
+            mLatin1Used += length;
+            return slice;
+        }
+
+        /**
+         * Like {@link #reserveLatin1(int)}, but for lines with chars of U+0100 and above.
+         */
+        char[] reserveChars(int capacity) {
+            if (mCharBlock == null || mCharBlock.length - mCharsUsed < capacity) {
+                mCharBlock = new char[Math.max(BLOCK_SIZE, capacity)];
+                mCharsUsed = 0;
+            }
+            return mCharBlock;
+        }
+
+        int getCharsOffset() {
+            return mCharsUsed;
+        }
+
+        LineSlice commitChars(int length) {
+            final LineSlice slice = new CharSlice(mCharBlock, mCharsUsed, length);
+            mCharsUsed += length;
+            return slice;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.scottbezek.difflib.unified;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads UTF-8 lines from an {@link InputStream}, a {@link ReadableByteChannel}, or a
+ * memory-mapped file, for feeding to a {@link Parser}.
+ * <p/>
+ * Unlike {@link java.util.Scanner}, this doesn't use regular expressions or a
+ * {@link java.nio.charset.CharsetDecoder}: it scans a byte buffer for '\n', and decodes the
+ * bytes of each line directly into chars, with a fast path for runs of ASCII. Lines end at
+ * "\n" or "\r\n". Each maximal malformed UTF-8 subsequence is replaced with one U+FFFD, as
+ * recommended by the Unicode standard. Not thread-safe.
+ */
+public class LineSource implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final char REPLACEMENT_CHAR = '\ufffd';
+
+    /** Exactly one of these is non-null. */
+    private final InputStream mStream;
+    private final ReadableByteChannel mChannel;
+    private final ByteBuffer mMapped;
+
+    /** Closed along with this source, if not null. */
+    private final Closeable mCloseable;
+
+    private byte[] mBytes;
+
+    /** Wraps mBytes, for reading from mChannel. */
+    private ByteBuffer mByteBuffer;
+
+    /** Bytes from mPosition to mLimit have been read but not yet returned. */
+    private int mPosition = 0;
+    private int mLimit = 0;
+
+    private boolean mEndOfInput = false;
+
+    /** The bytes of the line that was last found, without its line terminator. */
+    private int mLineStart = 0;
+    private int mLineEnd = 0;
+
+    /** Reused for decoding each line. */
+    private char[] mChars = new char[256];
+
+    public LineSource(InputStream input) {
+        this(input, null, null, input);
+    }
+
+    public LineSource(ReadableByteChannel channel) {
+        this(null, channel, null, channel);
+    }
+
+    /**
+     * Reads the bytes of the buffer from its position to its limit, e.g. those of a
+     * {@link MappedByteBuffer}.
+     */
+    public LineSource(ByteBuffer buffer) {
+        this(null, null, buffer.slice(), null);
+    }
+
+    private LineSource(InputStream stream, ReadableByteChannel channel, ByteBuffer mapped,
+            Closeable closeable) {
+        mStream = stream;
+        mChannel = channel;
+        mMapped = mapped;
+        mCloseable = closeable;
+        mBytes = new byte[DEFAULT_BUFFER_SIZE];
+        mByteBuffer = ByteBuffer.wrap(mBytes);
+    }
+
+    /**
+     * Reads the file through a memory map, so it's paged in by the OS rather than copied by
+     * read calls. Files too large to map are read through their channel instead.
+     */
+    public static LineSource open(File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        boolean success = false;
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long size = channel.size();
+            final LineSource source;
+            if (size > Integer.MAX_VALUE) {
+                source = new LineSource(null, channel, null, randomAccessFile);
+            } else {
+                final MappedByteBuffer mapped =
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                source = new LineSource(null, null, mapped, randomAccessFile);
+            }
+            success = true;
+            return source;
+        } finally {
+            if (!success) {
+                randomAccessFile.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the next line, without its line terminator, or null if there are no more lines.
+     * Like {@link java.io.BufferedReader#readLine()}, a final line with no terminator is still
+     * returned, but an empty one isn't.
+     */
+    public String readLine() throws IOException {
+        if (!findLine()) {
+            return null;
+        }
+        // Each byte decodes to at most one char, except 4-byte sequences, which decode to two
+        if (mChars.length < mLineEnd - mLineStart) {
+            mChars = new char[Math.max(mLineEnd - mLineStart, mChars.length * 2)];
+        }
+        final int length = decode(mBytes, mLineStart, mLineEnd, mChars, 0);
+        return new String(mChars, 0, length);
+    }
+
+    /**
+     * Like {@link #readLine()}, but decodes the line straight into the buffer, and returns a
+     * slice of it rather than a String.
+     */
+    public LineSlice readLine(LineSlice.Buffer buffer) throws IOException {
+        if (!findLine()) {
+            return null;
+        }
+        final int byteLength = mLineEnd - mLineStart;
+        if (isAscii(mBytes, mLineStart, mLineEnd)) {
+            // ASCII is also Latin-1, so the bytes can be kept as they are
+            System.arraycopy(mBytes, mLineStart, buffer.reserveLatin1(byteLength),
+                    buffer.getLatin1Offset(), byteLength);
+            return buffer.commitLatin1(byteLength);
+        }
+        final char[] chars = buffer.reserveChars(byteLength);
+        final int offset = buffer.getCharsOffset();
+        final int length = decode(mBytes, mLineStart, mLineEnd, chars, offset);
+        for (int i = offset; i < offset + length; i++) {
+            if (chars[i] >= 0x100) {
+                return buffer.commitChars(length);
+            }
+        }
+
+        // Other Latin-1 lines (e.g. accented letters) are also kept a byte per char; the chars
+        // reserved for decoding are left to the next line
+        final byte[] latin1 = buffer.reserveLatin1(length);
+        final int latin1Offset = buffer.getLatin1Offset();
+        for (int i = 0; i < length; i++) {
+            latin1[latin1Offset + i] = (byte) chars[offset + i];
+        }
+        return buffer.commitLatin1(length);
+    }
+
+    /**
+     * Finds the bytes of the next line, and sets mLineStart and mLineEnd to them.
+     *
+     * @return False if there are no more lines.
+     */
+    private boolean findLine() throws IOException {
+        int scanFrom = mPosition;
+        while (true) {
+            final byte[] bytes = mBytes;
+            final int limit = mLimit;
+            for (int i = scanFrom; i < limit; i++) {
+                if (bytes[i] == '\n') {
+                    mLineStart = mPosition;
+                    mLineEnd = (i > mPosition && bytes[i - 1] == '\r') ? i - 1 : i;
+                    mPosition = i + 1;
+                    return true;
+                }
+            }
+            if (mEndOfInput) {
+                if (mPosition == mLimit) {
+                    return false;
+                }
+                mLineStart = mPosition;
+                mLineEnd = mLimit;
+                mPosition = mLimit;
+                return true;
+            }
+            scanFrom = mLimit - mPosition;
+            fill();
+            scanFrom += mPosition;
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer, growing it if they fill it, and reads
+     * more after them.
+     */
+    private void fill() throws IOException {
+        final int unread = mLimit - mPosition;
+        if (unread == mBytes.length) {
+            final byte[] grown = new byte[mBytes.length * 2];
+            System.arraycopy(mBytes, mPosition, grown, 0, unread);
+            mBytes = grown;
+            mByteBuffer = ByteBuffer.wrap(mBytes);
+        } else if (mPosition > 0) {
+            System.arraycopy(mBytes, mPosition, mBytes, 0, unread);
+        }
+        mPosition = 0;
+        mLimit = unread;
+
+        final int read;
+        final int room = mBytes.length - mLimit;
+        if (mStream != null) {
+            read = mStream.read(mBytes, mLimit, room);
+        } else if (mChannel != null) {
+            mByteBuffer.clear();
+            mByteBuffer.position(mLimit);
+            read = mChannel.read(mByteBuffer);
+        } else {
+            read = Math.min(room, mMapped.remaining());
+            mMapped.get(mBytes, mLimit, read);
+        }
+        if (read > 0) {
+            mLimit += read;
+        } else if (read < 0 || mMapped != null) {
+            mEndOfInput = true;
+        }
+    }
+
+    private static boolean isAscii(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the UTF-8 bytes from start to end into chars, starting at offset, which must
+     * have room for <code>end - start</code> chars.
+     *
+     * @return The number of chars written.
+     */
+    private static int decode(byte[] bytes, int start, int end, char[] chars, int offset) {
+        int out = offset;
+        int i = start;
+        while (i < end) {
+            final int b = bytes[i];
+            if (b >= 0) {
+                chars[out++] = (char) b;
+                i++;
+                continue;
+            }
+            final int lead = b & 0xff;
+            final int length;
+            final int minSecond;
+            final int maxSecond;
+            int codePoint;
+            if (lead >= 0xc2 && lead <= 0xdf) {
+                length = 2;
+                codePoint = lead & 0x1f;
+                minSecond = 0x80;
+                maxSecond = 0xbf;
+            } else if (lead >= 0xe0 && lead <= 0xef) {
+                length = 3;
+                codePoint = lead & 0x0f;
+                // Excludes overlong encodings and surrogates
+                minSecond = (lead == 0xe0) ? 0xa0 : 0x80;
+                maxSecond = (lead == 0xed) ? 0x9f : 0xbf;
+            } else if (lead >= 0xf0 && lead <= 0xf4) {
+                length = 4;
+                codePoint = lead & 0x07;
+                // Excludes overlong encodings and code points above U+10FFFF
+                minSecond = (lead == 0xf0) ? 0x90 : 0x80;
+                maxSecond = (lead == 0xf4) ? 0x8f : 0xbf;
+            } else {
+                chars[out++] = REPLACEMENT_CHAR;
+                i++;
+                continue;
+            }
+
+            // Replace the longest valid prefix of a malformed sequence with one U+FFFD
+            int consumed = 1;
+            while (consumed < length && i + consumed < end) {
+                final int next = bytes[i + consumed] & 0xff;
+                final int min = (consumed == 1) ? minSecond : 0x80;
+                final int max = (consumed == 1) ? maxSecond : 0xbf;
+                if (next < min || next > max) {
+                    break;
+                }
+                codePoint = (codePoint << 6) | (next & 0x3f);
+                consumed++;
+            }
+            i += consumed;
+            if (consumed < length) {
+                chars[out++] = REPLACEMENT_CHAR;
+            } else if (length == 4) {
+                // Not Character.highSurrogate/lowSurrogate, which need Android API 19
+                out += Character.toChars(codePoint, chars, out);
+            } else {
+                chars[out++] = (char) codePoint;
+            }
+        }
+        return out - offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mCloseable != null) {
+            mCloseable.close();
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.scottbezek.difflib.unified;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,67 +30,123 @@ public class Parser {
         mDebugStream = debugOutput;
     }
 
-    public List<SingleFileDiff> parse(Scanner input) throws DiffParseException {
-        final List<SingleFileDiff> fileDiffs = new ArrayList<SingleFileDiff>();
+    /**
+     * Parses a unified diff into the diff of each file.
+     */
+    public List<SingleFileDiff> parse(LineSource input)
+            throws DiffParseException, IOException {
+        final DiffCollector collector = new DiffCollector();
+        parse(input, collector);
+        return collector.getFileDiffs();
+    }
 
-        SingleFileDiff.Builder currentFileBuilder = new SingleFileDiff.Builder();
-        Chunk.Builder chunkBuilder = null;
+    /**
+     * Parses a unified diff, reporting each part of it to the handler as soon as it's read.
+     * Nothing is kept beyond the current line, so this can handle diffs of any size.
+     *
+     * @throws DiffParseException If the diff is malformed, or the handler throws.
+     * @throws IOException If the input can't be read.
+     */
+    public void parse(LineSource input, IDiffHandler handler)
+            throws DiffParseException, IOException {
+        String leftFilename = null;
+        String rightFilename = null;
+        boolean inChunk = false;
+        int leftLinesRemaining = 0;
+        int rightLinesRemaining = 0;
 
         final Matcher headerLeftFile = HEADER_LEFT_FILE.matcher("");
         final Matcher headerRightFile = HEADER_RIGHT_FILE.matcher("");
         final Matcher chunkHeader = CHUNK.matcher("");
 
-        while (input.hasNextLine()) {
-            final String line = input.nextLine();
-            if (chunkBuilder != null) {
+        // Content lines are handed out as slices of the lines read into this buffer, minus
+        // their first char, so they aren't copied again
+        final LineSlice.Buffer lineBuffer = new LineSlice.Buffer();
+        LineSlice line;
+        while ((line = input.readLine(lineBuffer)) != null) {
+            if (inChunk) {
                 switch(line.charAt(0)) {
                 case ' ':
-                    chunkBuilder.appendLineUnchanged(line.substring(1));
+                    handler.onLineUnchanged(line.subSequence(1, line.length()));
+                    leftLinesRemaining--;
+                    rightLinesRemaining--;
                     break;
                 case '-':
-                    chunkBuilder.appendLineLeftRemoved(line.substring(1));
+                    handler.onLineLeftRemoved(line.subSequence(1, line.length()));
+                    leftLinesRemaining--;
                     break;
                 case '+':
-                    chunkBuilder.appendLineRightAdded(line.substring(1));
+                    handler.onLineRightAdded(line.subSequence(1, line.length()));
+                    rightLinesRemaining--;
                     break;
                 default:
                     throw new DiffParseException("Expected a line diff, but instead got:" + line);
                 }
-                if (chunkBuilder.isComplete()) {
-                    currentFileBuilder.addChunk(chunkBuilder.build());
-                    chunkBuilder = null;
+                if (leftLinesRemaining < 0) {
+                    throw new DiffParseException("More left lines than expected!");
+                }
+                if (rightLinesRemaining < 0) {
+                    throw new DiffParseException("More right lines than expected!");
+                }
+                if (leftLinesRemaining == 0 && rightLinesRemaining == 0) {
+                    handler.onChunkEnd();
+                    inChunk = false;
                 }
             } else {
                 headerLeftFile.reset(line);
                 if (headerLeftFile.matches()) {
-                    if (currentFileBuilder.isPotentiallyComplete()) {
-                        fileDiffs.add(currentFileBuilder.build());
-                        currentFileBuilder = new SingleFileDiff.Builder();
+                    if (leftFilename != null && rightFilename != null) {
+                        handler.onFileEnd();
+                        leftFilename = null;
+                        rightFilename = null;
+                    }
+                    if (leftFilename != null) {
+                        throw new DiffParseException("Can't set filename again");
+                    }
+                    leftFilename = headerLeftFile.group(1);
+                    if (rightFilename != null) {
+                        handler.onFileStart(leftFilename, rightFilename);
                     }
-                    currentFileBuilder.setLeftFilename(headerLeftFile.group(1));
                     continue;
                 }
                 headerRightFile.reset(line);
                 if (headerRightFile.matches()) {
-                    if (currentFileBuilder.isPotentiallyComplete()) {
-                        fileDiffs.add(currentFileBuilder.build());
-                        currentFileBuilder = new SingleFileDiff.Builder();
+                    if (leftFilename != null && rightFilename != null) {
+                        handler.onFileEnd();
+                        leftFilename = null;
+                        rightFilename = null;
+                    }
+                    if (rightFilename != null) {
+                        throw new DiffParseException("Can't set filename again");
+                    }
+                    rightFilename = headerRightFile.group(1);
+                    if (leftFilename != null) {
+                        handler.onFileStart(leftFilename, rightFilename);
                     }
-                    currentFileBuilder.setRightFilename(headerRightFile.group(1));
                     continue;
                 }
                 chunkHeader.reset(line);
                 if (chunkHeader.matches()) {
+                    if (leftFilename == null || rightFilename == null) {
+                        throw new DiffParseException(
+                                "Must set both filenames before adding chunks");
+                    }
                     try {
                         int leftStartLine = Integer.parseInt(chunkHeader.group(1));
                         int leftLength = Integer.parseInt(chunkHeader.group(2));
                         int rightStartLine = Integer.parseInt(chunkHeader.group(3));
                         int rightLength = Integer.parseInt(chunkHeader.group(4));
-
-                        @SuppressWarnings("unused")
                         String chunkContextSnippet = chunkHeader.group(5);
 
-                        chunkBuilder = new Chunk.Builder(leftStartLine, leftLength, rightStartLine, rightLength);
+                        handler.onChunkStart(leftStartLine, leftLength, rightStartLine,
+                                rightLength, chunkContextSnippet);
+                        leftLinesRemaining = leftLength;
+                        rightLinesRemaining = rightLength;
+                        inChunk = true;
+                        if (leftLength == 0 && rightLength == 0) {
+                            handler.onChunkEnd();
+                            inChunk = false;
+                        }
                         continue;
                     } catch (NumberFormatException e) {
                         throw new DiffParseException("Failed to parse line numbers in header:" + line, e);
@@ -102,8 +158,70 @@ public class Parser {
             }
         }
 
-        fileDiffs.add(currentFileBuilder.build());
-        return fileDiffs;
+        if (leftFilename == null || rightFilename == null) {
+            throw new DiffParseException("Missing filename");
+        }
+        // A chunk that the input ends in the middle of is dropped
+        handler.onFileEnd();
+    }
+
+    /**
+     * Builds the {@link SingleFileDiff} of each file of a diff.
+     */
+    private static class DiffCollector implements IDiffHandler {
+
+        private final List<SingleFileDiff> mFileDiffs = new ArrayList<SingleFileDiff>();
+
+        private SingleFileDiff.Builder mFileBuilder = null;
+
+        private Chunk.Builder mChunkBuilder = null;
+
+        public List<SingleFileDiff> getFileDiffs() {
+            return mFileDiffs;
+        }
+
+        @Override
+        public void onFileStart(String leftFilename, String rightFilename)
+                throws DiffParseException {
+            mFileBuilder = new SingleFileDiff.Builder()
+                    .setLeftFilename(leftFilename)
+                    .setRightFilename(rightFilename);
+        }
+
+        @Override
+        public void onChunkStart(int leftStartLine, int leftLength, int rightStartLine,
+                int rightLength, String contextSnippet) {
+            mChunkBuilder = new Chunk.Builder(leftStartLine, leftLength, rightStartLine,
+                    rightLength);
+        }
+
+        @Override
+        public void onLineUnchanged(CharSequence line) throws DiffParseException {
+            mChunkBuilder.appendLineUnchanged(line);
+        }
+
+        @Override
+        public void onLineLeftRemoved(CharSequence line) throws DiffParseException {
+            mChunkBuilder.appendLineLeftRemoved(line);
+        }
+
+        @Override
+        public void onLineRightAdded(CharSequence line) throws DiffParseException {
+            mChunkBuilder.appendLineRightAdded(line);
+        }
+
+        @Override
+        public void onChunkEnd() throws DiffParseException {
+            mFileBuilder.addChunk(mChunkBuilder.build());
+            mChunkBuilder = null;
+        }
+
+        @Override
+        public void onFileEnd() throws DiffParseException {
+            mFileDiffs.add(mFileBuilder.build());
+            mFileBuilder = null;
+            mChunkBuilder = null;
+        }
     }
 
     public static class DiffParseException extends Exception {
@@ -13,13 +13,29 @@ public class SideBySideLine {
     private final CharSequence mLeftLine;
     private final int mRightLineNumber;
     private final CharSequence mRightLine;
+    private final boolean mLeftMoved;
+    private final boolean mRightMoved;
 
     public SideBySideLine(int leftLineNumber, @CheckForNull CharSequence leftLine,
             int rightLineNumber, @CheckForNull CharSequence rightLine) {
+        this(leftLineNumber, leftLine, rightLineNumber, rightLine, false, false);
+    }
+
+    /**
+     * @param leftMoved Whether the left line was moved elsewhere in the file, rather than
+     * removed.
+     * @param rightMoved Whether the right line was moved from elsewhere in the file, rather
+     * than added.
+     */
+    public SideBySideLine(int leftLineNumber, @CheckForNull CharSequence leftLine,
+            int rightLineNumber, @CheckForNull CharSequence rightLine, boolean leftMoved,
+            boolean rightMoved) {
         mLeftLineNumber = leftLineNumber;
         mLeftLine = leftLine;
         mRightLineNumber = rightLineNumber;
         mRightLine = rightLine;
+        mLeftMoved = leftMoved;
+        mRightMoved = rightMoved;
     }
 
     public int getLeftLineNumber() {
@@ -40,6 +56,14 @@ public class SideBySideLine {
         return mRightLine;
     }
 
+    public boolean isLeftMoved() {
+        return mLeftMoved;
+    }
+
+    public boolean isRightMoved() {
+        return mRightMoved;
+    }
+
     @Override
     public String toString() {
         return mLeftLineNumber + ":" + mLeftLine + "\t" + mRightLineNumber + ":" + mRightLine;
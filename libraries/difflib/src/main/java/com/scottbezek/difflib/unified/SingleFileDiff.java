@@ -8,6 +8,9 @@ import com.scottbezek.difflib.unified.Parser.DiffParseException;
 
 public class SingleFileDiff {
 
+    /** The filename of the missing side of an added or deleted file. */
+    public static final String NO_FILE = "/dev/null";
+
     private final String mLeftFilename, mRightFilename;
 
     private final List<Chunk> mChunks;
@@ -22,20 +25,45 @@ public class SingleFileDiff {
         return mChunks;
     }
 
+    public String getLeftFilename() {
+        return mLeftFilename;
+    }
+
+    public String getRightFilename() {
+        return mRightFilename;
+    }
+
+    /**
+     * Whether the file was created, i.e. the left file is {@link #NO_FILE}.
+     */
+    public boolean isAddedFile() {
+        return mLeftFilename.equals(NO_FILE) && !mRightFilename.equals(NO_FILE);
+    }
+
+    /**
+     * Whether the file was deleted, i.e. the right file is {@link #NO_FILE}.
+     */
+    public boolean isDeletedFile() {
+        return mRightFilename.equals(NO_FILE) && !mLeftFilename.equals(NO_FILE);
+    }
+
     public String getDisplayFileName() {
-        if (mLeftFilename.equals("/dev/null")) {
-            if (mRightFilename.startsWith("b/")) {
-                return mRightFilename.substring(2);
-            } else {
-                return mRightFilename;
-            }
-        } else {
-            if (mLeftFilename.startsWith("a/")) {
-                return mLeftFilename.substring(2);
-            } else {
-                return mLeftFilename;
+        if (mLeftFilename.equals(NO_FILE)) {
+            return stripPrefix(mRightFilename, "b/");
+        }
+        final String leftName = stripPrefix(mLeftFilename, "a/");
+        if (!mRightFilename.equals(NO_FILE)) {
+            // Renamed or copied
+            final String rightName = stripPrefix(mRightFilename, "b/");
+            if (!rightName.equals(leftName)) {
+                return leftName + " -> " + rightName;
             }
         }
+        return leftName;
+    }
+
+    private static String stripPrefix(String filename, String prefix) {
+        return filename.startsWith(prefix) ? filename.substring(prefix.length()) : filename;
     }
 
     public static class Builder {
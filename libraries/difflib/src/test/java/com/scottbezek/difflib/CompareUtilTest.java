@@ -0,0 +1,88 @@
+package com.scottbezek.difflib;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompareUtilTest {
+
+    @Test
+    public void testMismatch() throws Exception {
+        assertEquals(-1, CompareUtil.mismatch("abc", "abc"));
+        assertEquals(-1, CompareUtil.mismatch("abc", new StringBuilder("abc")));
+        assertEquals(-1, CompareUtil.mismatch(null, null));
+        assertEquals(1, CompareUtil.mismatch("abc", "aXc"));
+        assertEquals(2, CompareUtil.mismatch("ab", "abc"));
+        assertEquals(0, CompareUtil.mismatch("", "a"));
+        assertEquals(0, CompareUtil.mismatch("a", null));
+    }
+
+    @Test
+    public void testCharSequenceSuffix() throws Exception {
+        assertEquals(3, CompareUtil.commonSuffixLength("xabc", "yabc", 10));
+        assertEquals(2, CompareUtil.commonSuffixLength("xabc", "yabc", 2));
+        assertEquals(0, CompareUtil.commonSuffixLength("abc", "abd", 3));
+    }
+
+    @Test
+    public void testCharArrayRanges() throws Exception {
+        char[] first = "--abcdef".toCharArray();
+        char[] second = "abcXef".toCharArray();
+        assertEquals(3, CompareUtil.commonPrefixLength(first, 2, second, 0, 6));
+        assertEquals(2, CompareUtil.commonSuffixLength(first, 2, second, 0, 6));
+        assertEquals(0, CompareUtil.commonPrefixLength(first, 0, second, 0, 0));
+    }
+
+    @Test
+    public void testIntArrayRanges() throws Exception {
+        int[] first = {1, 2, 3, 4};
+        int[] second = {0, 1, 2, 9, 4};
+        assertEquals(2, CompareUtil.commonPrefixLength(first, 0, second, 1, 4));
+        assertEquals(1, CompareUtil.commonSuffixLength(first, 0, second, 1, 4));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRangeOutOfBounds() throws Exception {
+        CompareUtil.commonPrefixLength(new int[3], 1, new int[3], 0, 3);
+    }
+
+    @Test
+    public void testByteArrayMatchesSimpleScan() throws Exception {
+        // Long enough ranges take the 8 bytes at a time path, with every alignment and
+        // position of the first difference
+        final Random random = new Random(3);
+        for (int trial = 0; trial < 2000; trial++) {
+            final int length = random.nextInt(100);
+            final int firstOffset = random.nextInt(9);
+            final int secondOffset = random.nextInt(9);
+            final byte[] first = new byte[firstOffset + length];
+            final byte[] second = new byte[secondOffset + length];
+            random.nextBytes(first);
+            System.arraycopy(first, firstOffset, second, secondOffset, length);
+            if (length > 0 && random.nextInt(4) != 0) {
+                second[secondOffset + random.nextInt(length)] ^= (byte) (1 << random.nextInt(8));
+            }
+
+            int expectedPrefix = 0;
+            while (expectedPrefix < length
+                    && first[firstOffset + expectedPrefix]
+                            == second[secondOffset + expectedPrefix]) {
+                expectedPrefix++;
+            }
+            int expectedSuffix = 0;
+            while (expectedSuffix < length
+                    && first[firstOffset + length - expectedSuffix - 1]
+                            == second[secondOffset + length - expectedSuffix - 1]) {
+                expectedSuffix++;
+            }
+            assertEquals(expectedPrefix,
+                    CompareUtil.commonPrefixLength(first, firstOffset, second, secondOffset,
+                            length));
+            assertEquals(expectedSuffix,
+                    CompareUtil.commonSuffixLength(first, firstOffset, second, secondOffset,
+                            length));
+        }
+    }
+}
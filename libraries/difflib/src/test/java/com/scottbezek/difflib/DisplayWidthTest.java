@@ -0,0 +1,72 @@
+package com.scottbezek.difflib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DisplayWidthTest {
+
+    @Test
+    public void testAscii() {
+        assertEquals(0, DisplayWidth.getColumns(""));
+        assertEquals(10, DisplayWidth.getColumns("int x = 1;"));
+    }
+
+    @Test
+    public void testEastAsianWide() {
+        // CJK ideographs, Hangul syllables and fullwidth forms
+        assertEquals(4, DisplayWidth.getColumns("\u4e2d\u6587"));
+        assertEquals(5, DisplayWidth.getColumns("a\ud55c\uad6d"));
+        assertEquals(2, DisplayWidth.getColumns("\uff21"));
+        // Supplementary ideograph
+        assertEquals(2, DisplayWidth.getColumns("\ud840\udc00"));
+    }
+
+    @Test
+    public void testZeroWidth() {
+        assertEquals(4, DisplayWidth.getColumns("cafe\u0301"));
+        assertEquals(2, DisplayWidth.getColumns("a\u200bb"));
+        assertEquals(0, DisplayWidth.getColumns("\u0301"));
+        // Conjoining jamo make up a single syllable
+        assertEquals(2, DisplayWidth.getColumns("\u1100\u1161\u11a8"));
+    }
+
+    @Test
+    public void testEmoji() {
+        assertEquals(2, DisplayWidth.getColumns("\ud83d\udc76"));
+        // Family ZWJ sequence
+        assertEquals(2, DisplayWidth.getColumns(
+                "\ud83d\udc68\u200d\ud83d\udc69\u200d\ud83d\udc67"));
+        // Flag, and a lone regional indicator
+        assertEquals(2, DisplayWidth.getColumns("\ud83c\uddf8\ud83c\uddea"));
+        assertEquals(1, DisplayWidth.getColumns("\ud83c\uddf8"));
+        // Text style unless followed by the emoji variation selector
+        assertEquals(1, DisplayWidth.getColumns("\u2764"));
+        assertEquals(2, DisplayWidth.getColumns("\u2764\ufe0f"));
+    }
+
+    @Test
+    public void testTabs() {
+        assertEquals(8, DisplayWidth.getColumns("\t"));
+        assertEquals(8, DisplayWidth.getColumns("abc\t"));
+        assertEquals(16, DisplayWidth.getColumns("abcdefgh\t"));
+        assertEquals(5, DisplayWidth.getColumns("\u4e2d\tx", 0, 3, 0, 4));
+        // Tab stops count from column 0, not from the start of the text
+        assertEquals(4, DisplayWidth.getColumns("\t", 0, 1, 3, 4));
+    }
+
+    @Test
+    public void testCodePointColumns() {
+        assertEquals(1, DisplayWidth.getCodePointColumns('a'));
+        assertEquals(0, DisplayWidth.getCodePointColumns('\n'));
+        assertEquals(0, DisplayWidth.getCodePointColumns(0x0301));
+        assertEquals(2, DisplayWidth.getCodePointColumns(0x3000));
+        assertEquals(2, DisplayWidth.getCodePointColumns(0x1f476));
+        assertEquals(1, DisplayWidth.getCodePointColumns(0x00e9));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTabWidth() {
+        DisplayWidth.getColumns("a", 0, 1, 0, 0);
+    }
+}
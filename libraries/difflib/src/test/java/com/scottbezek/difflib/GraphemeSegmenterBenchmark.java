@@ -0,0 +1,63 @@
+package com.scottbezek.difflib;
+
+import java.text.BreakIterator;
+import java.util.Locale;
+
+/**
+ * Times {@link GraphemeSegmenter} against a reused {@link BreakIterator} on a line of mixed
+ * scripts. Not a test; run its main() by hand, e.g. from the IDE.
+ */
+public class GraphemeSegmenterBenchmark {
+
+    /** Latin, Devanagari, CJK, Hangul, Hebrew, Arabic, an emoji ZWJ sequence and a flag. */
+    private static final String SAMPLE = "int count = getCount(items); // "
+            + "\u0928\u092e\u0938\u094d\u0924\u0947 \u4f60\u597d\u4e16\u754c "
+            + "\ud55c\uad6d\uc5b4 \u05e9\u05dc\u05d5\u05dd \u0645\u0631\u062d\u0628\u0627 "
+            + "\ud83d\udc68\u200d\ud83d\udc69\u200d\ud83d\udc67 \ud83c\uddfa\ud83c\uddf8 "
+            + "caf\u00e9 nai\u0308ve";
+
+    private static final int REPEATS = 64;
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int ROUNDS = 10;
+
+    private static final int ITERATIONS = 20000;
+
+    public static void main(String[] args) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < REPEATS; i++) {
+            builder.append(SAMPLE);
+        }
+        final String text = builder.toString();
+        final int[] boundaries = new int[text.length() + 1];
+        final BreakIterator iterator = BreakIterator.getCharacterInstance(Locale.US);
+
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += GraphemeSegmenter.getBoundaries(text, 0, text.length(), boundaries);
+            }
+            final long segmenterNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                iterator.setText(text);
+                int count = 1;
+                while (iterator.next() != BreakIterator.DONE) {
+                    count++;
+                }
+                sink += count;
+            }
+            final long breakIteratorNanos = System.nanoTime() - start;
+
+            if (round >= WARMUP_ROUNDS) {
+                final double chars = (double) ITERATIONS * text.length();
+                System.out.printf("GraphemeSegmenter %.1f ns/char, BreakIterator %.1f ns/char%n",
+                        segmenterNanos / chars, breakIteratorNanos / chars);
+            }
+        }
+        System.out.println("(" + sink + ")");
+    }
+}
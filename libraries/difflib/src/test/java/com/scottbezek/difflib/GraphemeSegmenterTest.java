@@ -0,0 +1,139 @@
+package com.scottbezek.difflib;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphemeSegmenterTest {
+
+    private static final char BOUNDARY = '\u00f7';
+
+    private static final char NO_BOUNDARY = '\u00d7';
+
+    /**
+     * The version of the cases in the GraphemeBreakTest.txt resource. The UCD's own file for
+     * this version starts the same way.
+     */
+    private static final String TEST_FILE_VERSION = "GraphemeBreakTest-14.0.0";
+
+    private static final String LINE_COUNT_PREFIX = "# Lines: ";
+
+    @Test
+    public void testConformance() throws Exception {
+        final InputStream input = getClass().getResourceAsStream("GraphemeBreakTest.txt");
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+        int cases = 0;
+        int expectedCases = -1;
+        try {
+            String line = reader.readLine();
+            assertTrue(line, line.startsWith("# " + TEST_FILE_VERSION));
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(LINE_COUNT_PREFIX)) {
+                    expectedCases = Integer.parseInt(
+                            line.substring(LINE_COUNT_PREFIX.length()).trim());
+                }
+                final int commentStart = line.indexOf('#');
+                final String testCase = (commentStart == -1)
+                        ? line : line.substring(0, commentStart);
+                if (testCase.trim().isEmpty()) {
+                    continue;
+                }
+                checkTestCase(testCase.trim());
+                cases++;
+            }
+        } finally {
+            reader.close();
+        }
+        // Makes sure every case of the file was run
+        assertEquals(expectedCases, cases);
+    }
+
+    /**
+     * Checks a test case: code points in hex, each preceded and followed by a mark saying
+     * whether there's a boundary there.
+     */
+    private static void checkTestCase(String testCase) {
+        final StringBuilder text = new StringBuilder();
+        final List<Integer> expected = new ArrayList<Integer>();
+        for (String token : testCase.split(" ")) {
+            if (token.charAt(0) == BOUNDARY) {
+                expected.add(text.length());
+            } else if (token.charAt(0) != NO_BOUNDARY) {
+                text.appendCodePoint(Integer.parseInt(token, 16));
+            }
+        }
+        final int[] boundaries = new int[text.length() + 1];
+        final int count = GraphemeSegmenter.getBoundaries(text, 0, text.length(), boundaries);
+        final List<Integer> actual = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            actual.add(boundaries[i]);
+        }
+        assertEquals(testCase, expected, actual);
+    }
+
+    @Test
+    public void testEmpty() {
+        int[] boundaries = new int[1];
+        assertEquals(1, GraphemeSegmenter.getBoundaries("", 0, 0, boundaries));
+        assertEquals(0, boundaries[0]);
+    }
+
+    @Test
+    public void testRangeEndSplitsCluster() {
+        // A cluster is cut off at the end of the range, even between surrogates
+        String text = "ae\u0301\ud83d\udc76";
+        int[] boundaries = new int[8];
+        assertEquals(2, GraphemeSegmenter.getBoundaries(text, 1, 2, boundaries));
+        assertArrayEquals(new int[] {1, 2}, Arrays.copyOf(boundaries, 2));
+        assertEquals(2, GraphemeSegmenter.getBoundaries(text, 1, 3, boundaries));
+        assertEquals(3, GraphemeSegmenter.following(text, 1, 3));
+        assertEquals(4, GraphemeSegmenter.following(text, 3, 4));
+        assertEquals(5, GraphemeSegmenter.following(text, 3, 5));
+    }
+
+    @Test
+    public void testUnpairedSurrogates() {
+        int[] boundaries = new int[8];
+        assertEquals(4, GraphemeSegmenter.getBoundaries("\udc76a\ud83d", 0, 3, boundaries));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, Arrays.copyOf(boundaries, 4));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testFollowingAtEnd() {
+        GraphemeSegmenter.following("abc", 3, 3);
+    }
+
+    @Test
+    public void testAgreesWithBreakIteratorOnMixedScripts() {
+        // Text whose clusters are the same under the rules of any BreakIterator, unlike e.g.
+        // Devanagari conjuncts, which some join into one cluster
+        String text = "int x = 1; // na\u00efve caf\u00e9 "
+                + "\u4e2d\u6587 \ud55c\uad6d\uc5b4 \u1100\u1161\u11a8 \u05e9\u05b8\u05c1\u05dc "
+                + "\u0645\u0631\u062d\u0628\u0627 e\u0301\u0302\r\n";
+        int[] boundaries = new int[text.length() + 1];
+        int count = GraphemeSegmenter.getBoundaries(text, 0, text.length(), boundaries);
+
+        BreakIterator breakIterator = BreakIterator.getCharacterInstance(Locale.US);
+        breakIterator.setText(text);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int b = breakIterator.first(); b != BreakIterator.DONE; b = breakIterator.next()) {
+            expected.add(b);
+        }
+        List<Integer> actual = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            actual.add(boundaries[i]);
+        }
+        assertEquals(expected, actual);
+    }
+}
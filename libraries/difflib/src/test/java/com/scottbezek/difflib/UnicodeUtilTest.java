@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class UnicodeUtilTest {
@@ -34,4 +35,80 @@ public class UnicodeUtilTest {
         List<String> expected = Arrays.asList("a", "a\u0301", "c");
         assertEquals(expected, UnicodeUtil.splitNaturalCharacters("aa\u0301c", Locale.US));
     }
+
+    @Test
+    public void testCharacterBoundariesAscii() throws Exception {
+        int[] boundaries = new int[8];
+        assertEquals(4, UnicodeUtil.getCharacterBoundaries("xabcx", 1, 4, Locale.US, boundaries));
+        assertArrayEquals(new int[] {1, 2, 3, 4}, Arrays.copyOf(boundaries, 4));
+        assertEquals(1, UnicodeUtil.getCharacterBoundaries("abc", 2, 2, Locale.US, boundaries));
+        assertEquals(2, boundaries[0]);
+    }
+
+    @Test
+    public void testCharacterBoundariesCrLf() throws Exception {
+        int[] boundaries = new int[8];
+        assertEquals(4, UnicodeUtil.getCharacterBoundaries("a\r\nb", 0, 4, Locale.US, boundaries));
+        assertArrayEquals(new int[] {0, 1, 3, 4}, Arrays.copyOf(boundaries, 4));
+        // A range can still start or end between them
+        assertEquals(2, UnicodeUtil.getCharacterBoundaries("a\r\nb", 2, 3, Locale.US, boundaries));
+    }
+
+    @Test
+    public void testCharacterBoundariesAccent() throws Exception {
+        int[] boundaries = new int[8];
+        assertEquals(4, UnicodeUtil.getCharacterBoundaries(
+                new StringBuilder("aa\u0301c"), 0, 4, Locale.US, boundaries));
+        assertArrayEquals(new int[] {0, 1, 3, 4}, Arrays.copyOf(boundaries, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCharacterBoundariesTooShort() throws Exception {
+        UnicodeUtil.getCharacterBoundaries("abc", 0, 3, Locale.US, new int[3]);
+    }
+
+    @Test
+    public void testWordBoundariesCode() throws Exception {
+        int[] boundaries = new int[18];
+        assertEquals(12, UnicodeUtil.getWordBoundaries("int foo = bar(1);", Locale.US,
+                boundaries));
+        assertArrayEquals(new int[] {0, 3, 4, 7, 8, 9, 10, 13, 14, 15, 16, 17},
+                Arrays.copyOf(boundaries, 12));
+    }
+
+    @Test
+    public void testWordBoundariesEmpty() throws Exception {
+        int[] boundaries = new int[1];
+        assertEquals(1, UnicodeUtil.getWordBoundaries("", Locale.US, boundaries));
+        assertEquals(0, boundaries[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWordBoundariesTooShort() throws Exception {
+        UnicodeUtil.getWordBoundaries("abc", Locale.US, new int[3]);
+    }
+
+    @Test
+    public void testCharacterBoundariesOfWords() throws Exception {
+        int[] words = new int[9];
+        int wordCount = UnicodeUtil.getWordBoundaries("ab a\u0301c d", Locale.US, words);
+        assertArrayEquals(new int[] {0, 2, 3, 6, 7, 8}, Arrays.copyOf(words, wordCount));
+        int[] boundaries = new int[8];
+        assertEquals(5, UnicodeUtil.getCharacterBoundaries(
+                "ab a\u0301c d", words, 1, 4, Locale.US, boundaries));
+        assertArrayEquals(new int[] {2, 3, 5, 6, 7}, Arrays.copyOf(boundaries, 5));
+    }
+
+    @Test
+    public void testSplitWordsEmpty() throws Exception {
+        List<String> expected = Collections.emptyList();
+        assertEquals(expected, UnicodeUtil.splitWords("", Locale.US));
+    }
+
+    @Test
+    public void testSplitWordsCode() throws Exception {
+        List<String> expected = Arrays.asList(
+                "int", " ", "foo", " ", "=", " ", "bar", "(", "1", ")", ";");
+        assertEquals(expected, UnicodeUtil.splitWords("int foo = bar(1);", Locale.US));
+    }
 }
@@ -0,0 +1,134 @@
+package com.scottbezek.difflib.compute;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BitParallelDiffTest {
+
+    private static final float[][] COSTS = {
+            // insert, delete, replace
+            {1f, 1f, 1f},
+            {1f, 1f, 2f},
+            {1f, 1f, 3f},
+            {2f, 2f, 2f},
+            {2f, 2f, 5f},
+    };
+
+    @Test
+    public void testSupportsCosts() {
+        assertTrue(BitParallelDiff.supportsCosts(1, 1, 1));
+        assertTrue(BitParallelDiff.supportsCosts(1, 1, 2));
+        assertTrue(BitParallelDiff.supportsCosts(3, 3, 7));
+        assertFalse(BitParallelDiff.supportsCosts(2, 2, 3));
+        assertFalse(BitParallelDiff.supportsCosts(1, 2, 1));
+        assertFalse(BitParallelDiff.supportsCosts(0, 0, 0));
+    }
+
+    @Test
+    public void testMatchesTable() {
+        Random random = new Random(9);
+        for (int trial = 0; trial < 2000; trial++) {
+            // Few distinct tokens gives lots of ties; many gives hash collisions
+            int alphabet = (trial % 2 == 0) ? 3 : 1000;
+            int[] first = randomTokens(random, random.nextInt(100), alphabet);
+            int[] second = randomTokens(random, random.nextInt(65), alphabet);
+            float[] costs = COSTS[trial % COSTS.length];
+            assertSameAsTable(first, second, costs, Float.POSITIVE_INFINITY);
+        }
+    }
+
+    @Test
+    public void testFullWord() {
+        Random random = new Random(10);
+        for (int trial = 0; trial < 100; trial++) {
+            int[] first = randomTokens(random, 64, 4);
+            int[] second = randomTokens(random, 64, 4);
+            assertSameAsTable(first, second, COSTS[trial % COSTS.length],
+                    Float.POSITIVE_INFINITY);
+        }
+    }
+
+    @Test
+    public void testMaxCost() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 500; trial++) {
+            int[] first = randomTokens(random, random.nextInt(30), 4);
+            int[] second = randomTokens(random, random.nextInt(30), 4);
+            assertSameAsTable(first, second, COSTS[trial % COSTS.length], random.nextInt(40));
+        }
+    }
+
+    private static void assertSameAsTable(int[] first, int[] second, float[] costs,
+            float maxCost) {
+        IntLevenshteinDiff table = computeDiff(first, second, costs, maxCost, false);
+        IntLevenshteinDiff bitParallel = computeDiff(first, second, costs, maxCost, true);
+        assertEquals(table.exceedsMaxCost(), bitParallel.exceedsMaxCost());
+        if (!table.exceedsMaxCost()) {
+            assertEquals(table.getEditScript(), bitParallel.getEditScript());
+        }
+
+        // Also diff the whole sequences directly, at an offset within larger arrays
+        int[] paddedFirst = pad(first, 1);
+        int[] paddedSecond = pad(second, 2);
+        EditScript direct = new BitParallelDiff().compute(paddedFirst, 1, first.length,
+                paddedSecond, 2, second.length, (int) costs[0], (int) costs[1], (int) costs[2],
+                maxCost);
+        assertEquals(table.exceedsMaxCost(), direct == null);
+        if (direct != null) {
+            assertEquals(getCost(table.getEditScript(), costs), getCost(direct, costs), 0f);
+        }
+    }
+
+    private static IntLevenshteinDiff computeDiff(int[] first, int[] second, float[] costs,
+            float maxCost, boolean bitParallelEnabled) {
+        return new IntLevenshteinDiff(first, second)
+                .setBitParallelEnabled(bitParallelEnabled)
+                .setInsertCost(costs[0])
+                .setDeleteCost(costs[1])
+                .setReplaceCost(costs[2])
+                .setMaxCost(maxCost)
+                .compute();
+    }
+
+    private static int[] pad(int[] tokens, int offset) {
+        int[] padded = new int[offset + tokens.length + 1];
+        Arrays.fill(padded, Integer.MIN_VALUE);
+        System.arraycopy(tokens, 0, padded, offset, tokens.length);
+        return padded;
+    }
+
+    private static float getCost(EditScript script, float[] costs) {
+        float cost = 0f;
+        for (int run = 0; run < script.getRunCount(); run++) {
+            switch (script.getRunEdit(run)) {
+                case INSERT:
+                    cost += costs[0] * script.getRunLength(run);
+                    break;
+                case DELETE:
+                    cost += costs[1] * script.getRunLength(run);
+                    break;
+                case REPLACE:
+                    cost += costs[2] * script.getRunLength(run);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return cost;
+    }
+
+    private static int[] randomTokens(Random random, int length, int alphabet) {
+        int[] tokens = new int[length];
+        for (int i = 0; i < length; i++) {
+            // Include negative tokens, which raw int token sequences may contain
+            tokens[i] = random.nextInt(alphabet) - alphabet / 2;
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,123 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.compute.ComparisonMode.Whitespace;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ComparisonModeTest {
+
+    private static final ComparisonMode IGNORE_CHANGE = ComparisonMode.of(
+            Whitespace.IGNORE_CHANGE, false);
+
+    private static final ComparisonMode IGNORE_ALL = ComparisonMode.of(
+            Whitespace.IGNORE_ALL, false);
+
+    private static final ComparisonMode IGNORE_CASE = ComparisonMode.of(
+            Whitespace.EXACT, true);
+
+    @Test
+    public void testExact() {
+        assertTrue(ComparisonMode.EXACT.isExact());
+        assertSame(ComparisonMode.EXACT, ComparisonMode.of(Whitespace.EXACT, false));
+        assertTrue(ComparisonMode.EXACT.isEqual("a b", new StringBuilder("a b")));
+        assertFalse(ComparisonMode.EXACT.isEqual("a b", "a  b"));
+        assertNotEquals(ComparisonMode.EXACT.getKey("a b"), ComparisonMode.EXACT.getKey("ab"));
+    }
+
+    @Test
+    public void testIgnoreWhitespaceChange() {
+        assertTrue(IGNORE_CHANGE.isEqual("int  x =\t1;", "int x = 1;"));
+        assertTrue(IGNORE_CHANGE.isEqual("return;   ", "return;"));
+        assertFalse(IGNORE_CHANGE.isEqual("int x = 1;", "int x=1;"));
+        assertFalse(IGNORE_CHANGE.isEqual("  return;", "return;"));
+        assertFalse(IGNORE_CHANGE.isEqual("Return;", "return;"));
+    }
+
+    @Test
+    public void testIgnoredChangeOfWhitespace() {
+        // Whitespace inserted between other characters is a change, but not under IGNORE_ALL
+        assertFalse(IGNORE_CHANGE.isIgnoredChange("ab", 1, 1, "a b", 1, 2));
+        assertTrue(IGNORE_ALL.isIgnoredChange("ab", 1, 1, "a b", 1, 2));
+        assertFalse(IGNORE_CHANGE.isIgnoredChange("a b", 1, 2, "ab", 1, 1));
+        // Changes in the amount or kind of existing whitespace aren't
+        assertTrue(IGNORE_CHANGE.isIgnoredChange("a b", 2, 2, "a  b", 2, 3));
+        assertTrue(IGNORE_CHANGE.isIgnoredChange("a b", 1, 2, "a\tb", 1, 2));
+        assertTrue(IGNORE_CHANGE.isIgnoredChange("x;", 2, 2, "x;  ", 2, 4));
+        // Leading whitespace is a change, like in isEqual
+        assertFalse(IGNORE_CHANGE.isIgnoredChange("x", 0, 0, " x", 0, 1));
+        assertFalse(IGNORE_CHANGE.isIgnoredChange("a b", 2, 3, "a c", 2, 3));
+        assertTrue(ComparisonMode.of(Whitespace.IGNORE_CHANGE, true)
+                .isIgnoredChange("a B", 2, 3, "a b", 2, 3));
+    }
+
+    @Test
+    public void testIgnoreAllWhitespace() {
+        assertTrue(IGNORE_ALL.isEqual("int x = 1;", "int x=1;"));
+        assertTrue(IGNORE_ALL.isEqual("  return;", "return;  "));
+        assertTrue(IGNORE_ALL.isEqual(" ", ""));
+        assertFalse(IGNORE_ALL.isEqual("ab", "ba"));
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        assertTrue(IGNORE_CASE.isEqual("GetValue()", "getvalue()"));
+        assertTrue(IGNORE_CASE.isEqual("STRASSE", "strasse"));
+        assertFalse(IGNORE_CASE.isEqual("get value", "getvalue"));
+        assertTrue(ComparisonMode.of(Whitespace.IGNORE_ALL, true)
+                .isEqual("Get Value", "getvalue"));
+    }
+
+    @Test
+    public void testListKey() {
+        // A list is keyed like the concatenation of its texts
+        assertEquals(IGNORE_CHANGE.getKey("a  b"),
+                IGNORE_CHANGE.getKey(Arrays.asList("a", " ", " ", "b")));
+        assertEquals(IGNORE_CHANGE.getKey(" "), IGNORE_CHANGE.getElementKey(" "));
+    }
+
+    @Test
+    public void testRangeKey() {
+        assertEquals(IGNORE_CHANGE.getKey("a  b"), IGNORE_CHANGE.getKey("(a \tb)", 1, 5));
+        assertEquals(ComparisonMode.EXACT.getKey(""), ComparisonMode.EXACT.getKey("ab", 1, 1));
+        assertEquals(IGNORE_CASE.getKey("B"), IGNORE_CASE.getKey("aB", 1, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testElementKeyOfUnsupportedType() {
+        IGNORE_CASE.getElementKey(Integer.valueOf(1));
+    }
+
+    @Test
+    public void testKeyDictionary() {
+        KeyDictionary dictionary = new KeyDictionary();
+        long[] keys = new long[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (i % 100) * 31L;
+        }
+        int[] tokens = dictionary.tokenize(keys);
+        assertEquals(100, dictionary.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i % 100, tokens[i]);
+        }
+        dictionary.clear();
+        assertEquals(0, dictionary.getToken(99 * 31L));
+    }
+
+    @Test
+    public void testLineKeysCached() {
+        LineKeys keys = new LineKeys(Arrays.asList("a b", "A  B"));
+        long[] ignoreChange = keys.getKeys(IGNORE_CHANGE);
+        assertNotEquals(ignoreChange[0], ignoreChange[1]);
+        long[] ignoreCase = keys.getKeys(ComparisonMode.of(Whitespace.IGNORE_CHANGE, true));
+        assertEquals(ignoreCase[0], ignoreCase[1]);
+        assertSame(ignoreChange, keys.getKeys(IGNORE_CHANGE));
+    }
+}
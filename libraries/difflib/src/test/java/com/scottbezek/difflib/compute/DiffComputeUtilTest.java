@@ -4,6 +4,7 @@ import com.scottbezek.difflib.compute.DiffComputeUtil.ElementListPair;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -145,6 +146,36 @@ public class DiffComputeUtilTest {
         assertEquals(Arrays.<String>asList(), result.getSecond());
     }
 
+    @Test
+    public void testRemoveSmallUnchangedRegions_EditScript() throws Exception {
+        // "RRURRDURURRRDDUURRI" from the documentation example
+        List<Edit> editString = Arrays.asList(
+                Edit.REPLACE, Edit.REPLACE, Edit.UNCHANGED, Edit.REPLACE, Edit.REPLACE,
+                Edit.DELETE, Edit.UNCHANGED, Edit.REPLACE, Edit.UNCHANGED, Edit.REPLACE,
+                Edit.REPLACE, Edit.REPLACE, Edit.DELETE, Edit.DELETE, Edit.UNCHANGED,
+                Edit.UNCHANGED, Edit.REPLACE, Edit.REPLACE, Edit.INSERT);
+        EditScript test = EditScript.fromEditString(editString);
+
+        DiffComputeUtil.removeSmallUnchangedRegions(test);
+        List<Edit> expected = new ArrayList<Edit>(editString);
+        DiffComputeUtil.removeSmallUnchangedRegions(expected);
+        assertEquals(expected, test.toEditString());
+        assertEquals("R5D1R6D2R4I1", test.toString());
+    }
+
+    @Test
+    public void testRemoveSmallUnchangedRegions_EditScriptKeepsEnds() throws Exception {
+        EditScript test = new EditScript()
+                .append(Edit.UNCHANGED, 2)
+                .append(Edit.INSERT, 1)
+                .append(Edit.UNCHANGED, 4)
+                .append(Edit.DELETE, 1)
+                .append(Edit.UNCHANGED, 1);
+
+        DiffComputeUtil.removeSmallUnchangedRegions(test);
+        assertEquals("U2I1U4D1U1", test.toString());
+    }
+
     @Test
     public void testGetTrimmedElementsPrefix() {
         List<String> first = Arrays.asList("foo", "bar", "ice", "cream", "sandwich");
@@ -0,0 +1,53 @@
+package com.scottbezek.difflib.compute;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DiffWorkspaceTest {
+
+    @Test
+    public void testReusedWorkspaceMatchesFreshDiffs() {
+        final DiffWorkspace workspace = new DiffWorkspace();
+        final Random random = new Random(3);
+        for (int trial = 0; trial < 200; trial++) {
+            // Vary the sizes so that buffers are both grown and reused with stale contents
+            List<Character> first = randomChars(random, random.nextInt(trial % 2 == 0 ? 80 : 10));
+            List<Character> second = randomChars(random, random.nextInt(trial % 3 == 0 ? 80 : 10));
+            final float maxCost = (trial % 4 == 0) ? 20f : Float.POSITIVE_INFINITY;
+
+            LevenshteinDiff<Character> expected = new LevenshteinDiff<Character>(first, second)
+                    .setReplaceCost(2f)
+                    .setMaxCost(maxCost)
+                    .compute();
+            LevenshteinDiff<Character> reused =
+                    new LevenshteinDiff<Character>(first, second, workspace)
+                            .setReplaceCost(2f)
+                            .setMaxCost(maxCost)
+                            .compute();
+
+            assertEquals(expected.exceedsMaxCost(), reused.exceedsMaxCost());
+            if (!expected.exceedsMaxCost()) {
+                assertEquals(expected.getEditString(), reused.getEditString());
+            }
+        }
+    }
+
+    @Test
+    public void testForCurrentThreadIsReused() {
+        assertSame(DiffWorkspace.forCurrentThread(), DiffWorkspace.forCurrentThread());
+    }
+
+    private static List<Character> randomChars(Random random, int length) {
+        List<Character> chars = new ArrayList<Character>();
+        for (int i = 0; i < length; i++) {
+            chars.add((char) ('a' + random.nextInt(3)));
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,167 @@
+package com.scottbezek.difflib.compute;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EditScriptCleanupTest {
+
+    private static final Edit[] EDITS = Edit.values();
+
+    @Test
+    public void testDefaultMatchesRemoveSmallUnchangedRegions() {
+        Random random = new Random(12);
+        for (int trial = 0; trial < 1000; trial++) {
+            EditScript script = new EditScript();
+            for (int run = random.nextInt(12); run > 0; run--) {
+                script.append(EDITS[random.nextInt(EDITS.length)], 1 + random.nextInt(6));
+            }
+            EditScript expected = new EditScript(script);
+            DiffComputeUtil.removeSmallUnchangedRegions(expected);
+            assertEquals(expected, new EditScriptCleanup().apply(script));
+        }
+    }
+
+    @Test
+    public void testConsumesSameElements() {
+        Random random = new Random(13);
+        for (int trial = 0; trial < 1000; trial++) {
+            EditScript script = new EditScript();
+            for (int run = random.nextInt(12); run > 0; run--) {
+                script.append(EDITS[random.nextInt(EDITS.length)], 1 + random.nextInt(6));
+            }
+            BitSet firstBoundaries = randomBoundaries(random, 80);
+            BitSet secondBoundaries = randomBoundaries(random, 80);
+            EditScript cleaned = new EditScriptCleanup()
+                    .setSemantic(random.nextBoolean())
+                    .setBoundaries(firstBoundaries, secondBoundaries)
+                    .apply(script);
+            assertEquals(getFirstLength(script), getFirstLength(cleaned));
+            assertEquals(getSecondLength(script), getSecondLength(cleaned));
+        }
+    }
+
+    @Test
+    public void testInputNotModified() {
+        EditScript script = parse("RURRUUUUD");
+        new EditScriptCleanup().apply(script);
+        assertEquals("R1U1R2U4D1", script.toString());
+    }
+
+    @Test
+    public void testMinUnchangedLength() {
+        EditScript script = parse("UUDUUUUIUUUUUU");
+        assertEquals("U2D1U4I1U6", new EditScriptCleanup().apply(script).toString());
+        assertEquals("U2D1R4I1U6",
+                new EditScriptCleanup().setMinUnchangedLength(5).apply(script).toString());
+        assertEquals("U2D1U4I1U6",
+                new EditScriptCleanup().setMinUnchangedLength(0).apply(script).toString());
+    }
+
+    @Test
+    public void testSemantic() {
+        // Unchanged runs no longer than the changes on both sides are absorbed
+        EditScript script = new EditScript()
+                .append(Edit.UNCHANGED, 10)
+                .append(Edit.DELETE, 5)
+                .append(Edit.UNCHANGED, 5)
+                .append(Edit.INSERT, 6)
+                .append(Edit.UNCHANGED, 10);
+        EditScriptCleanup cleanup = new EditScriptCleanup().setSemantic(true);
+        assertEquals("U10D5R5I6U10", cleanup.apply(script).toString());
+
+        script = new EditScript()
+                .append(Edit.DELETE, 5)
+                .append(Edit.UNCHANGED, 6)
+                .append(Edit.INSERT, 6);
+        assertEquals("D5U6I6", cleanup.apply(script).toString());
+    }
+
+    @Test
+    public void testSemanticRechecksEarlierRuns() {
+        // The first unchanged run is longer than the change after it, until that change is
+        // merged with the next one
+        EditScript script = new EditScript()
+                .append(Edit.REPLACE, 8)
+                .append(Edit.UNCHANGED, 6)
+                .append(Edit.DELETE, 4)
+                .append(Edit.UNCHANGED, 4)
+                .append(Edit.INSERT, 9);
+        assertEquals("R14D4R4I9",
+                new EditScriptCleanup().setSemantic(true).apply(script).toString());
+    }
+
+    @Test
+    public void testWordBoundaries() {
+        // "foo bar" -> "fox bar": the partly changed word is highlighted whole
+        EditScript script = parse("UURUUUU");
+        BitSet boundaries = boundaries(0, 3, 4);
+        EditScriptCleanup cleanup = new EditScriptCleanup()
+                .setMinUnchangedLength(0)
+                .setBoundaries(boundaries, boundaries);
+        assertEquals("R3U4", cleanup.apply(script).toString());
+
+        // "ab cd ef" -> "ab xd ef": the space before the changed word stays unchanged
+        script = parse("UUURUUUU");
+        boundaries = boundaries(0, 2, 3, 5, 6);
+        cleanup.setBoundaries(boundaries, boundaries);
+        assertEquals("U3R2U3", cleanup.apply(script).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBoundariesForOneSide() {
+        new EditScriptCleanup().setBoundaries(new BitSet(), null);
+    }
+
+    /**
+     * Parses an edit string with one letter per element, e.g. "UUDR".
+     */
+    private static EditScript parse(String edits) {
+        EditScript script = new EditScript();
+        for (char c : edits.toCharArray()) {
+            for (Edit edit : EDITS) {
+                if (edit.name().charAt(0) == c) {
+                    script.append(edit, 1);
+                }
+            }
+        }
+        return script;
+    }
+
+    private static int getFirstLength(EditScript script) {
+        int length = 0;
+        for (int run = 0; run < script.getRunCount(); run++) {
+            length += script.getRunFirstLength(run);
+        }
+        return length;
+    }
+
+    private static int getSecondLength(EditScript script) {
+        int length = 0;
+        for (int run = 0; run < script.getRunCount(); run++) {
+            length += script.getRunSecondLength(run);
+        }
+        return length;
+    }
+
+    private static BitSet randomBoundaries(Random random, int length) {
+        BitSet boundaries = new BitSet();
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(3) == 0) {
+                boundaries.set(i);
+            }
+        }
+        return boundaries;
+    }
+
+    private static BitSet boundaries(int... indices) {
+        BitSet boundaries = new BitSet();
+        for (int index : indices) {
+            boundaries.set(index);
+        }
+        return boundaries;
+    }
+}
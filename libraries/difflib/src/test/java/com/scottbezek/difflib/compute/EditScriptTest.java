@@ -0,0 +1,100 @@
+package com.scottbezek.difflib.compute;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class EditScriptTest {
+
+    @Test
+    public void testEmpty() {
+        EditScript script = new EditScript();
+        assertEquals(0, script.getRunCount());
+        assertEquals(0, script.getLength());
+        assertEquals(Arrays.<Edit>asList(), script.toEditString());
+    }
+
+    @Test
+    public void testAppendMergesRuns() {
+        EditScript script = new EditScript()
+                .append(Edit.UNCHANGED, 3)
+                .append(Edit.UNCHANGED, 2)
+                .append(Edit.INSERT, 0)
+                .append(Edit.DELETE, 1)
+                .append(Edit.UNCHANGED, 1);
+        assertEquals(3, script.getRunCount());
+        assertEquals(Edit.UNCHANGED, script.getRunEdit(0));
+        assertEquals(5, script.getRunLength(0));
+        assertEquals(Edit.DELETE, script.getRunEdit(1));
+        assertEquals(1, script.getRunLength(1));
+        assertEquals(7, script.getLength());
+        assertEquals("U5D1U1", script.toString());
+    }
+
+    @Test
+    public void testEditStringRoundTrip() {
+        List<Edit> editString = Arrays.asList(
+                Edit.REPLACE, Edit.REPLACE, Edit.UNCHANGED, Edit.INSERT, Edit.INSERT,
+                Edit.DELETE, Edit.UNCHANGED, Edit.UNCHANGED);
+        EditScript script = EditScript.fromEditString(editString);
+        assertEquals("R2U1I2D1U2", script.toString());
+        assertEquals(editString, script.toEditString());
+    }
+
+    @Test
+    public void testRunSequenceLengths() {
+        EditScript script = new EditScript()
+                .append(Edit.DELETE, 2)
+                .append(Edit.INSERT, 3)
+                .append(Edit.REPLACE, 4);
+        assertEquals(2, script.getRunFirstLength(0));
+        assertEquals(0, script.getRunSecondLength(0));
+        assertEquals(0, script.getRunFirstLength(1));
+        assertEquals(3, script.getRunSecondLength(1));
+        assertEquals(4, script.getRunFirstLength(2));
+        assertEquals(4, script.getRunSecondLength(2));
+    }
+
+    @Test
+    public void testSetRunEditAndCoalesce() {
+        EditScript script = new EditScript()
+                .append(Edit.REPLACE, 1)
+                .append(Edit.UNCHANGED, 2)
+                .append(Edit.REPLACE, 3);
+        script.setRunEdit(1, Edit.REPLACE);
+        assertEquals("R1R2R3", script.toString());
+        script.coalesce();
+        assertEquals("R6", script.toString());
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        EditScript script = new EditScript().append(Edit.UNCHANGED, 1);
+        EditScript copy = new EditScript(script);
+        assertEquals(script, copy);
+        assertEquals(script.hashCode(), copy.hashCode());
+
+        copy.append(Edit.INSERT, 1);
+        assertFalse(script.equals(copy));
+        assertEquals("U1", script.toString());
+    }
+
+    @Test
+    public void testReverse() {
+        EditScript script = new EditScript()
+                .append(Edit.UNCHANGED, 1)
+                .append(Edit.DELETE, 2)
+                .append(Edit.INSERT, 3);
+        script.reverse();
+        assertEquals("I3D2U1", script.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLength() {
+        new EditScript().append(Edit.INSERT, -1);
+    }
+}
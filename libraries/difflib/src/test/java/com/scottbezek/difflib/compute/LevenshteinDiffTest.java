@@ -6,8 +6,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class LevenshteinDiffTest {
 
@@ -79,6 +84,66 @@ public class LevenshteinDiffTest {
         assertEquals(expected, c.getEditString());
     }
 
+    @Test
+    public void testIgnoreCase() {
+        LevenshteinDiff<String> c = new LevenshteinDiff<String>(
+                Arrays.asList("Foo", "bar", "baz"),
+                Arrays.asList("foo", "BAR", "qux"),
+                DiffWorkspace.forCurrentThread(),
+                ComparisonMode.of(ComparisonMode.Whitespace.EXACT, true));
+        c.compute();
+        assertEquals("U2R1", c.getEditScript().toString());
+
+        EditScript script = new LevenshteinDiff.Algorithm()
+                .setComparisonMode(ComparisonMode.of(ComparisonMode.Whitespace.IGNORE_ALL, false))
+                .computeEditScript(Arrays.asList("a b", "c"), Arrays.asList("ab", "c "));
+        assertEquals("U2", script.toString());
+    }
+
+    @Test
+    public void testOperationBudget() {
+        // Without the common suffix, the table needs 6 * 7 cells unless it's bit-parallel
+        int[] first = {1, 2, 3, 3, 4, 5, 9};
+        int[] second = {6, 2, 3, 3, 2, 5, 7, 9};
+        IntLevenshteinDiff diff = new IntLevenshteinDiff(first, second)
+                .setBitParallelEnabled(false)
+                .setOperationBudget(42)
+                .compute();
+        assertFalse(diff.exceedsOperationBudget());
+        assertEquals("R1U3R1U1I1U1", diff.getEditScript().toString());
+
+        diff.setOperationBudget(41).compute();
+        assertTrue(diff.exceedsOperationBudget());
+        assertEquals("R6I1U1", diff.getEditScript().toString());
+
+        // The bit-parallel mode only needs a cell per row
+        assertFalse(new IntLevenshteinDiff(first, second)
+                .setOperationBudget(6)
+                .compute()
+                .exceedsOperationBudget());
+    }
+
+    @Test
+    public void testAlgorithmOperationBudget() {
+        EditScript script = new LevenshteinDiff.Algorithm()
+                .setOperationBudget(0)
+                .computeEditScript(splitChars("abcXdef"), splitChars("abcYYdef"));
+        assertEquals("U3R1I1U3", script.toString());
+    }
+
+    @Test
+    public void testAlgorithmSegments() {
+        // The segments are "b", "cd", "e" and "b", "cd", "x", "e"
+        int[] firstBoundaries = {0, 1, 2, 4, 5};
+        int[] secondBoundaries = {1, 2, 4, 5, 6};
+        LevenshteinDiff.Algorithm algorithm = new LevenshteinDiff.Algorithm().setReplaceCost(2f);
+        EditScript script = algorithm.computeEditScript("abcde", firstBoundaries, 1, 4,
+                "xbcdxe", secondBoundaries, 0, 4);
+        assertEquals("U2I1U1", script.toString());
+        assertEquals(algorithm.computeEditScript(Arrays.asList("b", "cd", "e"),
+                Arrays.asList("b", "cd", "x", "e")).toString(), script.toString());
+    }
+
     @Test
     public void testBothEmpty() {
         LevenshteinDiff<Character> c = new LevenshteinDiff<Character>(
@@ -130,6 +195,262 @@ public class LevenshteinDiffTest {
         assertEquals(expected, c.getEditString());
     }
 
+    @Test
+    public void testLinearSpaceMatchesFullTable() {
+        final float[][] costs = {
+                {1f, 1f, 1f},
+                {1f, 1f, 2f},
+                {1f, 1f, 2.001f},
+                {0.5f, 1.5f, 1f},
+        };
+        final Random random = new Random(42);
+        for (int trial = 0; trial < 300; trial++) {
+            final float[] cost = costs[trial % costs.length];
+            List<Character> first = splitChars(randomString(random, random.nextInt(60), 3));
+            List<Character> second = splitChars(randomString(random, random.nextInt(60), 3));
+
+            List<Edit> expected = new LevenshteinDiff<Character>(first, second)
+                    .setInsertCost(cost[0])
+                    .setDeleteCost(cost[1])
+                    .setReplaceCost(cost[2])
+                    .compute()
+                    .getEditString();
+            List<Edit> linearSpace = new LevenshteinDiff<Character>(first, second)
+                    .setInsertCost(cost[0])
+                    .setDeleteCost(cost[1])
+                    .setReplaceCost(cost[2])
+                    .setLinearSpaceThreshold(0)
+                    .compute()
+                    .getEditString();
+            assertEquals(expected, linearSpace);
+        }
+    }
+
+    @Test
+    public void testLinearSpaceLongSequences() {
+        final Random random = new Random(7);
+        List<Character> first = splitChars(randomString(random, 1500, 4));
+        List<Character> second = splitChars(randomString(random, 1200, 4));
+
+        List<Edit> expected = new LevenshteinDiff<Character>(first, second)
+                .setReplaceCost(2f)
+                .compute()
+                .getEditString();
+        List<Edit> linearSpace = new LevenshteinDiff<Character>(first, second)
+                .setReplaceCost(2f)
+                .setLinearSpaceThreshold(0)
+                .compute()
+                .getEditString();
+        assertEquals(expected, linearSpace);
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        final Random random = new Random(13);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // Ragged edges on both sides of the tile grid, integer and float costs, and both
+            // the full table and linear space modes
+            List<Character> first = splitChars(randomString(random, 700, 4));
+            List<Character> second = splitChars(randomString(random, 1300, 4));
+            float[][] costs = {{1f, 1f, 1f}, {1f, 1f, 1.5f}};
+            for (float[] cost : costs) {
+                for (long linearSpaceThreshold : new long[] {
+                        LevenshteinDiff.DEFAULT_LINEAR_SPACE_THRESHOLD, 0}) {
+                    List<Edit> expected = new LevenshteinDiff<Character>(first, second)
+                            .setInsertCost(cost[0])
+                            .setDeleteCost(cost[1])
+                            .setReplaceCost(cost[2])
+                            .setLinearSpaceThreshold(linearSpaceThreshold)
+                            .compute()
+                            .getEditString();
+                    List<Edit> parallel = new LevenshteinDiff<Character>(first, second)
+                            .setInsertCost(cost[0])
+                            .setDeleteCost(cost[1])
+                            .setReplaceCost(cost[2])
+                            .setLinearSpaceThreshold(linearSpaceThreshold)
+                            .setExecutor(executor)
+                            .compute()
+                            .getEditString();
+                    assertEquals(expected, parallel);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMaxCostWithinBound() {
+        final Random random = new Random(99);
+        for (int trial = 0; trial < 300; trial++) {
+            List<Character> first = splitChars(randomString(random, random.nextInt(40), 3));
+            List<Character> second = splitChars(randomString(random, random.nextInt(40), 3));
+
+            List<Edit> expected = new LevenshteinDiff<Character>(first, second)
+                    .setReplaceCost(2f)
+                    .compute()
+                    .getEditString();
+            float cost = 0;
+            for (Edit edit : expected) {
+                cost += (edit == Edit.REPLACE) ? 2 : (edit == Edit.UNCHANGED) ? 0 : 1;
+            }
+
+            LevenshteinDiff<Character> exact = new LevenshteinDiff<Character>(first, second)
+                    .setReplaceCost(2f)
+                    .setMaxCost(cost)
+                    .compute();
+            assertFalse(exact.exceedsMaxCost());
+            assertEquals(expected, exact.getEditString());
+
+            LevenshteinDiff<Character> generous = new LevenshteinDiff<Character>(first, second)
+                    .setReplaceCost(2f)
+                    .setMaxCost(cost + 3)
+                    .compute();
+            assertFalse(generous.exceedsMaxCost());
+            assertEquals(expected, generous.getEditString());
+
+            if (cost > 0) {
+                LevenshteinDiff<Character> tooLow = new LevenshteinDiff<Character>(first, second)
+                        .setReplaceCost(2f)
+                        .setMaxCost(cost - 1)
+                        .compute();
+                assertTrue(tooLow.exceedsMaxCost());
+            }
+        }
+    }
+
+    @Test
+    public void testMaxCostWithFractionalCosts() {
+        final Random random = new Random(5);
+        for (int trial = 0; trial < 100; trial++) {
+            List<Character> first = splitChars(randomString(random, random.nextInt(40), 3));
+            List<Character> second = splitChars(randomString(random, random.nextInt(40), 3));
+
+            List<Edit> expected = new LevenshteinDiff<Character>(first, second)
+                    .setDeleteCost(0.75f)
+                    .setReplaceCost(2.001f)
+                    .compute()
+                    .getEditString();
+            LevenshteinDiff<Character> bounded = new LevenshteinDiff<Character>(first, second)
+                    .setDeleteCost(0.75f)
+                    .setReplaceCost(2.001f)
+                    .setMaxCost(100f)
+                    .compute();
+            assertFalse(bounded.exceedsMaxCost());
+            assertEquals(expected, bounded.getEditString());
+        }
+    }
+
+    @Test
+    public void testCommonEndsTrimmed() {
+        // Offsets into larger arrays, with a common prefix of 3 and suffix of 2
+        int[] first = {9, 9, 1, 2, 3, 4, 5, 6, 9};
+        int[] second = {8, 1, 2, 3, 7, 7, 7, 5, 6};
+        IntLevenshteinDiff c = new IntLevenshteinDiff(first, 2, 6, second, 1, 8)
+                .setLinearSpaceThreshold(0)
+                .compute();
+
+        assertEquals("U3I2R1U2", c.getEditScript().toString());
+    }
+
+    @Test
+    public void testIdenticalSequences() {
+        LevenshteinDiff<Character> c = new LevenshteinDiff<Character>(
+                splitChars("same"),
+                splitChars("same"))
+                .setMaxCost(0f)
+                .compute();
+
+        assertFalse(c.exceedsMaxCost());
+        assertEquals(Collections.nCopies(4, Edit.UNCHANGED), c.getEditString());
+    }
+
+    @Test
+    public void testDebugCostTable() {
+        LevenshteinDiff<Character> c = new LevenshteinDiff<Character>(
+                splitChars("ab"),
+                splitChars("b"))
+                .compute();
+
+        assertEquals(
+                "          a    b    \n"
+                + "          1.00 2.00 \n"
+                + "b    1.00 1.00 1.00 \n",
+                c.getDebugCostTable());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMaxCostExceededHasNoEditString() {
+        LevenshteinDiff<Character> c = new LevenshteinDiff<Character>(
+                splitChars("kitten"),
+                splitChars("sitting"))
+                .setMaxCost(2f)
+                .compute();
+
+        assertTrue(c.exceedsMaxCost());
+        c.getEditString();
+    }
+
+    @Test
+    public void testMaxCostWithLinearSpace() {
+        LevenshteinDiff<Character> c = new LevenshteinDiff<Character>(
+                splitChars("kitten"),
+                splitChars("sitting"))
+                .setMaxCost(3f)
+                .setLinearSpaceThreshold(0)
+                .compute();
+
+        List<Edit> expected = Arrays.asList(
+                Edit.REPLACE,
+                Edit.UNCHANGED,
+                Edit.UNCHANGED,
+                Edit.UNCHANGED,
+                Edit.REPLACE,
+                Edit.UNCHANGED,
+                Edit.INSERT
+        );
+        assertFalse(c.exceedsMaxCost());
+        assertEquals(expected, c.getEditString());
+    }
+
+    @Test
+    public void testAlgorithmMaxCostFraction() {
+        List<Edit> rewrite = new LevenshteinDiff.Algorithm()
+                .setReplaceCost(2f)
+                .setMaxCostFraction(0.5f)
+                .computeEditScript(splitChars("abc"), splitChars("xyz"))
+                .toEditString();
+        assertEquals(Arrays.asList(
+                Edit.DELETE,
+                Edit.DELETE,
+                Edit.DELETE,
+                Edit.INSERT,
+                Edit.INSERT,
+                Edit.INSERT
+        ), rewrite);
+
+        List<Edit> similar = new LevenshteinDiff.Algorithm()
+                .setReplaceCost(2f)
+                .setMaxCostFraction(0.5f)
+                .computeEditScript(splitChars("abcd"), splitChars("abxd"))
+                .toEditString();
+        assertEquals(Arrays.asList(
+                Edit.UNCHANGED,
+                Edit.UNCHANGED,
+                Edit.REPLACE,
+                Edit.UNCHANGED
+        ), similar);
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(alphabetSize)));
+        }
+        return sb.toString();
+    }
+
     private static List<Character> splitChars(String s) {
         List<Character> chars = new ArrayList<Character>();
         for (char c : s.toCharArray()) {
@@ -0,0 +1,182 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.unified.Chunk;
+import com.scottbezek.difflib.unified.ILineReader;
+import com.scottbezek.difflib.unified.SideBySideLine;
+import com.scottbezek.difflib.unified.SingleFileDiff;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineDiffTest {
+
+    @Test
+    public void testIdentical() {
+        List<String> lines = Arrays.asList("a", "b", "c");
+        SingleFileDiff diff = new LineDiff(lines, lines).compute("a/file", "b/file");
+        assertEquals(0, diff.getChunks().size());
+        assertEquals("file", diff.getDisplayFileName());
+    }
+
+    @Test
+    public void testSingleChange() {
+        List<String> left = lines(10);
+        List<String> right = new ArrayList<String>(left);
+        right.set(5, "line5 changed");
+
+        SingleFileDiff diff = new LineDiff(left, right).setContextLines(2).compute("l", "r");
+        assertEquals(1, diff.getChunks().size());
+        Chunk chunk = diff.getChunks().get(0);
+        assertEquals(4, chunk.getLeftStartLine());
+        // SideBySideLine doesn't implement equals, so compare the string forms
+        assertEquals(Arrays.asList(
+                new SideBySideLine(4, "line3", 4, "line3"),
+                new SideBySideLine(5, "line4", 5, "line4"),
+                new SideBySideLine(6, "line5", 6, "line5 changed"),
+                new SideBySideLine(7, "line6", 7, "line6"),
+                new SideBySideLine(8, "line7", 8, "line7")
+        ).toString(), chunk.getLines().toString());
+    }
+
+    @Test
+    public void testContextClippedAtEnds() {
+        List<String> left = Arrays.asList("a", "b");
+        List<String> right = Arrays.asList("x", "a", "b", "y");
+
+        SingleFileDiff diff = new LineDiff(left, right).compute("l", "r");
+        assertEquals(1, diff.getChunks().size());
+        assertEquals(Arrays.asList(
+                new SideBySideLine(1, null, 1, "x"),
+                new SideBySideLine(1, "a", 2, "a"),
+                new SideBySideLine(2, "b", 3, "b"),
+                new SideBySideLine(3, null, 4, "y")
+        ).toString(), diff.getChunks().get(0).getLines().toString());
+    }
+
+    @Test
+    public void testChunkSplitting() {
+        List<String> left = lines(20);
+        List<String> right = new ArrayList<String>(left);
+        right.set(2, "changed");
+        right.set(7, "changed");
+        right.set(15, "changed");
+
+        // Changes 4 lines apart share a chunk with 2 lines of context, but not with 1
+        assertEquals(2, new LineDiff(left, right).setContextLines(2).compute("l", "r")
+                .getChunks().size());
+        assertEquals(3, new LineDiff(left, right).setContextLines(1).compute("l", "r")
+                .getChunks().size());
+        assertEquals(1, new LineDiff(left, right).setContextLines(4).compute("l", "r")
+                .getChunks().size());
+    }
+
+    @Test
+    public void testRandomEditsRoundTrip() {
+        Random random = new Random(8);
+        for (int trial = 0; trial < 50; trial++) {
+            List<String> left = new ArrayList<String>();
+            for (int i = random.nextInt(200); i > 0; i--) {
+                left.add("line" + random.nextInt(20));
+            }
+            List<String> right = new ArrayList<String>(left);
+            for (int edits = random.nextInt(10); edits > 0; edits--) {
+                int position = random.nextInt(right.size() + 1);
+                if (random.nextBoolean() && position < right.size()) {
+                    right.remove(position);
+                } else {
+                    right.add(position, "new" + random.nextInt(5));
+                }
+            }
+            int context = random.nextInt(4);
+            SingleFileDiff diff = new LineDiff(left, right).setContextLines(context)
+                    .compute("l", "r");
+            assertEquals(right, applyDiff(left, diff));
+        }
+    }
+
+    @Test
+    public void testReadLines() throws IOException {
+        assertEquals(Arrays.asList("a", "", "b"),
+                LineDiff.readLines(new StringReader("a\n\r\nb\n")));
+    }
+
+    @Test
+    public void testIgnoreWhitespaceChange() {
+        List<String> left = lines(10);
+        List<String> right = new ArrayList<String>(left);
+        right.set(2, "line2   ");
+        right.set(6, "line6 changed");
+
+        LineDiff lineDiff = new LineDiff(left, right).setContextLines(1);
+        assertEquals(2, lineDiff.compute("l", "r").getChunks().size());
+
+        lineDiff.setComparisonMode(
+                ComparisonMode.of(ComparisonMode.Whitespace.IGNORE_CHANGE, false));
+        SingleFileDiff diff = lineDiff.compute("l", "r");
+        assertEquals(1, diff.getChunks().size());
+        assertEquals(6, diff.getChunks().get(0).getLeftStartLine());
+
+        // Lines that are only equal ignoring whitespace show both versions
+        diff = lineDiff.setContextLines(4).compute("l", "r");
+        assertEquals(new SideBySideLine(3, "line2", 3, "line2   ").toString(),
+                diff.getChunks().get(0).getLines().get(0).toString());
+
+        // ...and are only checked against the left file under the same mode
+        final List<String> leftWithSpaces = new ArrayList<String>(left);
+        leftWithSpaces.set(2, "line2 ");
+        final Iterator<String> leftFile = leftWithSpaces.subList(2, 10).iterator();
+        ILineReader reader = new ILineReader() {
+            @Override
+            public String consumeLine() {
+                return leftFile.next();
+            }
+        };
+        assertEquals(8, diff.getChunks().get(0).applyForward(reader,
+                ComparisonMode.of(ComparisonMode.Whitespace.IGNORE_CHANGE, false)).size());
+    }
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            lines.add("line" + i);
+        }
+        return lines;
+    }
+
+    /**
+     * Reconstructs the right file from the left file and the chunks of the diff.
+     */
+    private static List<String> applyDiff(List<String> left, SingleFileDiff diff) {
+        List<String> right = new ArrayList<String>();
+        int nextLeftLine = 1;
+        for (Chunk chunk : diff.getChunks()) {
+            while (nextLeftLine < chunk.getLeftStartLine()) {
+                right.add(left.get(nextLeftLine - 1));
+                nextLeftLine++;
+            }
+            for (SideBySideLine line : chunk.getLines()) {
+                if (line.getLeftLine() != null) {
+                    assertEquals(left.get(nextLeftLine - 1), line.getLeftLine());
+                    nextLeftLine++;
+                }
+                if (line.getRightLine() != null) {
+                    right.add(line.getRightLine().toString());
+                }
+            }
+        }
+        while (nextLeftLine <= left.size()) {
+            right.add(left.get(nextLeftLine - 1));
+            nextLeftLine++;
+        }
+        return right;
+    }
+}
@@ -0,0 +1,130 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.unified.Chunk;
+import com.scottbezek.difflib.unified.SideBySideLine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LinePairingTest {
+
+    @Test
+    public void testSimilarity() {
+        int[] line = LinePairing.sketch("int count = getCount(items);");
+        assertEquals(1f, LinePairing.getSimilarity(line, line), 0f);
+        assertTrue(LinePairing.getSimilarity(line,
+                LinePairing.sketch("int count = getCount(allItems);"))
+                >= LinePairing.DEFAULT_MIN_SIMILARITY);
+        assertTrue(LinePairing.getSimilarity(line,
+                LinePairing.sketch("return mListeners.isEmpty();"))
+                < LinePairing.DEFAULT_MIN_SIMILARITY);
+        assertEquals(1f, LinePairing.getSimilarity(
+                LinePairing.sketch(""), LinePairing.sketch("")), 0f);
+        assertEquals(0f, LinePairing.getSimilarity(
+                LinePairing.sketch(""), LinePairing.sketch("}")), 0f);
+    }
+
+    @Test
+    public void testInsertedLineAtTop() {
+        List<String> removed = Arrays.asList(
+                "int first = compute(a);",
+                "int second = compute(b);");
+        List<String> added = Arrays.asList(
+                "// Compute both values",
+                "int first = compute(a, c);",
+                "int second = compute(b, c);");
+        assertArrayEquals(new int[] {1, 2}, LinePairing.pair(removed, added));
+    }
+
+    @Test
+    public void testUnrelatedLinesNotPaired() {
+        List<String> removed = Arrays.asList("mHandler.post(runnable);");
+        List<String> added = Arrays.asList("return null;");
+        assertArrayEquals(new int[] {-1}, LinePairing.pair(removed, added));
+    }
+
+    @Test
+    public void testEmpty() {
+        List<String> none = Collections.emptyList();
+        assertArrayEquals(new int[0], LinePairing.pair(none, Arrays.asList("a")));
+        assertArrayEquals(new int[] {-1}, LinePairing.pair(Arrays.asList("a"), none));
+    }
+
+    @Test
+    public void testLargeChangeAlignedNearDiagonal() {
+        List<String> removed = new ArrayList<String>();
+        List<String> added = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            removed.add("value" + i + " = compute(" + i + ");");
+            added.add((i % 2 == 0) ? "value" + i + " = compute(" + i + ", true);" : "}");
+        }
+        int[] pairs = LinePairing.pair(removed, added);
+        assertEquals(0, pairs[0]);
+        assertEquals(-1, pairs[1]);
+        assertEquals(998, pairs[998]);
+    }
+
+    @Test
+    public void testLargeChangeWithInsertedLine() {
+        // More candidate pairs than are aligned in full, and no identical lines to anchor on
+        List<String> removed = new ArrayList<String>();
+        List<String> added = new ArrayList<String>();
+        for (int i = 0; i < 600; i++) {
+            removed.add("value" + i + " = compute(" + i + ");");
+            if (i == 3) {
+                added.add("// Compute the rest in order");
+            }
+            added.add("value" + i + " = compute(" + i + ", true);");
+        }
+        int[] pairs = LinePairing.pair(removed, added);
+        for (int i = 0; i < 600; i++) {
+            assertEquals(i < 3 ? i : i + 1, pairs[i]);
+        }
+    }
+
+    @Test
+    public void testLargeChangeAnchoredOnIdenticalLines() {
+        // Too far off the diagonal for the band, but the moved lines are unchanged
+        List<String> removed = new ArrayList<String>();
+        List<String> added = new ArrayList<String>();
+        for (int i = 0; i < 800; i++) {
+            added.add("mListeners.get(" + i + ").onAdded(" + i + ");");
+        }
+        for (int i = 0; i < 600; i++) {
+            removed.add("value" + i + " = compute(" + i + ");");
+            added.add((i % 100 == 0)
+                    ? "value" + i + " = compute(" + i + ", true);"
+                    : "value" + i + " = compute(" + i + ");");
+        }
+        int[] pairs = LinePairing.pair(removed, added);
+        for (int i = 0; i < 600; i++) {
+            assertEquals(i + 800, pairs[i]);
+        }
+    }
+
+    @Test
+    public void testDeltaLines() throws Exception {
+        Chunk.Builder builder = new Chunk.Builder(1, 2, 1, 3);
+        builder.appendLineLeftRemoved("int first = compute(a);");
+        builder.appendLineLeftRemoved("mHandler.post(runnable);");
+        builder.appendLineRightAdded("// Compute both values");
+        builder.appendLineRightAdded("int first = compute(a, c);");
+        builder.appendLineRightAdded("return null;");
+
+        // SideBySideLine doesn't implement equals, so compare the string forms
+        assertEquals(Arrays.asList(
+                new SideBySideLine(1, null, 1, "// Compute both values"),
+                new SideBySideLine(1, "int first = compute(a);", 2, "int first = compute(a, c);"),
+                new SideBySideLine(2, "mHandler.post(runnable);", 3, null),
+                new SideBySideLine(3, null, 3, "return null;")
+        ).toString(), builder.build().getLines().toString());
+    }
+}
@@ -0,0 +1,128 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.compute.MoveDetector.Moves;
+import com.scottbezek.difflib.unified.SideBySideLine;
+import com.scottbezek.difflib.unified.SingleFileDiff;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MoveDetectorTest {
+
+    private static final List<String> METHOD = Arrays.asList(
+            "    private void reset() {",
+            "        mCount = 0;",
+            "        mItems.clear();",
+            "    }");
+
+    @Test
+    public void testMovedMethod() {
+        List<String> left = lines(0, 20);
+        left.addAll(10, METHOD);
+        List<String> right = lines(0, 20);
+        right.addAll(METHOD);
+
+        Moves moves = detect(left, right);
+        assertEquals("[11->21x4]", moves.getBlocks().toString());
+        assertFalse(moves.isLeftLineMoved(10));
+        assertTrue(moves.isLeftLineMoved(11));
+        assertTrue(moves.isLeftLineMoved(14));
+        assertFalse(moves.isLeftLineMoved(15));
+        assertTrue(moves.isRightLineMoved(21));
+        assertTrue(moves.isRightLineMoved(24));
+    }
+
+    @Test
+    public void testEditedLinesNotMoved() {
+        List<String> left = lines(0, 20);
+        left.addAll(10, METHOD);
+        List<String> right = lines(0, 20);
+        right.addAll(METHOD);
+
+        // Only runs of at least the min lines are moves
+        right.set(21, "        mCount = 1;");
+        assertEquals("[]", detect(left, right).getBlocks().toString());
+
+        right.set(21, METHOD.get(1));
+        right.set(23, "    } // reset");
+        assertEquals("[11->21x3]", detect(left, right).getBlocks().toString());
+    }
+
+    @Test
+    public void testTrivialLinesNotMoved() {
+        List<String> left = lines(0, 20);
+        left.addAll(10, Arrays.asList("", "}", "}", ""));
+        List<String> right = lines(0, 20);
+        right.addAll(Arrays.asList("", "}", "}", ""));
+        assertEquals("[]", detect(left, right).getBlocks().toString());
+    }
+
+    @Test
+    public void testBlockMovedOnce() {
+        // A copied block is only a move for one of its copies
+        List<String> left = lines(0, 20);
+        left.addAll(10, METHOD);
+        List<String> right = lines(0, 20);
+        right.addAll(5, METHOD);
+        right.addAll(METHOD);
+        assertEquals("[11->6x4]", detect(left, right).getBlocks().toString());
+    }
+
+    @Test
+    public void testManyMovedBlocks() {
+        // Reverse the order of 500 distinct blocks of 4 lines
+        List<String> left = new ArrayList<String>();
+        List<String> right = new ArrayList<String>();
+        for (int block = 0; block < 500; block++) {
+            left.addAll(lines(4 * block, 4));
+            right.addAll(0, lines(4 * block, 4));
+        }
+        Moves moves = detect(left, right);
+        int movedLines = 0;
+        for (int line = 1; line <= left.size(); line++) {
+            if (moves.isRightLineMoved(line)) {
+                movedLines++;
+            }
+        }
+        // Whatever the line diff keeps unchanged, the rest of the blocks are moves
+        assertTrue(movedLines > 1900);
+    }
+
+    @Test
+    public void testAnnotate() {
+        List<String> left = lines(0, 20);
+        left.addAll(10, METHOD);
+        List<String> right = lines(0, 20);
+        right.addAll(METHOD);
+        Moves moves = detect(left, right);
+
+        SideBySideLine removed = new SideBySideLine(11, METHOD.get(0), 11, null);
+        assertTrue(moves.annotate(removed).isLeftMoved());
+        assertFalse(moves.annotate(removed).isRightMoved());
+        SideBySideLine added = new SideBySideLine(15, null, 21, METHOD.get(0));
+        assertTrue(moves.annotate(added).isRightMoved());
+        SideBySideLine unchanged = new SideBySideLine(1, "line0", 1, "line0");
+        assertSame(unchanged, moves.annotate(unchanged));
+    }
+
+    private static Moves detect(List<String> left, List<String> right) {
+        SingleFileDiff diff = new LineDiff(left, right).compute("l", "r");
+        return new MoveDetector().detect(diff);
+    }
+
+    private static List<String> lines(int first, int count) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = first; i < first + count; i++) {
+            lines.add("line" + i);
+        }
+        return lines;
+    }
+}
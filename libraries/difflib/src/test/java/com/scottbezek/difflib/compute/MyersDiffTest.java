@@ -0,0 +1,172 @@
+package com.scottbezek.difflib.compute;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MyersDiffTest {
+
+    @Test
+    public void testSimpleDiff() {
+        List<Edit> editString = new MyersDiff<Character>(
+                splitChars("kitten"),
+                splitChars("sitting"))
+                .compute()
+                .getEditString();
+
+        assertEquals(5, countChanges(editString));
+        assertEquals("sitting", applyEditString(editString, "kitten", "sitting"));
+    }
+
+    @Test
+    public void testBothEmpty() {
+        List<Edit> editString = new MyersDiff<Character>(
+                Collections.<Character>emptyList(),
+                Collections.<Character>emptyList())
+                .compute()
+                .getEditString();
+
+        assertEquals(Collections.<Edit>emptyList(), editString);
+    }
+
+    @Test
+    public void testFromEmpty() {
+        List<Edit> editString = new MyersDiff<Character>(
+                Collections.<Character>emptyList(),
+                splitChars("foo"))
+                .compute()
+                .getEditString();
+
+        assertEquals(Arrays.asList(Edit.INSERT, Edit.INSERT, Edit.INSERT), editString);
+    }
+
+    @Test
+    public void testToEmpty() {
+        List<Edit> editString = new MyersDiff<Character>(
+                splitChars("foo"),
+                Collections.<Character>emptyList())
+                .compute()
+                .getEditString();
+
+        assertEquals(Arrays.asList(Edit.DELETE, Edit.DELETE, Edit.DELETE), editString);
+    }
+
+    @Test
+    public void testSingleInsertion() {
+        List<Edit> editString = new MyersDiff<Character>(
+                splitChars("abcdef"),
+                splitChars("abcXdef"))
+                .compute()
+                .getEditString();
+
+        assertEquals(Arrays.asList(
+                Edit.UNCHANGED,
+                Edit.UNCHANGED,
+                Edit.UNCHANGED,
+                Edit.INSERT,
+                Edit.UNCHANGED,
+                Edit.UNCHANGED,
+                Edit.UNCHANGED
+        ), editString);
+    }
+
+    @Test
+    public void testMatchesLevenshteinCost() {
+        final Random random = new Random(1234);
+        for (int trial = 0; trial < 500; trial++) {
+            String first = randomString(random, random.nextInt(30), 4);
+            String second = randomString(random, random.nextInt(30), 4);
+
+            List<Edit> myers = new MyersDiff<Character>(splitChars(first), splitChars(second))
+                    .compute()
+                    .getEditString();
+            List<Edit> levenshtein = new LevenshteinDiff<Character>(
+                    splitChars(first), splitChars(second))
+                    .setReplaceCost(2f)
+                    .compute()
+                    .getEditString();
+
+            assertEquals(first + " -> " + second, countChanges(levenshtein), countChanges(myers));
+            assertEquals(second, applyEditString(myers, first, second));
+        }
+    }
+
+    @Test
+    public void testAlgorithm() {
+        List<Edit> expected = new MyersDiff<Character>(splitChars("kitten"), splitChars("sitting"))
+                .compute()
+                .getEditString();
+        assertEquals(expected, MyersDiff.ALGORITHM.computeEditScript(
+                splitChars("kitten"), splitChars("sitting")).toEditString());
+    }
+
+    /**
+     * Returns the cost of the edit string, where a replacement costs as much as a deletion
+     * plus an insertion.
+     */
+    private static int countChanges(List<Edit> editString) {
+        int changes = 0;
+        for (Edit edit : editString) {
+            if (edit == Edit.REPLACE) {
+                changes += 2;
+            } else if (edit != Edit.UNCHANGED) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Applies the edit string to <code>first</code>, verifying that unchanged elements match,
+     * and returns the result.
+     */
+    private static String applyEditString(List<Edit> editString, String first, String second) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        int j = 0;
+        for (Edit edit : editString) {
+            switch (edit) {
+                case INSERT:
+                    sb.append(second.charAt(j++));
+                    break;
+                case DELETE:
+                    i++;
+                    break;
+                case REPLACE:
+                    sb.append(second.charAt(j++));
+                    i++;
+                    break;
+                case UNCHANGED:
+                    assertEquals(first.charAt(i), second.charAt(j));
+                    sb.append(first.charAt(i));
+                    i++;
+                    j++;
+                    break;
+            }
+        }
+        assertEquals(first.length(), i);
+        return sb.toString();
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(alphabetSize)));
+        }
+        return sb.toString();
+    }
+
+    private static List<Character> splitChars(String s) {
+        List<Character> chars = new ArrayList<Character>();
+        for (char c : s.toCharArray()) {
+            chars.add(c);
+        }
+        return chars;
+    }
+}
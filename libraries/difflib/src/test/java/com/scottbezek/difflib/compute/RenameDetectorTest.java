@@ -0,0 +1,135 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.unified.Chunk;
+import com.scottbezek.difflib.unified.Parser.DiffParseException;
+import com.scottbezek.difflib.unified.SingleFileDiff;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RenameDetectorTest {
+
+    @Test
+    public void testSimilarity() {
+        int[] sketch = RenameDetector.sketch(lines("a", 0, 100));
+        assertEquals(1f, RenameDetector.getSimilarity(sketch, sketch), 0f);
+        float similarity = RenameDetector.getSimilarity(sketch,
+                RenameDetector.sketch(lines("a", 50, 100)));
+        // Jaccard similarity is 50 / 150
+        assertTrue(similarity > 0.1f && similarity < 0.6f);
+        assertEquals(0f, RenameDetector.getSimilarity(sketch,
+                RenameDetector.sketch(lines("b", 0, 100))), 0.1f);
+    }
+
+    @Test
+    public void testRename() throws Exception {
+        List<String> contents = lines("a", 0, 40);
+        List<String> renamedContents = new ArrayList<String>(contents);
+        renamedContents.set(20, "changed");
+        SingleFileDiff modified = new LineDiff(contents, renamedContents)
+                .compute("a/Modified.java", "b/Modified.java");
+        List<SingleFileDiff> diffs = Arrays.asList(
+                deletedFile("Old.java", contents),
+                modified,
+                addedFile("New.java", renamedContents),
+                addedFile("Other.java", lines("b", 0, 40)));
+
+        List<SingleFileDiff> detected = new RenameDetector().detect(diffs);
+        assertEquals(3, detected.size());
+        assertSame(modified, detected.get(0));
+        assertEquals("Old.java -> New.java", detected.get(1).getDisplayFileName());
+        // Only the changed line, shown removed and added, and its context are left
+        assertEquals(1, detected.get(1).getChunks().size());
+        assertEquals(8, detected.get(1).getChunks().get(0).getLines().size());
+        assertSame(diffs.get(3), detected.get(2));
+    }
+
+    @Test
+    public void testDissimilarFilesNotPaired() throws Exception {
+        List<SingleFileDiff> diffs = Arrays.asList(
+                deletedFile("Old.java", lines("a", 0, 40)),
+                addedFile("New.java", lines("a", 30, 40)));
+        assertSame(diffs, new RenameDetector().detect(diffs));
+    }
+
+    @Test
+    public void testCopies() throws Exception {
+        List<String> contents = lines("a", 0, 40);
+        List<SingleFileDiff> diffs = Arrays.asList(
+                deletedFile("Old.java", contents),
+                addedFile("First.java", contents),
+                addedFile("Second.java", contents));
+
+        List<SingleFileDiff> detected = new RenameDetector().detect(diffs);
+        assertEquals(2, detected.size());
+        assertEquals("Old.java -> First.java", detected.get(0).getDisplayFileName());
+        assertEquals(0, detected.get(0).getChunks().size());
+        assertSame(diffs.get(2), detected.get(1));
+
+        detected = new RenameDetector().setDetectCopies(true).detect(diffs);
+        assertEquals(2, detected.size());
+        assertEquals("Old.java -> First.java", detected.get(0).getDisplayFileName());
+        assertEquals("Old.java -> Second.java", detected.get(1).getDisplayFileName());
+    }
+
+    @Test
+    public void testManyFiles() throws Exception {
+        // Every file shares a header, and is renamed to a file further along the list
+        List<String> header = lines("header", 0, 5);
+        List<SingleFileDiff> diffs = new ArrayList<SingleFileDiff>();
+        for (int i = 0; i < 10000; i++) {
+            diffs.add(deletedFile("old/" + i, fileContents(header, i)));
+            final int next = (i + 1) % 10000;
+            diffs.add(addedFile("new/" + next, fileContents(header, next)));
+        }
+
+        List<SingleFileDiff> detected = new RenameDetector().detect(diffs);
+        assertEquals(10000, detected.size());
+        for (SingleFileDiff diff : detected) {
+            String[] names = diff.getDisplayFileName().split(" -> ");
+            assertEquals(names[0].substring(4), names[1].substring(4));
+        }
+    }
+
+    private static List<String> fileContents(List<String> header, int file) {
+        List<String> contents = new ArrayList<String>(header);
+        contents.addAll(lines("file" + file + "_", 0, 20));
+        return contents;
+    }
+
+    private static SingleFileDiff deletedFile(String name, List<String> lines)
+            throws DiffParseException {
+        Chunk.Builder builder = new Chunk.Builder(1, lines.size(), 0, 0);
+        for (String line : lines) {
+            builder.appendLineLeftRemoved(line);
+        }
+        return new SingleFileDiff("a/" + name, SingleFileDiff.NO_FILE,
+                Collections.singletonList(builder.build()));
+    }
+
+    private static SingleFileDiff addedFile(String name, List<String> lines)
+            throws DiffParseException {
+        Chunk.Builder builder = new Chunk.Builder(0, 0, 1, lines.size());
+        for (String line : lines) {
+            builder.appendLineRightAdded(line);
+        }
+        return new SingleFileDiff(SingleFileDiff.NO_FILE, "b/" + name,
+                Collections.singletonList(builder.build()));
+    }
+
+    private static List<String> lines(String prefix, int first, int count) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = first; i < first + count; i++) {
+            lines.add(prefix + i);
+        }
+        return lines;
+    }
+}
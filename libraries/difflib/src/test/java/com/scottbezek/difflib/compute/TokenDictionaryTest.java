@@ -0,0 +1,35 @@
+package com.scottbezek.difflib.compute;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TokenDictionaryTest {
+
+    @Test
+    public void testTokenizeEmpty() {
+        TokenDictionary<String> dictionary = new TokenDictionary<String>();
+        assertArrayEquals(new int[0], dictionary.tokenize(Collections.<String>emptyList()));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    public void testTokenizeAssignsDenseTokens() {
+        TokenDictionary<String> dictionary = new TokenDictionary<String>();
+        assertArrayEquals(new int[] {0, 1, 0, 2},
+                dictionary.tokenize(Arrays.asList("foo", "bar", "foo", "baz")));
+        assertEquals(3, dictionary.size());
+    }
+
+    @Test
+    public void testTokensSharedBetweenSequences() {
+        TokenDictionary<String> dictionary = new TokenDictionary<String>();
+        dictionary.tokenize(Arrays.asList("foo", "bar"));
+        assertArrayEquals(new int[] {1, 2, 0},
+                dictionary.tokenize(Arrays.asList("bar", "baz", new String("foo"))));
+    }
+}
@@ -0,0 +1,201 @@
+package com.scottbezek.difflib.compute;
+
+import com.scottbezek.difflib.compute.ComparisonMode.Whitespace;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TwoLevelDiffTest {
+
+    private static final TwoLevelDiff DIFF = new TwoLevelDiff(
+            new LevenshteinDiff.Algorithm().setReplaceCost(2f),
+            new LevenshteinDiff.Algorithm().setReplaceCost(2f));
+
+    @Test
+    public void testIdentical() {
+        EditScript script = DIFF.computeEditScript(
+                splitWords("int foo = 1;"), splitWords("int foo = 1;"));
+        assertEquals("U12", script.toString());
+    }
+
+    @Test
+    public void testChangedWordIsRefined() {
+        EditScript script = DIFF.computeEditScript(
+                splitWords("int foo = 1;"), splitWords("int food = 1;"));
+        assertEquals("U7I1U5", script.toString());
+    }
+
+    @Test
+    public void testInsertedWords() {
+        EditScript script = DIFF.computeEditScript(
+                splitWords("a b"), splitWords("a new b"));
+        assertEquals("U2I4U1", script.toString());
+    }
+
+    @Test
+    public void testDeletedWords() {
+        EditScript script = DIFF.computeEditScript(
+                splitWords("a old b"), splitWords("a b"));
+        assertEquals("U2D4U1", script.toString());
+    }
+
+    @Test
+    public void testAdjacentChangesRefinedTogether() {
+        // "foo" -> "fo" and "=" -> "==" are separate changed words, but are refined as a single
+        // region, and the leftover "o" becomes a replacement with the extra "="
+        EditScript script = DIFF.computeEditScript(
+                splitWords("x foo=1"), splitWords("x fo==1"));
+        assertEquals("U4R1U2", script.toString());
+    }
+
+    @Test
+    public void testEqualGroupsOfDifferentSizesIgnoringWhitespaceChange() {
+        assertConsumesBothSides(ComparisonMode.of(Whitespace.IGNORE_CHANGE, false),
+                "foo bar baz", "foo    bar qux");
+        assertConsumesBothSides(ComparisonMode.of(Whitespace.IGNORE_CHANGE, false),
+                "foo    bar baz", "foo bar qux");
+    }
+
+    @Test
+    public void testEqualGroupsOfDifferentSizesIgnoringAllWhitespace() {
+        assertConsumesBothSides(ComparisonMode.of(Whitespace.IGNORE_ALL, false),
+                "foo bar baz", "foo    bar qux");
+        assertConsumesBothSides(ComparisonMode.of(Whitespace.IGNORE_ALL, false),
+                "foo    bar baz", "foo bar qux");
+    }
+
+    @Test
+    public void testEqualGroupsOfDifferentSizesAreRefined() {
+        TwoLevelDiff diff = new TwoLevelDiff(
+                new LevenshteinDiff.Algorithm().setReplaceCost(2f)
+                        .setComparisonMode(ComparisonMode.of(Whitespace.IGNORE_CHANGE, false)),
+                new LevenshteinDiff.Algorithm().setReplaceCost(2f));
+        EditScript script = diff.computeEditScript(
+                splitWhitespaceRuns("a b"), splitWhitespaceRuns("a   b"));
+        assertEquals("U2I2U1", script.toString());
+    }
+
+    @Test
+    public void testSegmentsMatchLists() {
+        assertSegmentsMatchLists(DIFF, "int foo = 1;", "int food = 1;");
+        assertSegmentsMatchLists(DIFF, "x foo=1", "x fo==1");
+        assertSegmentsMatchLists(DIFF, "a old b", "a b");
+        assertSegmentsMatchLists(DIFF, "", "a b");
+        ComparisonMode mode = ComparisonMode.of(Whitespace.IGNORE_CHANGE, true);
+        assertSegmentsMatchLists(new TwoLevelDiff(
+                        new LevenshteinDiff.Algorithm().setReplaceCost(2f).setComparisonMode(mode),
+                        new LevenshteinDiff.Algorithm().setReplaceCost(2f).setComparisonMode(mode)),
+                "foo    Bar baz", "foo bar qux");
+    }
+
+    /**
+     * Asserts that diffing the texts as segments, with the words after the first as groups,
+     * gives the same edit script as diffing them as lists.
+     */
+    private static void assertSegmentsMatchLists(TwoLevelDiff diff, String first,
+            String second) {
+        List<List<String>> firstGroups = splitWhitespaceRuns(first);
+        List<List<String>> secondGroups = splitWhitespaceRuns(second);
+        String expected = diff.computeEditScript(
+                firstGroups.subList(Math.min(1, firstGroups.size()), firstGroups.size()),
+                secondGroups.subList(Math.min(1, secondGroups.size()), secondGroups.size()))
+                .toString();
+        int[] firstGroupBoundaries = getGroupBoundaries(firstGroups);
+        int[] secondGroupBoundaries = getGroupBoundaries(secondGroups);
+        int firstGroupFrom = Math.min(1, firstGroups.size());
+        int secondGroupFrom = Math.min(1, secondGroups.size());
+        // Element boundaries start at the first diffed group, as in IntralineDiffProcessor
+        int[] firstBoundaries = getElementBoundaries(first,
+                firstGroupBoundaries[firstGroupFrom]);
+        int[] secondBoundaries = getElementBoundaries(second,
+                secondGroupBoundaries[secondGroupFrom]);
+        EditScript script = diff.computeEditScript(
+                first, firstGroupBoundaries, firstGroupFrom, firstGroups.size(),
+                firstBoundaries, 0,
+                second, secondGroupBoundaries, secondGroupFrom, secondGroups.size(),
+                secondBoundaries, 0);
+        assertEquals(expected, script.toString());
+    }
+
+    private static int[] getGroupBoundaries(List<List<String>> groups) {
+        int[] boundaries = new int[groups.size() + 1];
+        for (int i = 0; i < groups.size(); i++) {
+            boundaries[i + 1] = boundaries[i] + groups.get(i).size();
+        }
+        return boundaries;
+    }
+
+    private static int[] getElementBoundaries(String s, int start) {
+        int[] boundaries = new int[s.length() - start + 1];
+        for (int i = 0; i < boundaries.length; i++) {
+            boundaries[i] = start + i;
+        }
+        return boundaries;
+    }
+
+    /**
+     * Asserts that the edit script of the texts, diffed with groups compared under the mode,
+     * consumes every element of both of them.
+     */
+    private static void assertConsumesBothSides(ComparisonMode mode, String first,
+            String second) {
+        TwoLevelDiff diff = new TwoLevelDiff(
+                new LevenshteinDiff.Algorithm().setReplaceCost(2f).setComparisonMode(mode),
+                new LevenshteinDiff.Algorithm().setReplaceCost(2f).setComparisonMode(mode));
+        EditScript script = diff.computeEditScript(
+                splitWhitespaceRuns(first), splitWhitespaceRuns(second));
+        int firstLength = 0;
+        int secondLength = 0;
+        for (int run = 0; run < script.getRunCount(); run++) {
+            firstLength += script.getRunFirstLength(run);
+            secondLength += script.getRunSecondLength(run);
+        }
+        assertEquals(script.toString(), first.length(), firstLength);
+        assertEquals(script.toString(), second.length(), secondLength);
+    }
+
+    /**
+     * Splits into groups of single-character Strings, each either a run of whitespace or a run
+     * of anything else, so that groups can be compared under a {@link ComparisonMode}.
+     */
+    private static List<List<String>> splitWhitespaceRuns(String s) {
+        List<List<String>> groups = new ArrayList<List<String>>();
+        List<String> group = null;
+        boolean whitespace = false;
+        for (char c : s.toCharArray()) {
+            if (group == null || Character.isWhitespace(c) != whitespace) {
+                group = new ArrayList<String>();
+                groups.add(group);
+                whitespace = Character.isWhitespace(c);
+            }
+            group.add(String.valueOf(c));
+        }
+        return groups;
+    }
+
+    /**
+     * Splits into single-character groups of letters/digits and single-character groups of
+     * everything else, as a simple stand-in for a word tokenizer.
+     */
+    private static List<List<Character>> splitWords(String s) {
+        List<List<Character>> words = new ArrayList<List<Character>>();
+        List<Character> word = null;
+        for (char c : s.toCharArray()) {
+            if (Character.isLetterOrDigit(c) && word != null) {
+                word.add(c);
+            } else {
+                word = new ArrayList<Character>();
+                word.add(c);
+                words.add(word);
+                if (!Character.isLetterOrDigit(c)) {
+                    word = null;
+                }
+            }
+        }
+        return words;
+    }
+}
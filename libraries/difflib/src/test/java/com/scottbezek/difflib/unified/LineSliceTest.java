@@ -0,0 +1,66 @@
+package com.scottbezek.difflib.unified;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class LineSliceTest {
+
+    @Test
+    public void testSlice() {
+        LineSlice line = new LineSlice.Buffer().append("+int x;", 0, 7);
+        LineSlice content = line.subSequence(1, line.length());
+        assertEquals(6, content.length());
+        assertEquals('i', content.charAt(0));
+        assertEquals("int x;", content.toString());
+        assertEquals("x", content.subSequence(4, 5).toString());
+        assertEquals("", content.subSequence(6, 6).toString());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        LineSlice.Buffer buffer = new LineSlice.Buffer();
+        LineSlice first = buffer.append("abcabc", 0, 3);
+        LineSlice second = buffer.append("xabc", 1, 4);
+        assertEquals(first, second);
+        assertEquals("abc".hashCode(), first.hashCode());
+        assertNotEquals(first, buffer.append("abd", 0, 3));
+        assertFalse(first.equals("abc"));
+
+        // Lines are equal no matter how they're stored
+        LineSlice wide = buffer.append("\u0100abc", 0, 4);
+        assertEquals(first, wide.subSequence(1, 4));
+        assertEquals(wide.subSequence(1, 4), first);
+        assertEquals(first.hashCode(), wide.subSequence(1, 4).hashCode());
+        assertEquals("\u0100abc", wide.toString());
+        assertEquals("\u00e9", buffer.append("\u00e9", 0, 1).toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCharAtOutsideSlice() {
+        new LineSlice.Buffer().append("abc", 0, 2).charAt(2);
+    }
+
+    @Test
+    public void testBufferSharesBlocks() {
+        LineSlice.Buffer buffer = new LineSlice.Buffer();
+        LineSlice first = buffer.append("first", 0, 5);
+        LineSlice second = buffer.append("(second)", 1, 7);
+        assertEquals("first", first.toString());
+        assertEquals("second", second.toString());
+        assertSame(buffer.reserveLatin1(0),
+                buffer.reserveLatin1(LineSlice.Buffer.BLOCK_SIZE - 11));
+
+        // A line that doesn't fit in the rest of the block starts a new one
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 2 * LineSlice.Buffer.BLOCK_SIZE; i++) {
+            longLine.append('x');
+        }
+        assertEquals(longLine.toString(),
+                buffer.append(longLine, 0, longLine.length()).toString());
+        assertEquals("first", first.toString());
+    }
+}
@@ -0,0 +1,134 @@
+package com.scottbezek.difflib.unified;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LineSourceTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static List<String> readAll(LineSource source) throws Exception {
+        final List<String> lines = new ArrayList<String>();
+        String line;
+        while ((line = source.readLine()) != null) {
+            lines.add(line);
+        }
+        source.close();
+        return lines;
+    }
+
+    private static List<String> readAll(byte[] bytes) throws Exception {
+        return readAll(new LineSource(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testLineTerminators() throws Exception {
+        assertEquals(Arrays.asList("a", "", "b\rc", "d"),
+                readAll("a\n\r\nb\rc\r\nd".getBytes(UTF_8)));
+        assertEquals(Arrays.asList("a", ""), readAll("a\n\n".getBytes(UTF_8)));
+        assertEquals(new ArrayList<String>(), readAll(new byte[0]));
+    }
+
+    @Test
+    public void testDecodesUtf8() throws Exception {
+        final String text = "caf\u00e9 \u4e2d\u6587 \ud83d\udc76";
+        assertEquals(Arrays.asList(text, "x"), readAll((text + "\nx").getBytes(UTF_8)));
+    }
+
+    @Test
+    public void testMalformedUtf8() throws Exception {
+        // Each case is replaced like String's decoder replaces it
+        final byte[][] cases = {
+                {'a', (byte) 0x80, 'b'},
+                {(byte) 0xc0, (byte) 0xaf},
+                {(byte) 0xe0, (byte) 0x80, (byte) 0x80},
+                {(byte) 0xe2, (byte) 0x82, 'x'},
+                {(byte) 0xf0, (byte) 0x9f, (byte) 0x98},
+                {(byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+                {(byte) 0xff, 'z'},
+        };
+        for (byte[] bytes : cases) {
+            assertEquals(Arrays.toString(bytes), Arrays.asList(new String(bytes, UTF_8)),
+                    readAll(bytes));
+        }
+        // An encoded surrogate is three malformed bytes, which String treats as one
+        assertEquals(Arrays.asList("\ufffd\ufffd\ufffd"),
+                readAll(new byte[] {(byte) 0xed, (byte) 0xa0, (byte) 0x80}));
+    }
+
+    @Test
+    public void testLinesLongerThanBuffer() throws Exception {
+        final StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            longLine.append((char) ('a' + i % 26));
+        }
+        final String text = "short\n" + longLine + "\r\n\u00e9" + longLine;
+        assertEquals(Arrays.asList("short", longLine.toString(), "\u00e9" + longLine),
+                readAll(text.getBytes(UTF_8)));
+    }
+
+    @Test
+    public void testChannelAndBuffer() throws Exception {
+        final byte[] bytes = "one\ntwo\r\nthree".getBytes(UTF_8);
+        final List<String> expected = Arrays.asList("one", "two", "three");
+        assertEquals(expected, readAll(new LineSource(
+                Channels.newChannel(new ByteArrayInputStream(bytes)))));
+        assertEquals(expected, readAll(new LineSource(ByteBuffer.wrap(bytes))));
+    }
+
+    @Test
+    public void testReadIntoBuffer() throws Exception {
+        final LineSource source = new LineSource(
+                new ByteArrayInputStream("a\u00e9\r\n\nb".getBytes(UTF_8)));
+        final LineSlice.Buffer buffer = new LineSlice.Buffer();
+        assertEquals("a\u00e9", source.readLine(buffer).toString());
+        assertEquals("", source.readLine(buffer).toString());
+        assertEquals("b", source.readLine(buffer).toString());
+        assertNull(source.readLine(buffer));
+    }
+
+    @Test
+    public void testLatin1LinesStoredAsBytes() throws Exception {
+        final LineSource source = new LineSource(
+                new ByteArrayInputStream("caf\u00e9\n\u0100\u00e9\n".getBytes(UTF_8)));
+        final LineSlice.Buffer buffer = new LineSlice.Buffer();
+        assertEquals("caf\u00e9", source.readLine(buffer).toString());
+        assertEquals(4, buffer.getLatin1Offset());
+        assertEquals(0, buffer.getCharsOffset());
+        assertEquals("\u0100\u00e9", source.readLine(buffer).toString());
+        assertEquals(4, buffer.getLatin1Offset());
+        assertEquals(2, buffer.getCharsOffset());
+    }
+
+    @Test
+    public void testMappedFile() throws Exception {
+        final File file = File.createTempFile("LineSourceTest", ".diff");
+        try {
+            final FileOutputStream output = new FileOutputStream(file);
+            try {
+                output.write("--- a\n+++ b\n".getBytes(UTF_8));
+            } finally {
+                output.close();
+            }
+            final LineSource source = LineSource.open(file);
+            assertEquals("--- a", source.readLine());
+            assertEquals("+++ b", source.readLine());
+            assertNull(source.readLine());
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+}
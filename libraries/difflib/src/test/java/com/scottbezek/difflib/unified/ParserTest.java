@@ -0,0 +1,150 @@
+package com.scottbezek.difflib.unified;
+
+import com.scottbezek.difflib.unified.Parser.DiffParseException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParserTest {
+
+    private static final String TWO_FILE_DIFF = ""
+            + "diff --git a/a.txt b/a.txt\n"
+            + "--- a/a.txt\n"
+            + "+++ b/a.txt\n"
+            + "@@ -1,2 +1,2 @@ class A\n"
+            + " same\n"
+            + "-old\n"
+            + "+new\n"
+            + "--- a/b.txt\n"
+            + "+++ b/b.txt\n"
+            + "@@ -3,1 +3,2 @@\n"
+            + " x\n"
+            + "+y\n";
+
+    private static Parser newParser() {
+        return new Parser(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    private static LineSource newSource(String diff) throws Exception {
+        return new LineSource(new ByteArrayInputStream(diff.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        newParser().parse(newSource(TWO_FILE_DIFF), handler);
+        assertEquals(Arrays.asList(
+                "file a/a.txt b/a.txt",
+                "chunk 1,2 1,2 class A",
+                "unchanged same",
+                "removed old",
+                "added new",
+                "chunk end",
+                "file end",
+                "file a/b.txt b/b.txt",
+                "chunk 3,1 3,2 null",
+                "unchanged x",
+                "added y",
+                "chunk end",
+                "file end"), handler.mEvents);
+    }
+
+    @Test
+    public void testTruncatedChunk() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        newParser().parse(newSource("--- a\n+++ b\n@@ -1,2 +1,2 @@\n x\n"), handler);
+        assertEquals(Arrays.asList(
+                "file a b",
+                "chunk 1,2 1,2 null",
+                "unchanged x",
+                "file end"), handler.mEvents);
+
+        List<SingleFileDiff> diffs = newParser().parse(
+                newSource("--- a\n+++ b\n@@ -1,2 +1,2 @@\n x\n"));
+        assertEquals(1, diffs.size());
+        assertEquals(0, diffs.get(0).getChunks().size());
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        List<SingleFileDiff> diffs = newParser().parse(newSource(TWO_FILE_DIFF));
+        assertEquals(2, diffs.size());
+        assertEquals("a/a.txt", diffs.get(0).getLeftFilename());
+        assertEquals("b/b.txt", diffs.get(1).getRightFilename());
+        assertEquals(1, diffs.get(0).getChunks().size());
+        assertEquals(1, diffs.get(1).getChunks().size());
+
+        // Lines are slices of the input, without their markers
+        List<Chunk.Block> blocks = diffs.get(0).getChunks().get(0).getBlocks();
+        Chunk.Block.Delta delta = (Chunk.Block.Delta) blocks.get(1);
+        assertEquals("old", delta.getRemovedLines().get(0).toString());
+        assertTrue(delta.getAddedLines().get(0) instanceof LineSlice);
+    }
+
+    @Test(expected = DiffParseException.class)
+    public void testTooManyLines() throws Exception {
+        newParser().parse(newSource("--- a\n+++ b\n@@ -1,1 +1,1 @@\n-x\n-y\n"),
+                new RecordingHandler());
+    }
+
+    @Test(expected = DiffParseException.class)
+    public void testChunkBeforeFilenames() throws Exception {
+        newParser().parse(newSource("@@ -1,1 +1,1 @@\n x\n"), new RecordingHandler());
+    }
+
+    @Test(expected = DiffParseException.class)
+    public void testMissingFilename() throws Exception {
+        newParser().parse(newSource("--- a\n"), new RecordingHandler());
+    }
+
+    private static class RecordingHandler implements IDiffHandler {
+
+        private final List<String> mEvents = new ArrayList<String>();
+
+        @Override
+        public void onFileStart(String leftFilename, String rightFilename) {
+            mEvents.add("file " + leftFilename + " " + rightFilename);
+        }
+
+        @Override
+        public void onChunkStart(int leftStartLine, int leftLength, int rightStartLine,
+                int rightLength, String contextSnippet) {
+            mEvents.add("chunk " + leftStartLine + "," + leftLength + " " + rightStartLine + ","
+                    + rightLength + " " + contextSnippet);
+        }
+
+        @Override
+        public void onLineUnchanged(CharSequence line) {
+            mEvents.add("unchanged " + line);
+        }
+
+        @Override
+        public void onLineLeftRemoved(CharSequence line) {
+            mEvents.add("removed " + line);
+        }
+
+        @Override
+        public void onLineRightAdded(CharSequence line) {
+            mEvents.add("added " + line);
+        }
+
+        @Override
+        public void onChunkEnd() {
+            mEvents.add("chunk end");
+        }
+
+        @Override
+        public void onFileEnd() {
+            mEvents.add("file end");
+        }
+    }
+}